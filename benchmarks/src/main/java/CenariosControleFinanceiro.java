@@ -0,0 +1,362 @@
+import controlefinanceiro.benchmarks.Cenarios;
+import net.sf.jasperreports.engine.JasperCompileManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Implementação dos cenários de benchmark sobre as classes do aplicativo (pacote padrão).
+// A base é um H2 em arquivo no modo MySQL, criado pelo mesmo Migrador do aplicativo e
+// reaproveitado entre execuções enquanto a quantidade de transações do usuário 1 conferir.
+public class CenariosControleFinanceiro implements Cenarios {
+    private static final int ID_USER = 1;
+    private static final LocalDate PRIMEIRO_DIA = LocalDate.of(2015, 1, 1);
+    private static final int DIAS = 3652; // Dez anos de histórico, 120 meses
+    private static final int LOTE_CARGA = 1_000_000;
+    private static final String MARCA_INSERCAO = "benchmark-insercao";
+    private static final String MARCA_EXCLUSAO = "benchmark-exclusao";
+
+    private final AtomicLong sequencia = new AtomicLong();
+    private FabricaConexoes fabricaConexoes;
+    private TransacaoRepository transacaoRepository;
+    private ServicoExtrato servicoExtrato;
+    private Path relatorios;
+
+    private TransacoesUsuario colunas;
+    private List<Transacao> lista;
+
+    private BigDecimal[] valoresDecimais;
+    private Dinheiro[] valoresDinheiro;
+
+    private HashSenha hashSenha;
+    private VerificadorSenhas verificadorSenhas;
+    private String senhaGravada;
+
+    private ServicoFinanceiro servico;
+    private ServidorHttp servidor;
+
+    @Override
+    public void preparar(Path diretorio, int quantidade) throws Exception {
+        Files.createDirectories(diretorio);
+        String url = "jdbc:h2:file:" + diretorio.toAbsolutePath().resolve("controlefinanceiro-" + quantidade)
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE";
+        System.setProperty("controlefinanceiro.db.driver", "org.h2.Driver");
+        System.setProperty("controlefinanceiro.db.url", url);
+        System.setProperty("controlefinanceiro.db.usuario", "sa");
+        System.setProperty("controlefinanceiro.db.senha", "");
+
+        fabricaConexoes = new FabricaConexoes();
+        new Migrador(fabricaConexoes).migrar();
+        // Sem índice textual nem cache: os cenários medem o caminho até o banco
+        transacaoRepository = new TransacaoRepository(fabricaConexoes, new LivroSaldo());
+        relatorios = Paths.get(System.getProperty("controlefinanceiro.benchmarks.relatorios", "../Relatorios"));
+        servicoExtrato = new ServicoExtrato(new CacheRelatorios(relatorios), fabricaConexoes);
+
+        descartarInseridas();
+        if (transacaoRepository.contar(ID_USER, FiltroTransacao.VAZIO) != quantidade) {
+            popular(quantidade);
+        }
+    }
+
+    // Gera as transações no próprio H2 (SYSTEM_RANGE), em lotes para não estourar o log de transação
+    private void popular(int quantidade) throws SQLException {
+        transacaoRepository.limpar(ID_USER);
+        String sql = "INSERT INTO transacoes (descricao, valor, tipo, data, IdUser) "
+                + "SELECT CONCAT('Compra ', MOD(n, 500)), CAST(MOD(n * 7919, 100000) AS DECIMAL(15, 2)) / 100, "
+                + "CASE WHEN MOD(n, 4) = 0 THEN 'RECEITA' ELSE 'DESPESA' END, DATEADD(DAY, MOD(n * 31, " + DIAS + "), DATE '" + PRIMEIRO_DIA + "'), ? "
+                + "FROM (SELECT \"X\" AS n FROM SYSTEM_RANGE(?, ?)) AS sequencia";
+        for (long inicio = 1; inicio <= quantidade; inicio += LOTE_CARGA) {
+            long fim = Math.min(quantidade, inicio + LOTE_CARGA - 1);
+            long primeiro = inicio;
+            fabricaConexoes.emTransacao(conexao -> {
+                try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                    statement.setInt(1, ID_USER);
+                    statement.setLong(2, primeiro);
+                    statement.setLong(3, fim);
+                    return statement.executeUpdate();
+                }
+            });
+            System.out.println("Base de " + quantidade + " transações: " + fim + " gravadas");
+        }
+        transacaoRepository.reconciliarSaldo(ID_USER);
+    }
+
+    @Override
+    public Object carregarSaldo() throws Exception {
+        return transacaoRepository.carregarSaldo(ID_USER);
+    }
+
+    @Override
+    public Object reconciliarSaldo() throws Exception {
+        return transacaoRepository.reconciliarSaldo(ID_USER);
+    }
+
+    @Override
+    public Object pesquisar(int mes) throws Exception {
+        LocalDate inicio = PRIMEIRO_DIA.plusMonths(mes % 120);
+        FiltroTransacao filtro = new FiltroTransacao("", inicio, inicio.plusMonths(1).minusDays(1), TipoTransacao.DESPESA);
+        int total = transacaoRepository.contar(ID_USER, filtro);
+        List<Transacao> pagina = transacaoRepository.buscarPagina(ID_USER, filtro, null, 200);
+        return total + pagina.size();
+    }
+
+    @Override
+    public Object pesquisarCombinando(int indice) throws Exception {
+        int combinacao = indice & 15;
+        LocalDate inicio = PRIMEIRO_DIA.plusMonths((indice >>> 4) % 120);
+        FiltroTransacao filtro = new FiltroTransacao((combinacao & 1) != 0 ? "Compra " + (indice >>> 4) % 50 : "",
+                (combinacao & 2) != 0 ? inicio : null, (combinacao & 4) != 0 ? inicio.plusMonths(3).minusDays(1) : null,
+                (combinacao & 8) != 0 ? TipoTransacao.RECEITA : null);
+        int total = transacaoRepository.contar(ID_USER, filtro);
+        List<Transacao> pagina = transacaoRepository.buscarPagina(ID_USER, filtro, null, 200);
+        return total + pagina.size();
+    }
+
+    @Override
+    public Object inserir() throws Exception {
+        Transacao transacao = new Transacao(0, MARCA_INSERCAO, Dinheiro.de("12.34"), TipoTransacao.DESPESA, LocalDate.now());
+        transacaoRepository.inserir(ID_USER, transacao);
+        return transacao;
+    }
+
+    @Override
+    public void descartarInseridas() throws Exception {
+        List<Long> ids = buscarIds("descricao = ?", MARCA_INSERCAO);
+        if (!ids.isEmpty()) {
+            transacaoRepository.excluir(ID_USER, ids);
+        }
+    }
+
+    @Override
+    public List<Long> prepararExclusao(int quantidade) throws Exception {
+        // Descrições únicas para a detecção de duplicadas do lote não descartar nenhuma linha
+        String prefixo = MARCA_EXCLUSAO + "-" + sequencia.incrementAndGet() + "-";
+        List<Transacao> lote = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            lote.add(new Transacao(0, prefixo + i, Dinheiro.centavos(100), TipoTransacao.DESPESA, LocalDate.now()));
+        }
+        transacaoRepository.inserirLote(ID_USER, lote);
+        return buscarIds("descricao LIKE ?", prefixo + "%");
+    }
+
+    @Override
+    public Object excluir(List<Long> ids) throws Exception {
+        transacaoRepository.excluir(ID_USER, ids);
+        return ids.size();
+    }
+
+    private List<Long> buscarIds(String condicao, String valor) throws SQLException {
+        String sql = "SELECT id FROM transacoes WHERE IdUser = ? AND " + condicao;
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, ID_USER);
+                statement.setString(2, valor);
+                List<Long> ids = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    @Override
+    public Object compilarExtrato() throws Exception {
+        return JasperCompileManager.compileReport(relatorios.resolve("Extrato.jrxml").toString());
+    }
+
+    @Override
+    public Object preencherExtrato(int mes) throws Exception {
+        LocalDate inicio = PRIMEIRO_DIA.plusMonths(mes % 120);
+        try (ExtratoPreenchido extrato = servicoExtrato.preencher(ID_USER, inicio, inicio.plusMonths(1).minusDays(1), null)) {
+            return extrato.getImpressao().getPages().size();
+        }
+    }
+
+    // Mesmos dados sintéticos da base, gerados em memória; a memória retida é informada no console
+    @Override
+    public void prepararMemoria(int quantidade, boolean emColunas) {
+        long antes = memoriaEmUso();
+        Random aleatorio = new Random(42);
+        colunas = emColunas ? new TransacoesUsuario(quantidade) : null;
+        lista = emColunas ? null : new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            // Datas crescentes, como na carga do cache (ORDER BY data, id)
+            LocalDate data = PRIMEIRO_DIA.plusDays((long) i * DIAS / quantidade);
+            Transacao transacao = new Transacao(i + 1, "Compra " + aleatorio.nextInt(500),
+                    Dinheiro.centavos(aleatorio.nextInt(100_000)),
+                    i % 4 == 0 ? TipoTransacao.RECEITA : TipoTransacao.DESPESA, data);
+            if (emColunas) {
+                colunas.inserir(transacao);
+            } else {
+                lista.add(transacao);
+            }
+        }
+        long retida = memoriaEmUso() - antes;
+        System.out.printf("%nMemória retida (%s, %d transações): %.1f MB, %d bytes por transação%n",
+                emColunas ? "colunas" : "List<Transacao>", quantidade, retida / (1024.0 * 1024.0), retida / quantidade);
+    }
+
+    private static long memoriaEmUso() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Override
+    public Object somarMemoria() {
+        if (colunas != null) {
+            return colunas.somar(TransacoesUsuario.Filtro.TODAS);
+        }
+        SomaDinheiro entradas = new SomaDinheiro();
+        SomaDinheiro saidas = new SomaDinheiro();
+        for (Transacao transacao : lista) {
+            (transacao.getTipo() == TipoTransacao.RECEITA ? entradas : saidas).adicionar(transacao.getValor());
+        }
+        return new ResumoSaldo(entradas.total(), saidas.total());
+    }
+
+    // Os mesmos valores nas duas representações; só a soma e a formatação entram na medição
+    @Override
+    public void prepararValores(int quantidade) {
+        Random aleatorio = new Random(42);
+        valoresDecimais = new BigDecimal[quantidade];
+        valoresDinheiro = new Dinheiro[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            long centavos = aleatorio.nextInt(100_000) - 25_000L;
+            valoresDecimais[i] = BigDecimal.valueOf(centavos, 2);
+            valoresDinheiro[i] = Dinheiro.centavos(centavos);
+        }
+    }
+
+    @Override
+    public Object somarBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal valor : valoresDecimais) {
+            total = total.add(valor);
+        }
+        return total;
+    }
+
+    @Override
+    public Object somarDinheiro() {
+        SomaDinheiro total = new SomaDinheiro();
+        for (Dinheiro valor : valoresDinheiro) {
+            total.adicionar(valor);
+        }
+        return total.total();
+    }
+
+    // Formatação como era na tela: um DecimalFormat por chamada, já que ele não é seguro entre threads
+    @Override
+    public Object formatarDecimalFormat(int indice) {
+        return "R$ " + new DecimalFormat("#,##0.00").format(valoresDecimais[indice % valoresDecimais.length]);
+    }
+
+    @Override
+    public Object formatarDinheiro(int indice) {
+        return FormatadorDinheiro.formatarComMoeda(valoresDinheiro[indice % valoresDinheiro.length]);
+    }
+
+    @Override
+    public void prepararSenhas(int iteracoes) {
+        hashSenha = new HashSenha(iteracoes);
+        verificadorSenhas = new VerificadorSenhas(hashSenha, 1000, 10);
+        senhaGravada = hashSenha.gerar("senha-benchmark");
+        verificadorSenhas.conferir("senha-benchmark", senhaGravada);
+    }
+
+    @Override
+    public Object conferirSenha() {
+        return hashSenha.conferir("senha-benchmark", senhaGravada);
+    }
+
+    @Override
+    public Object conferirSenhaEmCache() {
+        return verificadorSenhas.conferir("senha-benchmark", senhaGravada);
+    }
+
+    @Override
+    public Object filtrarMemoria(int mes) {
+        LocalDate inicio = PRIMEIRO_DIA.plusMonths(mes % 120);
+        LocalDate fim = inicio.plusMonths(1).minusDays(1);
+        if (colunas != null) {
+            return colunas.contar(new TransacoesUsuario.Filtro(inicio, fim, TipoTransacao.DESPESA, null));
+        }
+        int quantidade = 0;
+        for (Transacao transacao : lista) {
+            if (transacao.getTipo() == TipoTransacao.DESPESA && !transacao.getData().isBefore(inicio) && !transacao.getData().isAfter(fim)) {
+                quantidade++;
+            }
+        }
+        return quantidade;
+    }
+
+    // Base, diário e índice textual ficam no diretório e são recriados a cada execução, para
+    // que os usuários simulados comecem sem histórico
+    @Override
+    public long[] exportar(Path arquivo, boolean binario, boolean compactar) throws Exception {
+        RelatorioExportacao relatorio = new ExportadorTransacoes(fabricaConexoes).exportar(ID_USER, FiltroTransacao.VAZIO,
+                binario ? FormatoExportacao.BINARIO : FormatoExportacao.CSV, compactar, arquivo, parcial -> { });
+        return new long[]{relatorio.getLinhas(), relatorio.getBytes(), relatorio.getBytesGravados()};
+    }
+
+    @Override
+    public int iniciarServidor(Path diretorio) throws Exception {
+        Path base = diretorio.toAbsolutePath().resolve("servidor");
+        apagar(base);
+        Files.createDirectories(base);
+        System.setProperty("controlefinanceiro.db.driver", "org.h2.Driver");
+        System.setProperty("controlefinanceiro.db.url", "jdbc:h2:file:" + base.resolve("controlefinanceiro") + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+        System.setProperty("controlefinanceiro.db.usuario", "sa");
+        System.setProperty("controlefinanceiro.db.senha", "");
+        System.setProperty("controlefinanceiro.diario", base.resolve("diario/lancamentos.log").toString());
+        System.setProperty("controlefinanceiro.indice", base.resolve("indice").toString());
+        System.setProperty("controlefinanceiro.sessao.expiracaoMinutos", "60");
+
+        servico = new ServicoFinanceiro(false);
+        servico.iniciar();
+        servidor = new ServidorHttp(servico, 0);
+        servidor.iniciar();
+        return servidor.getPorta();
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        if (!Files.exists(diretorio)) {
+            return;
+        }
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            for (Path arquivo : (Iterable<Path>) arquivos.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(arquivo);
+            }
+        }
+    }
+
+    @Override
+    public void encerrar() {
+        if (servidor != null) {
+            servidor.parar();
+            servico.encerrar();
+        }
+        if (fabricaConexoes != null) {
+            fabricaConexoes.fechar();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package controlefinanceiro.benchmarks;
+
+import java.nio.file.Path;
+import java.util.List;
+
+// Operações medidas pelos benchmarks. As classes do aplicativo estão no pacote padrão, que
+// não pode ser importado a partir de um pacote; a implementação (CenariosControleFinanceiro,
+// também no pacote padrão) é carregada por nome e as classes JMH falam só com esta interface.
+public interface Cenarios {
+
+    static Cenarios criar() {
+        try {
+            return (Cenarios) Class.forName("CenariosControleFinanceiro").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("CenariosControleFinanceiro não encontrado no classpath", ex);
+        }
+    }
+
+    // Abre (ou cria e popula) a base H2 com "quantidade" transações sintéticas
+    void preparar(Path diretorio, int quantidade) throws Exception;
+
+    // Caminho de atualizarSaldo: leitura do saldo acumulado
+    Object carregarSaldo() throws Exception;
+
+    // Recalcula saldo e resumo mensal varrendo todas as transações
+    Object reconciliarSaldo() throws Exception;
+
+    // Caminho de atualizarTabelaTransacoes: filtro, contagem e materialização de uma página
+    Object pesquisar(int mes) throws Exception;
+
+    // Mesmo caminho alternando as 16 combinações de filtros da tela (descrição, início, fim, tipo)
+    Object pesquisarCombinando(int indice) throws Exception;
+
+    // Caminho de inserirNoBanco: uma transação com saldo e resumo na mesma transação do banco
+    Object inserir() throws Exception;
+
+    // Remove as transações criadas por inserir(), para a base não crescer entre iterações
+    void descartarInseridas() throws Exception;
+
+    // Caminho de excluirTransacoesSelecionadas: grava "quantidade" linhas e devolve seus ids
+    List<Long> prepararExclusao(int quantidade) throws Exception;
+
+    Object excluir(List<Long> ids) throws Exception;
+
+    // Caminho de gerarRelatorioPDF: compilação do modelo e preenchimento de um mês
+    Object compilarExtrato() throws Exception;
+
+    Object preencherExtrato(int mes) throws Exception;
+
+    // Cache em colunas (TransacoesUsuario) contra uma List<Transacao> com os mesmos dados
+    void prepararMemoria(int quantidade, boolean colunas);
+
+    Object somarMemoria();
+
+    Object filtrarMemoria(int mes);
+
+    // Soma exata de valores monetários: BigDecimal imutável contra centavos em long (Dinheiro)
+    void prepararValores(int quantidade);
+
+    Object somarBigDecimal();
+
+    Object somarDinheiro();
+
+    // Valor em reais no padrão brasileiro: DecimalFormat contra FormatadorDinheiro
+    Object formatarDecimalFormat(int indice);
+
+    Object formatarDinheiro(int indice);
+
+    // Login: PBKDF2 com o custo dado contra a conferência que acerta o cache de VerificadorSenhas
+    void prepararSenhas(int iteracoes);
+
+    Object conferirSenha();
+
+    Object conferirSenhaEmCache();
+
+    // Exportação em streaming de todas as transações da base preparada:
+    // {linhas, bytes antes da compactação, bytes gravados}
+    long[] exportar(Path arquivo, boolean binario, boolean compactar) throws Exception;
+
+    // Sobe o serviço e a API HTTP sobre uma base H2 própria neste diretório e retorna a porta
+    int iniciarServidor(Path diretorio) throws Exception;
+
+    void encerrar();
+}
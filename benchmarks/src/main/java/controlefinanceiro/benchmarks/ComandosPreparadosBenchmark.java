@@ -0,0 +1,59 @@
+package controlefinanceiro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Pesquisas repetidas da tela (contagem + primeira página) com o cache de comandos preparados do
+// pool ligado e desligado (controlefinanceiro.db.pool.comandosPreparados). Os parâmetros mudam a
+// cada chamada, então o que se mede é o preparo poupado, não um resultado guardado pelo banco.
+// No H2 embutido o preparo é só análise e plano; no MySQL ainda há a ida e volta do PREPARE.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComandosPreparadosBenchmark {
+
+    @Param({"true", "false"})
+    public boolean comandosPreparados;
+
+    private Cenarios cenarios;
+    private int indice;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        System.setProperty("controlefinanceiro.db.pool.comandosPreparados", Boolean.toString(comandosPreparados));
+        cenarios = Cenarios.criar();
+        cenarios.preparar(Paths.get(System.getProperty("controlefinanceiro.benchmarks.bases", "target/bases")), 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        cenarios.encerrar();
+    }
+
+    @Benchmark
+    public Object pesquisar() throws Exception {
+        return cenarios.pesquisar(indice++);
+    }
+
+    @Benchmark
+    public Object pesquisarCombinando() throws Exception {
+        return cenarios.pesquisarCombinando(indice++);
+    }
+}
@@ -0,0 +1,60 @@
+package controlefinanceiro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Soma de um milhão de valores em BigDecimal contra Dinheiro (centavos em long) e formatação de
+// um valor com DecimalFormat contra FormatadorDinheiro. A alocação por operação aparece em
+// gc.alloc.rate.norm, com o profiler de GC que o ExecutarBenchmarks liga por padrão.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class DinheiroBenchmark {
+
+    @Param({"1000000"})
+    public int quantidade;
+
+    private Cenarios cenarios;
+    private int indice;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        cenarios = Cenarios.criar();
+        cenarios.prepararValores(quantidade);
+    }
+
+    @Benchmark
+    public Object somarBigDecimal() {
+        return cenarios.somarBigDecimal();
+    }
+
+    @Benchmark
+    public Object somarDinheiro() {
+        return cenarios.somarDinheiro();
+    }
+
+    @Benchmark
+    public Object formatarDecimalFormat() {
+        return cenarios.formatarDecimalFormat(indice++);
+    }
+
+    @Benchmark
+    public Object formatarDinheiro() {
+        return cenarios.formatarDinheiro(indice++);
+    }
+}
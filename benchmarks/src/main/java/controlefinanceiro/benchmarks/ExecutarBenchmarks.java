@@ -0,0 +1,40 @@
+package controlefinanceiro.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Ponto de entrada do benchmarks.jar: aceita as mesmas opções do JMH e, quando não informadas,
+// liga o profiler de GC (taxa de alocação) e grava o resultado em JSON para acompanhar regressões
+public class ExecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linhaComando = new CommandLineOptions(args);
+        if (linhaComando.shouldHelp() || linhaComando.shouldList() || linhaComando.shouldListProfilers()
+                || linhaComando.shouldListResultFormats() || linhaComando.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder opcoes = new OptionsBuilder().parent(linhaComando);
+        if (linhaComando.getProfilers().isEmpty()) {
+            opcoes.addProfiler(GCProfiler.class);
+        }
+        if (!linhaComando.getResult().hasValue()) {
+            Path resultados = Paths.get("resultados");
+            Files.createDirectories(resultados);
+            String nome = "benchmark-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json";
+            opcoes.resultFormat(ResultFormatType.JSON).result(resultados.resolve(nome).toString());
+        }
+        new Runner(opcoes.build()).run();
+    }
+}
@@ -0,0 +1,59 @@
+package controlefinanceiro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Custo das métricas JDBC (MetricasJdbc) nos caminhos mais curtos até o banco: o mesmo saldo e a
+// mesma página com as conexões instrumentadas e sem elas (controlefinanceiro.metricas.ativas).
+// Cada valor do parâmetro roda em um fork próprio, então a propriedade vale antes de a classe
+// de métricas ser carregada.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentacaoBenchmark {
+
+    @Param({"true", "false"})
+    public boolean metricas;
+
+    private Cenarios cenarios;
+    private int mes;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        System.setProperty("controlefinanceiro.metricas.ativas", Boolean.toString(metricas));
+        cenarios = Cenarios.criar();
+        cenarios.preparar(Paths.get(System.getProperty("controlefinanceiro.benchmarks.bases", "target/bases")), 10_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        cenarios.encerrar();
+    }
+
+    @Benchmark
+    public Object carregarSaldo() throws Exception {
+        return cenarios.carregarSaldo();
+    }
+
+    @Benchmark
+    public Object pesquisar() throws Exception {
+        return cenarios.pesquisar(mes++);
+    }
+}
@@ -0,0 +1,52 @@
+package controlefinanceiro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cache em colunas (TransacoesUsuario) contra List<Transacao>: soma do saldo e filtro de um mês.
+// A memória retida por estrutura é impressa no console durante o setup.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class MemoriaBenchmark {
+
+    @Param({"1000000"})
+    public int quantidade;
+
+    @Param({"colunas", "lista"})
+    public String estrutura;
+
+    private Cenarios cenarios;
+    private int mes;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        cenarios = Cenarios.criar();
+        cenarios.prepararMemoria(quantidade, estrutura.equals("colunas"));
+    }
+
+    @Benchmark
+    public Object somar() {
+        return cenarios.somarMemoria();
+    }
+
+    @Benchmark
+    public Object filtrarMes() {
+        return cenarios.filtrarMemoria(mes++);
+    }
+}
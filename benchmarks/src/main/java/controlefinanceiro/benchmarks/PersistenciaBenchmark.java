@@ -0,0 +1,98 @@
+package controlefinanceiro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Caminhos quentes que passam pelo banco: saldo, pesquisa paginada, inserção, exclusão e extrato.
+// Throughput e SampleTime (percentis p50/p90/p99 de latência) na mesma execução.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class PersistenciaBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int quantidade;
+
+    Cenarios cenarios;
+    private int mes;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        cenarios = Cenarios.criar();
+        cenarios.preparar(Paths.get(System.getProperty("controlefinanceiro.benchmarks.bases", "target/bases")), quantidade);
+    }
+
+    @TearDown(Level.Iteration)
+    public void descartarInseridas() throws Exception {
+        cenarios.descartarInseridas();
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        cenarios.encerrar();
+    }
+
+    @Benchmark
+    public Object carregarSaldo() throws Exception {
+        return cenarios.carregarSaldo();
+    }
+
+    @Benchmark
+    public Object reconciliarSaldo() throws Exception {
+        return cenarios.reconciliarSaldo();
+    }
+
+    @Benchmark
+    public Object pesquisar() throws Exception {
+        return cenarios.pesquisar(mes++);
+    }
+
+    @Benchmark
+    public Object inserir() throws Exception {
+        return cenarios.inserir();
+    }
+
+    @Benchmark
+    public Object excluir(Exclusao exclusao) throws Exception {
+        return cenarios.excluir(exclusao.ids);
+    }
+
+    @Benchmark
+    public Object compilarExtrato() throws Exception {
+        return cenarios.compilarExtrato();
+    }
+
+    @Benchmark
+    public Object preencherExtrato() throws Exception {
+        return cenarios.preencherExtrato(mes++);
+    }
+
+    // Cada exclusão recebe um lote recém-gravado, preparado fora do tempo medido
+    @State(Scope.Thread)
+    public static class Exclusao {
+        List<Long> ids;
+
+        @Setup(Level.Invocation)
+        public void preparar(PersistenciaBenchmark benchmark) throws Exception {
+            ids = benchmark.cenarios.prepararExclusao(100);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package controlefinanceiro.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Escolha do custo do hash de senha (controlefinanceiro.senha.iteracoes): latência de uma
+// conferência PBKDF2 com logins simultâneos em todos os núcleos, para comparar o p99 de cada
+// custo com o tempo aceitável de login. conferirEmCache é o login repetido que acerta o cache.
+// Outros custos ou concorrência: -p iteracoes=... -t ...
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(Threads.MAX)
+public class SenhaBenchmark {
+
+    @Param({"100000", "210000", "600000"})
+    public int iteracoes;
+
+    private Cenarios cenarios;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        cenarios = Cenarios.criar();
+        cenarios.prepararSenhas(iteracoes);
+    }
+
+    @Benchmark
+    public Object conferir() {
+        return cenarios.conferirSenha();
+    }
+
+    @Benchmark
+    public Object conferirEmCache() {
+        return cenarios.conferirSenhaEmCache();
+    }
+}
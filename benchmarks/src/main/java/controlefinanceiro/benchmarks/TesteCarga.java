@@ -0,0 +1,242 @@
+package controlefinanceiro.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Teste de carga da API HTTP com usuários simulados. Em cada nível de concorrência (1, 2, 4...
+// até o dobro dos núcleos) cada usuário cria a própria conta, entra e repete saldo, listagem e
+// registro de transação durante um tempo fixo; latências e contadores ficam no próprio usuário
+// e só são juntados no fim. Depois, confere que o saldo de cada um é exatamente o que ele mesmo
+// registrou, o que falharia se algum estado vazasse entre sessões.
+//
+// Sem "--url" o servidor sobe neste processo sobre uma base H2 (Cenarios.iniciarServidor), então
+// cliente e servidor dividem os núcleos. Opções: --url, --segundos, --aquecimento, --niveis 1,2,4
+public class TesteCarga {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String url = opcao(args, "--url", null);
+        int segundos = Integer.parseInt(opcao(args, "--segundos", "10"));
+        int aquecimento = Integer.parseInt(opcao(args, "--aquecimento", "3"));
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        int[] niveis = niveis(opcao(args, "--niveis", null), nucleos);
+
+        Cenarios cenarios = null;
+        if (url == null) {
+            // Conexões suficientes para o nível mais alto não esperar pelo pool
+            int conexoes = Arrays.stream(niveis).max().orElse(1);
+            System.setProperty("controlefinanceiro.db.pool.maximo", System.getProperty("controlefinanceiro.db.pool.maximo", String.valueOf(conexoes)));
+            System.setProperty("controlefinanceiro.db.pool.maximoOciosas", System.getProperty("controlefinanceiro.db.pool.maximoOciosas", String.valueOf(conexoes)));
+            cenarios = Cenarios.criar();
+            Path diretorio = Paths.get(System.getProperty("controlefinanceiro.benchmarks.bases", "bases"));
+            url = "http://localhost:" + cenarios.iniciarServidor(diretorio);
+        }
+
+        HttpClient cliente = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        System.out.printf("Servidor %s, %d núcleos, %d s de medição por nível (%d s de aquecimento)%n", url, nucleos, segundos, aquecimento);
+        System.out.printf("%8s %10s %9s %9s %7s %8s %12s%n", "usuários", "req/s", "p50 ms", "p99 ms", "erros", "escala", "saldos ok");
+
+        double base = 0;
+        try {
+            for (int nivel : niveis) {
+                ResultadoNivel resultado = executarNivel(cliente, url, nivel, aquecimento, segundos);
+                if (base == 0) {
+                    base = resultado.porSegundo;
+                }
+                System.out.printf("%8d %10.0f %9.2f %9.2f %7d %7.2fx %12s%n", nivel, resultado.porSegundo,
+                        resultado.percentil(0.50), resultado.percentil(0.99), resultado.erros,
+                        resultado.porSegundo / base, resultado.saldosCorretos + "/" + nivel);
+            }
+        } finally {
+            if (cenarios != null) {
+                cenarios.encerrar();
+            }
+        }
+    }
+
+    private static ResultadoNivel executarNivel(HttpClient cliente, String url, int quantidade, int aquecimento, int segundos) throws Exception {
+        List<UsuarioSimulado> usuarios = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            UsuarioSimulado usuario = new UsuarioSimulado(cliente, url, "carga-" + System.nanoTime() + "-" + i);
+            usuario.entrar();
+            usuarios.add(usuario);
+        }
+
+        long inicioMedicao = System.nanoTime() + aquecimento * 1_000_000_000L;
+        long fim = inicioMedicao + segundos * 1_000_000_000L;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> execucoes = new ArrayList<>();
+            for (UsuarioSimulado usuario : usuarios) {
+                execucoes.add(executor.submit(() -> usuario.executar(inicioMedicao, fim)));
+            }
+            for (Future<?> execucao : execucoes) {
+                execucao.get();
+            }
+        }
+
+        ResultadoNivel resultado = new ResultadoNivel();
+        for (UsuarioSimulado usuario : usuarios) {
+            resultado.juntar(usuario);
+            if (usuario.conferirSaldo()) {
+                resultado.saldosCorretos++;
+            }
+        }
+        resultado.porSegundo = resultado.quantidade / (double) segundos;
+        return resultado;
+    }
+
+    // Estado confinado à thread do usuário enquanto o nível roda
+    private static class UsuarioSimulado {
+        private final HttpClient cliente;
+        private final String url;
+        private final String nome;
+        private String token;
+        private long[] latencias = new long[1024];
+        private int medidas;
+        private int erros;
+        private BigDecimal entradas = BigDecimal.ZERO;
+        private BigDecimal saidas = BigDecimal.ZERO;
+
+        UsuarioSimulado(HttpClient cliente, String url, String nome) {
+            this.cliente = cliente;
+            this.url = url;
+            this.nome = nome;
+        }
+
+        void entrar() throws Exception {
+            String credenciais = "{\"nome\":\"" + nome + "\",\"senha\":\"carga\"}";
+            enviar(HttpRequest.newBuilder(URI.create(url + "/api/usuarios")).POST(HttpRequest.BodyPublishers.ofString(credenciais)), 201);
+            String resposta = enviar(HttpRequest.newBuilder(URI.create(url + "/api/sessoes")).POST(HttpRequest.BodyPublishers.ofString(credenciais)), 201);
+            token = JSON.readTree(resposta).get("token").asText();
+        }
+
+        void executar(long inicioMedicao, long fim) {
+            int iteracao = 0;
+            while (System.nanoTime() < fim) {
+                medir(inicioMedicao, () -> enviar(autenticado("/api/saldo").GET(), 200));
+                medir(inicioMedicao, () -> enviar(autenticado("/api/transacoes?limite=50").GET(), 200));
+                boolean receita = iteracao++ % 2 == 0;
+                BigDecimal valor = new BigDecimal(receita ? "10.00" : "3.25");
+                String corpo = "{\"descricao\":\"carga " + iteracao + "\",\"valor\":\"" + valor + "\",\"tipo\":\"" + (receita ? "RECEITA" : "DESPESA") + "\"}";
+                if (medir(inicioMedicao, () -> enviar(autenticado("/api/transacoes").POST(HttpRequest.BodyPublishers.ofString(corpo)), 202))) {
+                    if (receita) {
+                        entradas = entradas.add(valor);
+                    } else {
+                        saidas = saidas.add(valor);
+                    }
+                }
+            }
+        }
+
+        // A fila de gravação entra no saldo de forma otimista; a troca de um lote da fila para o
+        // banco pode ser vista no meio, então a conferência tenta de novo por alguns instantes
+        boolean conferirSaldo() throws Exception {
+            for (int tentativa = 0; tentativa < 50; tentativa++) {
+                JsonNode saldo = JSON.readTree(enviar(autenticado("/api/saldo").GET(), 200));
+                if (saldo.get("entradas").decimalValue().compareTo(entradas) == 0
+                        && saldo.get("saidas").decimalValue().compareTo(saidas) == 0) {
+                    return true;
+                }
+                Thread.sleep(100);
+            }
+            return false;
+        }
+
+        private interface Requisicao {
+            void executar() throws Exception;
+        }
+
+        private boolean medir(long inicioMedicao, Requisicao requisicao) {
+            long inicio = System.nanoTime();
+            try {
+                requisicao.executar();
+            } catch (Exception ex) {
+                if (inicio >= inicioMedicao) {
+                    erros++;
+                }
+                return false;
+            }
+            if (inicio >= inicioMedicao) {
+                if (medidas == latencias.length) {
+                    latencias = Arrays.copyOf(latencias, medidas * 2);
+                }
+                latencias[medidas++] = System.nanoTime() - inicio;
+            }
+            return true;
+        }
+
+        private HttpRequest.Builder autenticado(String caminho) {
+            return HttpRequest.newBuilder(URI.create(url + caminho)).header("Authorization", "Bearer " + token);
+        }
+
+        private String enviar(HttpRequest.Builder requisicao, int statusEsperado) throws Exception {
+            HttpResponse<String> resposta = cliente.send(requisicao.header("Content-Type", "application/json").build(), HttpResponse.BodyHandlers.ofString());
+            if (resposta.statusCode() != statusEsperado) {
+                throw new IllegalStateException("HTTP " + resposta.statusCode() + ": " + resposta.body());
+            }
+            return resposta.body();
+        }
+    }
+
+    private static class ResultadoNivel {
+        private long[] latencias = new long[0];
+        private int quantidade;
+        private int erros;
+        private int saldosCorretos;
+        private double porSegundo;
+
+        void juntar(UsuarioSimulado usuario) {
+            latencias = Arrays.copyOf(latencias, quantidade + usuario.medidas);
+            System.arraycopy(usuario.latencias, 0, latencias, quantidade, usuario.medidas);
+            quantidade += usuario.medidas;
+            erros += usuario.erros;
+        }
+
+        double percentil(double fracao) {
+            if (quantidade == 0) {
+                return 0;
+            }
+            long[] ordenadas = Arrays.copyOf(latencias, quantidade);
+            Arrays.sort(ordenadas);
+            return ordenadas[Math.min(quantidade - 1, (int) (fracao * quantidade))] / 1_000_000.0;
+        }
+    }
+
+    private static int[] niveis(String informados, int nucleos) {
+        if (informados != null) {
+            return Arrays.stream(informados.split(",")).mapToInt(nivel -> Integer.parseInt(nivel.trim())).toArray();
+        }
+        List<Integer> niveis = new ArrayList<>();
+        for (int nivel = 1; nivel < 2 * nucleos; nivel *= 2) {
+            niveis.add(nivel);
+        }
+        niveis.add(2 * nucleos);
+        return niveis.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String opcao(String[] args, String nome, String padrao) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(nome)) {
+                return args[i + 1];
+            }
+        }
+        return padrao;
+    }
+}
@@ -0,0 +1,79 @@
+package controlefinanceiro.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Vazão da exportação em streaming (ExportadorTransacoes) sobre a base H2 dos benchmarks, em CSV e
+// no formato binário, com e sem gzip. Além de MB/s, imprime o pico de heap de cada variante: com
+// -Xmx pequeno (por exemplo -Xmx128m) a exportação de 10 milhões de transações precisa terminar,
+// já que só blocos de tamanho fixo ficam em memória.
+//
+// Opções: --quantidade (padrão 10000000), --destino (padrão o diretório das bases)
+public class TesteExportacao {
+
+    public static void main(String[] args) throws Exception {
+        int quantidade = Integer.parseInt(opcao(args, "--quantidade", "10000000"));
+        Path bases = Paths.get(System.getProperty("controlefinanceiro.benchmarks.bases", "bases"));
+        Path destino = Paths.get(opcao(args, "--destino", bases.toString()));
+        Files.createDirectories(destino);
+
+        Cenarios cenarios = Cenarios.criar();
+        try {
+            cenarios.preparar(bases, quantidade);
+            cenarios.exportar(destino.resolve("aquecimento.csv"), false, false); // Aquecimento e cache de páginas do banco
+            Files.deleteIfExists(destino.resolve("aquecimento.csv"));
+
+            System.out.printf("%n%-8s %5s %12s %10s %12s %8s %8s %12s%n",
+                    "formato", "gzip", "linhas", "MB", "MB gravados", "s", "MB/s", "heap pico MB");
+            for (boolean binario : new boolean[]{false, true}) {
+                for (boolean compactar : new boolean[]{false, true}) {
+                    Path arquivo = destino.resolve("exportacao." + (binario ? "cftx" : "csv") + (compactar ? ".gz" : ""));
+                    zerarPicoHeap();
+                    long inicio = System.nanoTime();
+                    long[] resultado = cenarios.exportar(arquivo, binario, compactar);
+                    double segundos = (System.nanoTime() - inicio) / (double) TimeUnit.SECONDS.toNanos(1);
+                    System.out.printf("%-8s %5s %12d %10.1f %12.1f %8.2f %8.1f %12.1f%n",
+                            binario ? "binário" : "csv", compactar ? "sim" : "não", resultado[0],
+                            resultado[1] / 1_048_576.0, resultado[2] / 1_048_576.0, segundos,
+                            resultado[1] / 1_048_576.0 / segundos, picoHeap() / 1_048_576.0);
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        } finally {
+            cenarios.encerrar();
+        }
+    }
+
+    private static void zerarPicoHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long picoHeap() {
+        long pico = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pico += pool.getPeakUsage().getUsed();
+            }
+        }
+        return pico;
+    }
+
+    private static String opcao(String[] args, String nome, String padrao) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(nome)) {
+                return args[i + 1];
+            }
+        }
+        return padrao;
+    }
+}
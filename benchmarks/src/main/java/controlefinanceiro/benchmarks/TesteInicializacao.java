@@ -0,0 +1,177 @@
+package controlefinanceiro.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Tempo de partida do aplicativo empacotado, medido de fora em processos novos (partida a frio
+// da JVM): até o servidor atender a primeira requisição, o equivalente sem tela da tela de login,
+// e até o primeiro saldo (login e GET /api/saldo). Cada variante, sem e com o arquivo AppCDS
+// gerado pelo build, roda várias vezes de forma alternada; imprime mediana e mínimo.
+// A interface gráfica imprime as mesmas etapas (tela de login, serviço pronto, primeiro saldo)
+// quando iniciada com -Dcontrolefinanceiro.inicializacao.relatorio=true.
+//
+// Opções: --jar (padrão ../target/ControleFinanceiro-1.0-SNAPSHOT.jar), --cds (padrão o .jsa ao
+// lado do jar), --repeticoes
+public class TesteInicializacao {
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String CREDENCIAIS = "{\"nome\":\"inicializacao\",\"senha\":\"inicializacao\"}";
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Paths.get(opcao(args, "--jar", "../target/ControleFinanceiro-1.0-SNAPSHOT.jar")).toAbsolutePath();
+        Path cds = Paths.get(opcao(args, "--cds", jar.resolveSibling("ControleFinanceiro.jsa").toString())).toAbsolutePath();
+        int repeticoes = Integer.parseInt(opcao(args, "--repeticoes", "5"));
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("Aplicativo não encontrado: " + jar + " (rode mvn package na raiz)");
+        }
+        Path diretorio = Paths.get(System.getProperty("controlefinanceiro.benchmarks.bases", "bases")).resolve("inicializacao").toAbsolutePath();
+        Files.createDirectories(diretorio);
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // Partida não medida: migra a base e cadastra o usuário
+        Partida preparo = new Partida(jar, null, diretorio);
+        try {
+            preparo.aguardarServidor(cliente);
+            cliente.send(HttpRequest.newBuilder(preparo.uri("/api/usuarios")).POST(HttpRequest.BodyPublishers.ofString(CREDENCIAIS)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+        } finally {
+            preparo.encerrar();
+        }
+
+        boolean comCds = Files.exists(cds);
+        if (!comCds) {
+            System.out.println("Arquivo AppCDS não encontrado (" + cds + "); medindo só a partida sem ele");
+        }
+        List<long[]> semArquivo = new ArrayList<>();
+        List<long[]> comArquivo = new ArrayList<>();
+        for (int i = 0; i < repeticoes; i++) {
+            semArquivo.add(medir(cliente, new Partida(jar, null, diretorio)));
+            if (comCds) {
+                comArquivo.add(medir(cliente, new Partida(jar, cds, diretorio)));
+            }
+        }
+
+        System.out.printf("%n%-10s %22s %22s%n", "", "servidor pronto (ms)", "primeiro saldo (ms)");
+        System.out.printf("%-10s %11s %10s %11s %10s%n", "variante", "mediana", "mínimo", "mediana", "mínimo");
+        imprimir("sem CDS", semArquivo);
+        if (comCds) {
+            imprimir("com CDS", comArquivo);
+        }
+    }
+
+    // Tempos desde o lançamento do processo: {servidor pronto, primeiro saldo}, em ms
+    private static long[] medir(HttpClient cliente, Partida partida) throws Exception {
+        try {
+            long pronto = partida.aguardarServidor(cliente);
+            HttpResponse<String> sessao = cliente.send(HttpRequest.newBuilder(partida.uri("/api/sessoes"))
+                    .POST(HttpRequest.BodyPublishers.ofString(CREDENCIAIS)).build(), HttpResponse.BodyHandlers.ofString());
+            if (sessao.statusCode() != 201) {
+                throw new IllegalStateException("Login falhou: HTTP " + sessao.statusCode() + " " + sessao.body());
+            }
+            String token = JSON.readTree(sessao.body()).get("token").asText();
+            HttpResponse<String> saldo = cliente.send(HttpRequest.newBuilder(partida.uri("/api/saldo"))
+                    .header("Authorization", "Bearer " + token).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (saldo.statusCode() != 200) {
+                throw new IllegalStateException("Saldo falhou: HTTP " + saldo.statusCode() + " " + saldo.body());
+            }
+            return new long[]{pronto, partida.decorrido()};
+        } finally {
+            partida.encerrar();
+        }
+    }
+
+    private static void imprimir(String variante, List<long[]> medidas) {
+        System.out.printf("%-10s %11d %10d %11d %10d%n", variante,
+                mediana(medidas, 0), medidas.stream().mapToLong(medida -> medida[0]).min().orElse(0),
+                mediana(medidas, 1), medidas.stream().mapToLong(medida -> medida[1]).min().orElse(0));
+    }
+
+    private static long mediana(List<long[]> medidas, int indice) {
+        long[] valores = medidas.stream().mapToLong(medida -> medida[indice]).sorted().toArray();
+        return valores.length == 0 ? 0 : valores[valores.length / 2];
+    }
+
+    // Um processo do aplicativo em modo servidor sobre a base H2 do diretório
+    private static class Partida {
+        private final int porta;
+        private final long inicio;
+        private final Process processo;
+
+        Partida(Path jar, Path cds, Path diretorio) throws IOException {
+            try (ServerSocket livre = new ServerSocket(0)) {
+                porta = livre.getLocalPort();
+            }
+            List<String> comando = new ArrayList<>();
+            comando.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            if (cds != null) {
+                comando.add("-XX:SharedArchiveFile=" + cds);
+            }
+            comando.addAll(Arrays.asList(
+                    "-Duser.home=" + diretorio.resolve("home"),
+                    "-Dcontrolefinanceiro.db.driver=org.h2.Driver",
+                    "-Dcontrolefinanceiro.db.url=jdbc:h2:file:" + diretorio.resolve("controlefinanceiro") + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                    "-Dcontrolefinanceiro.db.usuario=sa",
+                    "-Dcontrolefinanceiro.db.senha=",
+                    "-Dcontrolefinanceiro.servidor.porta=" + porta,
+                    "-jar", jar.toString(), "--servidor"));
+            ProcessBuilder construtor = new ProcessBuilder(comando)
+                    .directory(jar.getParent().getParent().toFile()) // Raiz do projeto, onde fica Relatorios
+                    .redirectErrorStream(true)
+                    .redirectOutput(diretorio.resolve("aplicativo.log").toFile());
+            inicio = System.nanoTime();
+            processo = construtor.start();
+        }
+
+        URI uri(String caminho) {
+            return URI.create("http://localhost:" + porta + caminho);
+        }
+
+        long decorrido() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        }
+
+        // Qualquer resposta HTTP (aqui 401, sem sessão) indica que o servidor já atende
+        long aguardarServidor(HttpClient cliente) throws Exception {
+            while (true) {
+                try {
+                    cliente.send(HttpRequest.newBuilder(uri("/api/saldo")).GET().build(), HttpResponse.BodyHandlers.discarding());
+                    return decorrido();
+                } catch (IOException ex) {
+                    if (!processo.isAlive()) {
+                        throw new IllegalStateException("O aplicativo terminou durante a partida; veja aplicativo.log", ex);
+                    }
+                    Thread.sleep(2);
+                }
+            }
+        }
+
+        // SIGTERM: o gancho de desligamento fecha o banco antes da próxima partida
+        void encerrar() throws InterruptedException {
+            processo.destroy();
+            if (!processo.waitFor(30, TimeUnit.SECONDS)) {
+                processo.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static String opcao(String[] args, String nome, String padrao) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(nome)) {
+                return args[i + 1];
+            }
+        }
+        return padrao;
+    }
+}
@@ -0,0 +1,112 @@
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Relatórios Jasper compilados, mantidos em memória e gravados como .jasper ao lado do .jrxml.
+// O .jrxml só é recompilado quando é mais novo que o .jasper; um WatchService sobre o
+// diretório descarta da memória os modelos alterados, que são recompilados no próximo uso.
+class CacheRelatorios {
+    private final Path diretorio;
+    private final Map<String, JasperReport> compilados = new ConcurrentHashMap<>();
+    private final Map<String, Object> travas = new ConcurrentHashMap<>();
+
+    public CacheRelatorios(Path diretorio) {
+        this.diretorio = diretorio;
+        observarAlteracoes();
+    }
+
+    // Modelo compilado pelo nome, sem extensão (ex.: "Extrato")
+    public JasperReport obter(String nome) throws JRException {
+        JasperReport relatorio = compilados.get(nome);
+        if (relatorio != null) {
+            return relatorio;
+        }
+        // Uma compilação por modelo de cada vez; modelos diferentes compilam em paralelo
+        synchronized (travas.computeIfAbsent(nome, n -> new Object())) {
+            relatorio = compilados.get(nome);
+            if (relatorio == null) {
+                relatorio = carregarOuCompilar(nome);
+                compilados.put(nome, relatorio);
+            }
+            return relatorio;
+        }
+    }
+
+    // Compila antecipadamente, para que o primeiro clique já encontre o modelo pronto
+    public void precompilar(String... nomes) {
+        for (String nome : nomes) {
+            try {
+                obter(nome);
+            } catch (JRException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private JasperReport carregarOuCompilar(String nome) throws JRException {
+        Path fonte = diretorio.resolve(nome + ".jrxml");
+        Path compilado = diretorio.resolve(nome + ".jasper");
+        try {
+            if (Files.exists(compilado) && (!Files.exists(fonte)
+                    || Files.getLastModifiedTime(compilado).compareTo(Files.getLastModifiedTime(fonte)) >= 0)) {
+                return (JasperReport) JRLoader.loadObject(compilado.toFile());
+            }
+        } catch (IOException ex) {
+            // Sem como comparar as datas: recompila a partir do .jrxml
+        }
+
+        JasperReport relatorio = JasperCompileManager.compileReport(fonte.toString());
+        try {
+            JRSaver.saveObject(relatorio, compilado.toFile());
+        } catch (JRException ex) {
+            // Diretório somente leitura: o modelo continua disponível em memória
+            ex.printStackTrace();
+        }
+        return relatorio;
+    }
+
+    private void observarAlteracoes() {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            diretorio.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ex) {
+            // Sem observação de arquivos: o modelo compilado fica em memória até o fim da execução
+            ex.printStackTrace();
+            return;
+        }
+
+        Thread observador = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey chave = watchService.take();
+                    for (WatchEvent<?> evento : chave.pollEvents()) {
+                        String arquivo = String.valueOf(evento.context());
+                        if (arquivo.endsWith(".jrxml")) {
+                            compilados.remove(arquivo.substring(0, arquivo.length() - ".jrxml".length()));
+                        }
+                    }
+                    chave.reset();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                // Encerrado junto com a aplicação
+            }
+        }, "observador-relatorios");
+        observador.setDaemon(true);
+        observador.start();
+    }
+}
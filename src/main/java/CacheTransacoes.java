@@ -0,0 +1,125 @@
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache em memória das transações dos usuários logados, limitado pelo total de transações
+// guardadas (os usuários menos usados saem primeiro). É preenchido no login, recebe as
+// inserções por write-through e responde às consultas da tela quando o filtro não depende
+// de texto livre; nos demais casos o repositório consulta o banco. Gravações de outros clientes
+// no mesmo banco não passam por aqui: o repositório confere o cache com o livro-razão.
+class CacheTransacoes {
+    private final long capacidade;
+    private final Cache<Integer, TransacoesUsuario> usuarios;
+    private final AtomicLong consultasNoCache = new AtomicLong();
+    private final AtomicLong consultasNoBanco = new AtomicLong();
+    // Contador de alterações por usuário: um carregamento lido antes de uma alteração
+    // concorrente é descartado em vez de esconder a alteração
+    private final ConcurrentHashMap<Integer, AtomicLong> versoes = new ConcurrentHashMap<>();
+
+    public CacheTransacoes() {
+        this(Long.getLong("controlefinanceiro.cache.maximoTransacoes", 200_000));
+    }
+
+    public CacheTransacoes(long capacidade) {
+        this.capacidade = capacidade;
+        this.usuarios = CacheBuilder.newBuilder()
+                // Um único segmento: com vários, cada um teria só uma fração da capacidade e um
+                // histórico que cabe() seria removido logo ao entrar
+                .concurrencyLevel(1)
+                .maximumWeight(capacidade)
+                .weigher((Integer idUser, TransacoesUsuario dados) -> dados.tamanho())
+                .recordStats()
+                .build();
+    }
+
+    // Históricos maiores que a capacidade nunca são carregados
+    public boolean cabe(int quantidade) {
+        return quantidade <= capacidade;
+    }
+
+    public long versao(int idUser) {
+        return versoes.computeIfAbsent(idUser, chave -> new AtomicLong()).get();
+    }
+
+    // Carrega só se nenhuma alteração do usuário aconteceu desde versao(); false quando descartado
+    public boolean carregar(int idUser, TransacoesUsuario dados, long versaoLida) {
+        boolean[] carregado = new boolean[1];
+        versoes.compute(idUser, (chave, versao) -> {
+            if (versao != null && versao.get() == versaoLida) {
+                usuarios.put(idUser, dados);
+                carregado[0] = true;
+            }
+            return versao;
+        });
+        return carregado[0];
+    }
+
+    private void alterar(int idUser) {
+        versoes.computeIfAbsent(idUser, chave -> new AtomicLong()).incrementAndGet();
+    }
+
+    public TransacoesUsuario obter(int idUser) {
+        return usuarios.getIfPresent(idUser);
+    }
+
+    public void inserir(int idUser, List<Transacao> transacoes) {
+        alterar(idUser);
+        TransacoesUsuario dados = usuarios.getIfPresent(idUser);
+        if (dados != null) {
+            for (Transacao transacao : transacoes) {
+                dados.inserir(transacao);
+            }
+            repesar(idUser, dados);
+        }
+    }
+
+    public void remover(int idUser, Collection<Long> ids) {
+        alterar(idUser);
+        TransacoesUsuario dados = usuarios.getIfPresent(idUser);
+        if (dados != null) {
+            dados.remover(ids);
+            repesar(idUser, dados);
+        }
+    }
+
+    // O peso só é calculado na entrada; regravar a mesma instância o atualiza depois das
+    // alterações (e remove o usuário se passou da capacidade). Não recoloca quem saiu nesse meio-tempo
+    private void repesar(int idUser, TransacoesUsuario dados) {
+        usuarios.asMap().replace(idUser, dados, dados);
+    }
+
+    public void invalidar(int idUser) {
+        alterar(idUser);
+        usuarios.invalidate(idUser);
+    }
+
+    // Converte o filtro da tela; null quando ele só pode ser respondido pelo banco
+    public TransacoesUsuario.Filtro converter(FiltroTransacao filtro) {
+        if (!filtro.getDescricao().isEmpty()) {
+            return null; // LIKE sem índice textual fica com o banco
+        }
+        Set<Long> ids = filtro.restringeIds() ? new HashSet<>(filtro.getIds()) : null;
+        return new TransacoesUsuario.Filtro(filtro.getDataInicio(), filtro.getDataFim(), filtro.getTipo(), ids);
+    }
+
+    void registrarConsulta(boolean noCache) {
+        (noCache ? consultasNoCache : consultasNoBanco).incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = usuarios.stats();
+        long noCache = consultasNoCache.get();
+        long total = noCache + consultasNoBanco.get();
+        return String.format("usuários=%d consultas no cache=%d de %d (%.1f%%) acertos=%d falhas=%d remoções=%d",
+                usuarios.size(), noCache, total, total == 0 ? 0 : 100.0 * noCache / total,
+                stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+}
@@ -0,0 +1,20 @@
+import java.time.LocalDate;
+
+// Posição de uma transação na ordenação (data, id) usada pela paginação por chave
+class ChaveTransacao {
+    private final LocalDate data;
+    private final long id;
+
+    public ChaveTransacao(LocalDate data, long id) {
+        this.data = data;
+        this.id = id;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
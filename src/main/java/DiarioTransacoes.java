@@ -0,0 +1,158 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Diário append-only dos lançamentos feitos na tela. Cada lançamento é gravado (e sincronizado
+// no disco) antes de a tela confirmar o registro; depois de chegar ao banco recebe uma linha de
+// confirmação. Na inicialização, os lançamentos sem confirmação voltam para a fila de envio.
+// Os que o banco recusa de forma definitiva vão para um arquivo ao lado, "rejeitados-<nome>",
+// com o motivo, e recebem a confirmação aqui para não voltarem à fila.
+//
+// Um lançamento cujo registro falhou ao sincronizar recebe uma linha de cancelamento, que na
+// inicialização tem o mesmo efeito da confirmação.
+//
+// Formato, uma linha por registro, campos separados por tabulação:
+//   L  chave  idUser  tipo  valor  data  descricao
+//   C  chave
+//   X  chave
+// No arquivo de rejeitados: R  chave  idUser  tipo  valor  data  descricao  motivo
+//
+// As escritas não são sincronizadas uma a uma: quem escreve chama sincronizar(), que pode
+// atender várias escritas de uma vez (GravadorTransacoes faz o commit em grupo).
+class DiarioTransacoes implements Closeable {
+    private final Path arquivo;
+    private final Path arquivoRejeitados;
+    private final FileChannel canal;
+
+    public DiarioTransacoes(Path arquivo) throws IOException {
+        this.arquivo = arquivo;
+        this.arquivoRejeitados = arquivo.resolveSibling("rejeitados-" + arquivo.getFileName());
+        Files.createDirectories(arquivo.getParent());
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    public Path getArquivoRejeitados() {
+        return arquivoRejeitados;
+    }
+
+    // Lançamentos sem confirmação, na ordem em que foram registrados
+    public List<LancamentoPendente> pendentes() throws IOException {
+        Map<String, LancamentoPendente> pendentes = new LinkedHashMap<>();
+        try (BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                String[] campos = linha.split("\t", -1);
+                if ((campos[0].equals("C") || campos[0].equals("X")) && campos.length == 2) {
+                    pendentes.remove(campos[1]);
+                } else if (campos[0].equals("L") && campos.length == 7) {
+                    try {
+                        Transacao transacao = new Transacao(0, desescapar(campos[6]), Dinheiro.de(campos[4]),
+                                TipoTransacao.valueOf(campos[3]), LocalDate.parse(campos[5]));
+                        pendentes.put(campos[1], new LancamentoPendente(campos[1], Integer.parseInt(campos[2]), transacao));
+                    } catch (RuntimeException ex) {
+                        System.err.println("Linha ignorada no diário " + arquivo + ": " + linha);
+                    }
+                }
+                // Uma linha incompleta no fim vem de uma gravação interrompida, que a tela não chegou a confirmar
+            }
+        }
+        return new ArrayList<>(pendentes.values());
+    }
+
+    // Acrescenta o lançamento; ele só está seguro depois de sincronizar()
+    public void registrar(LancamentoPendente lancamento) throws IOException {
+        gravar(canal, linha("L", lancamento) + "\n");
+    }
+
+    // Leva ao disco tudo o que foi escrito antes da chamada. Pode rodar junto com novas escritas
+    public void sincronizar() throws IOException {
+        canal.force(false);
+    }
+
+    // Confirmações não são sincronizadas: se uma se perder, o lançamento é reenviado na próxima
+    // inicialização e o banco o ignora pela chave de cliente
+    public void confirmar(List<LancamentoPendente> lancamentos) throws IOException {
+        StringBuilder linhas = new StringBuilder();
+        for (LancamentoPendente lancamento : lancamentos) {
+            linhas.append("C\t").append(lancamento.getChave()).append('\n');
+        }
+        gravar(canal, linhas.toString());
+    }
+
+    // Desfaz um registro que não chegou a ser aceito; só vale depois de sincronizar()
+    public void cancelar(LancamentoPendente lancamento) throws IOException {
+        gravar(canal, "X\t" + lancamento.getChave() + "\n");
+    }
+
+    // Guarda o lançamento recusado, já sincronizado, no arquivo de rejeitados. Quem chama ainda
+    // deve confirmá-lo neste diário
+    public void rejeitar(LancamentoPendente lancamento, String motivo) throws IOException {
+        try (FileChannel rejeitados = FileChannel.open(arquivoRejeitados, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            gravar(rejeitados, linha("R", lancamento) + "\t" + escapar(String.valueOf(motivo)) + "\n");
+            rejeitados.force(false);
+        }
+    }
+
+    public long contarRejeitados() throws IOException {
+        if (!Files.exists(arquivoRejeitados)) {
+            return 0;
+        }
+        try (Stream<String> linhas = Files.lines(arquivoRejeitados, StandardCharsets.UTF_8)) {
+            return linhas.filter(linha -> linha.startsWith("R\t")).count();
+        }
+    }
+
+    // Descarta o conteúdo; só deve ser chamado quando não há nenhum lançamento pendente
+    public void esvaziar() throws IOException {
+        canal.truncate(0);
+    }
+
+    private static String linha(String registro, LancamentoPendente lancamento) {
+        Transacao transacao = lancamento.getTransacao();
+        return registro + "\t" + lancamento.getChave() + "\t" + lancamento.getIdUser() + "\t" + transacao.getTipo().name() + "\t"
+                + transacao.getValor() + "\t" + transacao.getData() + "\t" + escapar(transacao.getDescricao());
+    }
+
+    private static void gravar(FileChannel destino, String texto) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            destino.write(buffer);
+        }
+    }
+
+    private static String escapar(String texto) {
+        return texto.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String desescapar(String texto) {
+        StringBuilder resultado = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char caractere = texto.charAt(i);
+            if (caractere == '\\' && i + 1 < texto.length()) {
+                char seguinte = texto.charAt(++i);
+                resultado.append(seguinte == 't' ? '\t' : seguinte == 'n' ? '\n' : seguinte == 'r' ? '\r' : seguinte);
+            } else {
+                resultado.append(caractere);
+            }
+        }
+        return resultado.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
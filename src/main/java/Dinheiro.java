@@ -0,0 +1,125 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Valor monetário exato, em centavos. A coluna valor é DECIMAL(15,2), então qualquer valor
+// gravado cabe em um long; só somas que estourariam o long passam a usar BigDecimal, sem
+// perder precisão. Imutável e seguro entre threads, como BigDecimal.
+final class Dinheiro implements Comparable<Dinheiro> {
+    static final Dinheiro ZERO = new Dinheiro(0, null);
+
+    private static final BigDecimal MINIMO_CENTAVOS = BigDecimal.valueOf(Long.MIN_VALUE, 2);
+    private static final BigDecimal MAXIMO_CENTAVOS = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+
+    private final long centavos;
+    private final BigDecimal excedente; // Não nulo só quando o valor não cabe em centavos long; escala 2
+
+    private Dinheiro(long centavos, BigDecimal excedente) {
+        this.centavos = centavos;
+        this.excedente = excedente;
+    }
+
+    static Dinheiro centavos(long centavos) {
+        return centavos == 0 ? ZERO : new Dinheiro(centavos, null);
+    }
+
+    // Arredonda para centavos como a coluna DECIMAL(15,2)
+    static Dinheiro de(BigDecimal valor) {
+        BigDecimal arredondado = valor.setScale(2, RoundingMode.HALF_UP);
+        if (arredondado.compareTo(MINIMO_CENTAVOS) >= 0 && arredondado.compareTo(MAXIMO_CENTAVOS) <= 0) {
+            return centavos(arredondado.scaleByPowerOfTen(2).longValueExact());
+        }
+        return new Dinheiro(0, arredondado);
+    }
+
+    // Texto no formato de BigDecimal ("1234.56"); NumberFormatException se inválido
+    static Dinheiro de(String texto) {
+        return de(new BigDecimal(texto));
+    }
+
+    // Valor digitado pelo usuário: como de(String), mas recusa mais de duas casas decimais em vez
+    // de arredondar. NumberFormatException se inválido
+    static Dinheiro deExato(String texto) {
+        BigDecimal valor = new BigDecimal(texto);
+        if (valor.stripTrailingZeros().scale() > 2) {
+            throw new NumberFormatException("Use no máximo duas casas decimais: " + texto);
+        }
+        return de(valor);
+    }
+
+    public Dinheiro somar(Dinheiro outro) {
+        if (excedente == null && outro.excedente == null) {
+            long soma = centavos + outro.centavos;
+            // Estouro só quando as parcelas têm o mesmo sinal e a soma tem o sinal oposto
+            if (((centavos ^ soma) & (outro.centavos ^ soma)) >= 0) {
+                return centavos(soma);
+            }
+        }
+        return de(paraBigDecimal().add(outro.paraBigDecimal()));
+    }
+
+    public Dinheiro subtrair(Dinheiro outro) {
+        return somar(outro.negar());
+    }
+
+    public Dinheiro negar() {
+        if (excedente == null && centavos != Long.MIN_VALUE) {
+            return centavos(-centavos);
+        }
+        return de(paraBigDecimal().negate());
+    }
+
+    public Dinheiro abs() {
+        return signum() < 0 ? negar() : this;
+    }
+
+    public int signum() {
+        return excedente != null ? excedente.signum() : Long.signum(centavos);
+    }
+
+    public boolean cabeEmCentavos() {
+        return excedente == null;
+    }
+
+    // Centavos em long; ArithmeticException para valores além do long (nunca vindos da coluna)
+    public long getCentavos() {
+        if (excedente != null) {
+            throw new ArithmeticException("Valor fora do limite de centavos: " + excedente.toPlainString());
+        }
+        return centavos;
+    }
+
+    // Para JDBC, JSON e gráficos, que esperam um Number
+    public BigDecimal paraBigDecimal() {
+        return excedente != null ? excedente : BigDecimal.valueOf(centavos, 2);
+    }
+
+    @Override
+    public int compareTo(Dinheiro outro) {
+        if (excedente == null && outro.excedente == null) {
+            return Long.compare(centavos, outro.centavos);
+        }
+        return paraBigDecimal().compareTo(outro.paraBigDecimal());
+    }
+
+    @Override
+    public boolean equals(Object objeto) {
+        if (this == objeto) {
+            return true;
+        }
+        // A forma é canônica: um valor que cabe em centavos nunca guarda excedente
+        return objeto instanceof Dinheiro outro && centavos == outro.centavos
+                && (excedente == null ? outro.excedente == null : excedente.equals(outro.excedente));
+    }
+
+    @Override
+    public int hashCode() {
+        return excedente != null ? excedente.hashCode() : Long.hashCode(centavos);
+    }
+
+    // Mesmo texto de BigDecimal.toPlainString() com duas casas ("-1234.50"), usado no diário e
+    // na chave de duplicidade; para exibir, use FormatadorDinheiro
+    @Override
+    public String toString() {
+        return paraBigDecimal().toPlainString();
+    }
+}
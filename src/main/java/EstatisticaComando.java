@@ -0,0 +1,65 @@
+import java.sql.ResultSet;
+import java.util.concurrent.atomic.LongAdder;
+
+// Números de um comando SQL dentro de uma operação: execução é a ida e volta ao banco até o
+// retorno de execute*; leitura é do retorno até o fechamento do ResultSet (materialização das
+// linhas). Os bytes são estimados pelo tamanho dos valores lidos, não pelo tráfego da rede.
+// Preparos reaproveitados são os prepareStatement atendidos pelo cache de comandos do pool.
+final class EstatisticaComando {
+    private final String banco;
+    private final String operacao;
+    private final String sql;
+    final HistogramaLatencia execucao = new HistogramaLatencia();
+    final HistogramaLatencia leitura = new HistogramaLatencia();
+    final LongAdder linhas = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder erros = new LongAdder();
+    final LongAdder preparos = new LongAdder();
+    final LongAdder preparosReaproveitados = new LongAdder();
+
+    EstatisticaComando(String banco, String operacao, String sql) {
+        this.banco = banco;
+        this.operacao = operacao;
+        this.sql = sql;
+    }
+
+    public String getBanco() {
+        return banco;
+    }
+
+    public String getOperacao() {
+        return operacao;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public HistogramaLatencia getExecucao() {
+        return execucao;
+    }
+
+    public HistogramaLatencia getLeitura() {
+        return leitura;
+    }
+
+    public long getLinhas() {
+        return linhas.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getErros() {
+        return erros.sum();
+    }
+
+    public long getPreparos() {
+        return preparos.sum();
+    }
+
+    public long getPreparosReaproveitados() {
+        return preparosReaproveitados.sum();
+    }
+}
@@ -0,0 +1,412 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+// Exporta o histórico de um usuário em streaming, com memória constante: um cursor só de avanço,
+// que o banco entrega linha a linha em vez de carregar o resultado inteiro, codificado direto em
+// blocos de bytes gravados por um canal NIO. Com
+// compactação, o gzip roda em outra thread e recebe os blocos cheios por uma fila limitada,
+// então leitura do banco e compactação se sobrepõem sem acumular dados.
+class ExportadorTransacoes {
+
+    interface Progresso {
+        void atualizar(RelatorioExportacao parcial);
+    }
+
+    // Aberto só depois que a consulta respondeu, para que uma falha no banco não deixe um destino
+    // pela metade (no servidor HTTP, os cabeçalhos ainda não foram enviados)
+    interface Destino {
+        WritableByteChannel abrir() throws IOException;
+    }
+
+    private static final int TAMANHO_BLOCO = 256 * 1024;
+    private static final int BLOCOS_COMPACTACAO = 4;
+    private static final int INTERVALO_PROGRESSO = 100_000;
+
+    private final FabricaConexoes fabricaConexoes;
+
+    public ExportadorTransacoes(FabricaConexoes fabricaConexoes) {
+        this.fabricaConexoes = fabricaConexoes;
+    }
+
+    // Grava em um arquivo temporário ao lado do destino e só o renomeia ao final
+    public RelatorioExportacao exportar(int idUser, FiltroTransacao filtro, FormatoExportacao formato, boolean compactar,
+                                        Path arquivo, Progresso progresso) throws IOException, SQLException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try {
+            RelatorioExportacao relatorio = exportar(idUser, filtro, formato, compactar,
+                    () -> FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                    progresso);
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return relatorio;
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    public RelatorioExportacao exportar(int idUser, FiltroTransacao filtro, FormatoExportacao formato, boolean compactar,
+                                        Destino destino, Progresso progresso) throws IOException, SQLException {
+        // IdUser no ORDER BY, mesmo sendo constante: só assim o H2 reconhece a ordem do índice
+        // (IdUser, data, id) e percorre o índice em vez de ordenar o histórico inteiro
+        String sql = "SELECT id, data, tipo, valor, descricao FROM transacoes WHERE IdUser = ?" + filtro.clausula() + " ORDER BY IdUser, data, id";
+        RelatorioExportacao relatorio = new RelatorioExportacao();
+        long inicio = System.nanoTime();
+        try (Connection conexao = fabricaConexoes.obterConexao()) {
+            boolean h2 = conexao.getMetaData().getURL().startsWith("jdbc:h2:");
+            if (h2) {
+                definirExecucaoPreguicosa(conexao, true);
+            }
+            try (PreparedStatement statement = conexao.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(Integer.getInteger("controlefinanceiro.exportacao.fetchSize", h2 ? 1000 : Integer.MIN_VALUE));
+                statement.setInt(1, idUser);
+                filtro.vincular(statement, 2);
+                try (ResultSet resultSet = statement.executeQuery();
+                     CanalContado canal = new CanalContado(destino.abrir());
+                     Saida saida = compactar ? new SaidaCompactada(canal, relatorio) : new SaidaDireta(canal, relatorio)) {
+                    Codificador codificador = formato == FormatoExportacao.BINARIO ? new CodificadorBinario() : new CodificadorCsv();
+                    ByteBuffer bloco = ByteBuffer.allocate(TAMANHO_BLOCO);
+                    codificador.cabecalho(bloco);
+                    while (resultSet.next()) {
+                        byte[] descricao = resultSet.getString(5).getBytes(StandardCharsets.UTF_8);
+                        if (bloco.remaining() < codificador.tamanhoMaximo(descricao)) {
+                            bloco = saida.trocar(bloco);
+                        }
+                        codificador.linha(bloco, resultSet.getLong(1), resultSet.getDate(2).toLocalDate(),
+                                TipoTransacao.valueOf(resultSet.getString(3)), Dinheiro.de(resultSet.getBigDecimal(4)).getCentavos(), descricao);
+                        relatorio.registrarLinha();
+                        if (relatorio.getLinhas() % INTERVALO_PROGRESSO == 0) {
+                            progresso.atualizar(relatorio);
+                        }
+                    }
+                    saida.concluir(bloco);
+                    relatorio.concluir(canal.getGravados(), System.nanoTime() - inicio);
+                }
+            } finally {
+                if (h2) {
+                    definirExecucaoPreguicosa(conexao, false); // A conexão volta ao pool
+                }
+            }
+        }
+        return relatorio;
+    }
+
+    // Sem ela o H2 monta o resultado inteiro (em disco, acima de alguns milhares de linhas) antes
+    // de devolver a primeira; no MySQL o mesmo papel é do fetchSize Integer.MIN_VALUE
+    private static void definirExecucaoPreguicosa(Connection conexao, boolean ligada) throws SQLException {
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + ligada);
+        }
+    }
+
+    // Uma linha por vez no bloco; tamanhoMaximo garante que a próxima linha cabe
+    private interface Codificador {
+        void cabecalho(ByteBuffer bloco);
+
+        int tamanhoMaximo(byte[] descricao);
+
+        void linha(ByteBuffer bloco, long id, LocalDate data, TipoTransacao tipo, long centavos, byte[] descricao);
+    }
+
+    private static final class CodificadorCsv implements Codificador {
+        private static final byte[] RECEITA = "RECEITA".getBytes(StandardCharsets.US_ASCII);
+        private static final byte[] DESPESA = "DESPESA".getBytes(StandardCharsets.US_ASCII);
+
+        @Override
+        public void cabecalho(ByteBuffer bloco) {
+            bloco.put("id;data;tipo;valor;descricao\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public int tamanhoMaximo(byte[] descricao) {
+            return 2 * descricao.length + 80; // Aspas dobradas no pior caso
+        }
+
+        @Override
+        public void linha(ByteBuffer bloco, long id, LocalDate data, TipoTransacao tipo, long centavos, byte[] descricao) {
+            escreverNumero(bloco, id);
+            bloco.put((byte) ';');
+            escreverNumero(bloco, data.getYear());
+            bloco.put((byte) '-');
+            escreverDoisDigitos(bloco, data.getMonthValue());
+            bloco.put((byte) '-');
+            escreverDoisDigitos(bloco, data.getDayOfMonth());
+            bloco.put((byte) ';');
+            bloco.put(tipo == TipoTransacao.RECEITA ? RECEITA : DESPESA);
+            bloco.put((byte) ';');
+            if (centavos < 0) {
+                bloco.put((byte) '-');
+                centavos = -centavos;
+            }
+            escreverNumero(bloco, centavos / 100);
+            bloco.put((byte) '.');
+            escreverDoisDigitos(bloco, (int) (centavos % 100));
+            bloco.put((byte) ';');
+            escreverDescricao(bloco, descricao);
+            bloco.put((byte) '\n');
+        }
+
+        // Entre aspas só quando contém separador, aspas ou quebra de linha; em UTF-8 esses
+        // caracteres nunca aparecem dentro de um caractere de vários bytes
+        private static void escreverDescricao(ByteBuffer bloco, byte[] descricao) {
+            boolean aspas = false;
+            for (byte b : descricao) {
+                if (b == ';' || b == '"' || b == '\n' || b == '\r') {
+                    aspas = true;
+                    break;
+                }
+            }
+            if (!aspas) {
+                bloco.put(descricao);
+                return;
+            }
+            bloco.put((byte) '"');
+            for (byte b : descricao) {
+                if (b == '"') {
+                    bloco.put((byte) '"');
+                }
+                bloco.put(b);
+            }
+            bloco.put((byte) '"');
+        }
+
+        private static void escreverNumero(ByteBuffer bloco, long numero) {
+            if (numero >= 10) {
+                escreverNumero(bloco, numero / 10);
+            }
+            bloco.put((byte) ('0' + numero % 10));
+        }
+
+        private static void escreverDoisDigitos(ByteBuffer bloco, int numero) {
+            bloco.put((byte) ('0' + numero / 10));
+            bloco.put((byte) ('0' + numero % 10));
+        }
+    }
+
+    private static final class CodificadorBinario implements Codificador {
+        private static final byte VERSAO = 1;
+
+        private long diaAnterior;
+
+        @Override
+        public void cabecalho(ByteBuffer bloco) {
+            bloco.put("CFTX".getBytes(StandardCharsets.US_ASCII)).put(VERSAO);
+        }
+
+        @Override
+        public int tamanhoMaximo(byte[] descricao) {
+            return descricao.length + 40;
+        }
+
+        @Override
+        public void linha(ByteBuffer bloco, long id, LocalDate data, TipoTransacao tipo, long centavos, byte[] descricao) {
+            long dia = data.toEpochDay();
+            escreverVarLong(bloco, id);
+            escreverVarLong(bloco, zigzag(dia - diaAnterior)); // Em ordem de data: quase sempre 0 ou 1, um byte
+            bloco.put((byte) tipo.ordinal());
+            escreverVarLong(bloco, zigzag(centavos));
+            escreverVarLong(bloco, descricao.length);
+            bloco.put(descricao);
+            diaAnterior = dia;
+        }
+
+        private static long zigzag(long valor) {
+            return (valor << 1) ^ (valor >> 63);
+        }
+
+        private static void escreverVarLong(ByteBuffer bloco, long valor) {
+            while ((valor & ~0x7FL) != 0) {
+                bloco.put((byte) ((valor & 0x7F) | 0x80));
+                valor >>>= 7;
+            }
+            bloco.put((byte) valor);
+        }
+    }
+
+    // Recebe os blocos cheios e devolve um bloco vazio para a próxima linha
+    private interface Saida extends Closeable {
+        ByteBuffer trocar(ByteBuffer cheio) throws IOException;
+
+        // Grava o último bloco; sem esta chamada (exportação interrompida) close() não completa o formato
+        void concluir(ByteBuffer ultimo) throws IOException;
+    }
+
+    // Sem compactação o próprio leitor grava no canal, reaproveitando o bloco
+    private static final class SaidaDireta implements Saida {
+        private final WritableByteChannel canal;
+        private final RelatorioExportacao relatorio;
+
+        SaidaDireta(WritableByteChannel canal, RelatorioExportacao relatorio) {
+            this.canal = canal;
+            this.relatorio = relatorio;
+        }
+
+        @Override
+        public ByteBuffer trocar(ByteBuffer cheio) throws IOException {
+            cheio.flip();
+            relatorio.registrarBloco(cheio.remaining());
+            while (cheio.hasRemaining()) {
+                canal.write(cheio);
+            }
+            cheio.clear();
+            return cheio;
+        }
+
+        @Override
+        public void concluir(ByteBuffer ultimo) throws IOException {
+            trocar(ultimo);
+        }
+
+        @Override
+        public void close() {
+            // O canal é fechado por quem o abriu
+        }
+    }
+
+    // Compactação gzip na thread "exportacao-gzip". Os blocos circulam entre duas filas (cheios e
+    // livres), então a memória usada fica em BLOCOS_COMPACTACAO blocos qualquer que seja o volume
+    private static final class SaidaCompactada implements Saida {
+        private static final ByteBuffer FIM = ByteBuffer.allocate(0);
+
+        private final BlockingQueue<ByteBuffer> cheios = new ArrayBlockingQueue<>(BLOCOS_COMPACTACAO);
+        private final BlockingQueue<ByteBuffer> livres = new ArrayBlockingQueue<>(BLOCOS_COMPACTACAO);
+        private final GZIPOutputStream gzip;
+        private final RelatorioExportacao relatorio;
+        private final Thread compactacao;
+        private volatile IOException falha;
+        private boolean concluida;
+
+        SaidaCompactada(WritableByteChannel canal, RelatorioExportacao relatorio) throws IOException {
+            this.gzip = new GZIPOutputStream(Channels.newOutputStream(canal), TAMANHO_BLOCO);
+            this.relatorio = relatorio;
+            for (int i = 1; i < BLOCOS_COMPACTACAO; i++) {
+                livres.add(ByteBuffer.allocate(TAMANHO_BLOCO)); // O primeiro bloco é do leitor
+            }
+            compactacao = new Thread(this::compactar, "exportacao-gzip");
+            compactacao.setDaemon(true);
+            compactacao.start();
+        }
+
+        @Override
+        public ByteBuffer trocar(ByteBuffer cheio) throws IOException {
+            verificarFalha();
+            cheio.flip();
+            relatorio.registrarBloco(cheio.remaining());
+            try {
+                cheios.put(cheio);
+                return livres.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Exportação interrompida");
+            }
+        }
+
+        @Override
+        public void concluir(ByteBuffer ultimo) throws IOException {
+            trocar(ultimo);
+            encerrarCompactacao();
+            verificarFalha();
+            gzip.finish();
+            concluida = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!concluida) {
+                encerrarCompactacao(); // Sem o final do gzip, um destino truncado não parece completo
+            }
+        }
+
+        private void compactar() {
+            try {
+                while (true) {
+                    ByteBuffer bloco = cheios.take();
+                    if (bloco == FIM) {
+                        return;
+                    }
+                    if (falha == null) {
+                        try {
+                            gzip.write(bloco.array(), bloco.arrayOffset() + bloco.position(), bloco.remaining());
+                        } catch (IOException ex) {
+                            falha = ex; // Continua devolvendo blocos para o leitor não ficar preso na fila
+                        }
+                    }
+                    bloco.clear();
+                    livres.put(bloco);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void encerrarCompactacao() throws IOException {
+            if (!compactacao.isAlive()) {
+                return;
+            }
+            try {
+                cheios.put(FIM);
+                compactacao.join();
+            } catch (InterruptedException ex) {
+                compactacao.interrupt();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Exportação interrompida");
+            }
+        }
+
+        private void verificarFalha() throws IOException {
+            if (falha != null) {
+                throw falha;
+            }
+        }
+    }
+
+    // Conta os bytes que chegam ao destino, já compactados
+    private static final class CanalContado implements WritableByteChannel {
+        private final WritableByteChannel canal;
+        private long gravados;
+
+        CanalContado(WritableByteChannel canal) {
+            this.canal = canal;
+        }
+
+        @Override
+        public int write(ByteBuffer origem) throws IOException {
+            int escritos = canal.write(origem);
+            gravados += escritos;
+            return escritos;
+        }
+
+        long getGravados() {
+            return gravados;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return canal.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (canal.isOpen()) {
+                canal.close();
+            }
+        }
+    }
+}
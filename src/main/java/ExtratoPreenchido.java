@@ -0,0 +1,22 @@
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+
+// Extrato preenchido. As páginas ficam em um arquivo de troca, liberado no close()
+class ExtratoPreenchido implements AutoCloseable {
+    private final JasperPrint impressao;
+    private final JRSwapFileVirtualizer virtualizador;
+
+    public ExtratoPreenchido(JasperPrint impressao, JRSwapFileVirtualizer virtualizador) {
+        this.impressao = impressao;
+        this.virtualizador = virtualizador;
+    }
+
+    public JasperPrint getImpressao() {
+        return impressao;
+    }
+
+    @Override
+    public void close() {
+        virtualizador.cleanup();
+    }
+}
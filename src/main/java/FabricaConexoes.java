@@ -0,0 +1,137 @@
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbcp.DelegatingStatement;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pool de conexões JDBC limitado, com validação, remoção de conexões ociosas e
+// reconexão automática (conexões inválidas são descartadas e recriadas no empréstimo).
+// Os parâmetros podem ser sobrescritos por propriedades de sistema "controlefinanceiro.db.*"
+// (servidor remoto) ou "controlefinanceiro.local.*" (banco embutido do modo local).
+class FabricaConexoes {
+
+    // Trecho de código executado com uma conexão emprestada do pool
+    interface Operacao<T> {
+        T executar(Connection conexao) throws SQLException;
+    }
+
+    private final String prefixo;
+    private final String banco; // Nome nas métricas: "servidor" ou "local"
+    private final BasicDataSource dataSource;
+    private final AtomicLong emprestimos = new AtomicLong();
+    private final AtomicLong esperaTotalNanos = new AtomicLong();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    // Servidor MySQL remoto, configurado por "controlefinanceiro.db.*"
+    public FabricaConexoes() {
+        // rewriteBatchedStatements faz o driver enviar cada executeBatch como INSERTs de várias linhas;
+        // useServerPrepStmts prepara no servidor, que passa a receber só os parâmetros a cada execução
+        this("controlefinanceiro.db.", "com.mysql.cj.jdbc.Driver",
+                "jdbc:mysql://www.welisondavi.com.br/welisond_nicolla?rewriteBatchedStatements=true&useServerPrepStmts=true",
+                "welisond_nicolla", "@Nico3044");
+    }
+
+    // Banco H2 embutido do modo local, configurado por "controlefinanceiro.local.*"
+    static FabricaConexoes local() {
+        String arquivo = System.getProperty("user.home") + "/.controlefinanceiro/local/controlefinanceiro";
+        return new FabricaConexoes("controlefinanceiro.local.", "org.h2.Driver",
+                "jdbc:h2:file:" + arquivo + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE", "sa", "");
+    }
+
+    private FabricaConexoes(String prefixo, String driver, String url, String usuario, String senha) {
+        this.prefixo = prefixo;
+        this.banco = prefixo.equals("controlefinanceiro.local.") ? "local" : "servidor";
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName(propriedade("driver", driver));
+        dataSource.setUrl(propriedade("url", url));
+        dataSource.setUsername(propriedade("usuario", usuario));
+        dataSource.setPassword(propriedade("senha", senha));
+
+        dataSource.setInitialSize(Integer.parseInt(propriedade("pool.inicial", "1")));
+        dataSource.setMaxActive(Integer.parseInt(propriedade("pool.maximo", "8")));
+        dataSource.setMaxIdle(Integer.parseInt(propriedade("pool.maximoOciosas", "4")));
+        dataSource.setMinIdle(Integer.parseInt(propriedade("pool.minimoOciosas", "1")));
+        dataSource.setMaxWait(Long.parseLong(propriedade("pool.esperaMaximaMs", "10000")));
+
+        // Validação no empréstimo e em segundo plano: conexões derrubadas pelo servidor são recriadas
+        dataSource.setValidationQuery("SELECT 1");
+        // No H2 o timeout de um comando vale para a sessão inteira: a validação deixaria a conexão
+        // cancelando qualquer consulta acima de 5 s (exportações, cargas grandes no modo local)
+        if (!dataSource.getUrl().startsWith("jdbc:h2:")) {
+            dataSource.setValidationQueryTimeout(5);
+        }
+        dataSource.setTestOnBorrow(true);
+        dataSource.setTestWhileIdle(true);
+        dataSource.setTimeBetweenEvictionRunsMillis(30_000);
+        dataSource.setMinEvictableIdleTimeMillis(5 * 60_000);
+        dataSource.setNumTestsPerEvictionRun(3);
+        dataSource.setDefaultAutoCommit(true);
+
+        // Cache de comandos preparados por conexão física, pelo SQL: o prepareStatement repetido
+        // devolve o comando já preparado (no MySQL, o preparo do servidor), e o close o devolve ao cache.
+        // Ao passar do máximo, os ociosos mais antigos são fechados
+        dataSource.setPoolPreparedStatements(Boolean.parseBoolean(propriedade("pool.comandosPreparados", "true")));
+        dataSource.setMaxOpenPreparedStatements(Integer.parseInt(propriedade("pool.maximoComandosPreparados", "100")));
+    }
+
+    private String propriedade(String nome, String padrao) {
+        return System.getProperty(prefixo + nome, padrao);
+    }
+
+    // Conexão instrumentada por MetricasJdbc: todo comando, inclusive os do Jasper, é medido
+    public Connection obterConexao() throws SQLException {
+        long inicio = System.nanoTime();
+        Connection conexao = dataSource.getConnection();
+        long espera = System.nanoTime() - inicio;
+        emprestimos.incrementAndGet();
+        esperaTotalNanos.addAndGet(espera);
+        esperaMaximaNanos.accumulateAndGet(espera, Math::max);
+        return MetricasJdbc.instrumentar(conexao, banco);
+    }
+
+    // Comando do driver por trás dos embrulhos do DBCP; é o mesmo objeto quando o preparo sai do cache
+    static Statement comandoDoDriver(Statement comando) {
+        Statement interno = comando instanceof DelegatingStatement ? ((DelegatingStatement) comando).getInnermostDelegate() : null;
+        return interno != null ? interno : comando;
+    }
+
+    public <T> T executar(Operacao<T> operacao) throws SQLException {
+        try (Connection conexao = obterConexao()) {
+            return operacao.executar(conexao);
+        }
+    }
+
+    // Executa a operação em uma única transação do banco, desfazendo tudo em caso de erro
+    public <T> T emTransacao(Operacao<T> operacao) throws SQLException {
+        try (Connection conexao = obterConexao()) {
+            conexao.setAutoCommit(false);
+            try {
+                T resultado = operacao.executar(conexao);
+                conexao.commit();
+                return resultado;
+            } catch (SQLException | RuntimeException ex) {
+                conexao.rollback();
+                throw ex;
+            } finally {
+                conexao.setAutoCommit(true);
+            }
+        }
+    }
+
+    public MetricasPool metricas() {
+        long total = emprestimos.get();
+        double esperaMedia = total == 0 ? 0 : esperaTotalNanos.get() / (double) total / 1_000_000;
+        return new MetricasPool(dataSource.getNumActive(), dataSource.getNumIdle(), dataSource.getMaxActive(),
+                total, esperaMedia, esperaMaximaNanos.get() / 1_000_000.0);
+    }
+
+    public void fechar() {
+        try {
+            dataSource.close();
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+// Filtros opcionais da tela de transações, traduzidos para a cláusula WHERE. Datas e tipo já
+// chegam convertidos (quem lê a tela valida o texto) e são vinculados com o tipo da coluna.
+// O SQL gerado tem um número fechado de formatos: cada filtro presente acrescenta sempre a mesma
+// condição, na mesma ordem, e a lista de ids é arredondada (tamanhoLista), para que o cache de
+// comandos preparados do pool reaproveite o preparo entre pesquisas.
+class FiltroTransacao {
+    static final FiltroTransacao VAZIO = new FiltroTransacao("", null, null, null);
+
+    private static final int MENOR_LISTA = 8;
+
+    private final String descricao;
+    private final LocalDate dataInicio; // null = sem limite
+    private final LocalDate dataFim;
+    private final TipoTransacao tipo;
+    private final List<Long> ids; // Resultado da busca textual; null quando não há restrição por id
+
+    public FiltroTransacao(String descricao, LocalDate dataInicio, LocalDate dataFim, TipoTransacao tipo) {
+        this(descricao, dataInicio, dataFim, tipo, null);
+    }
+
+    private FiltroTransacao(String descricao, LocalDate dataInicio, LocalDate dataFim, TipoTransacao tipo, List<Long> ids) {
+        this.descricao = descricao != null ? descricao.trim() : "";
+        this.dataInicio = dataInicio;
+        this.dataFim = dataFim;
+        this.tipo = tipo;
+        this.ids = ids;
+    }
+
+    // Troca o filtro por descrição pelos ids encontrados no índice textual
+    public FiltroTransacao comIds(List<Long> idsEncontrados) {
+        return new FiltroTransacao("", dataInicio, dataFim, tipo, idsEncontrados);
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public LocalDate getDataInicio() {
+        return dataInicio;
+    }
+
+    public LocalDate getDataFim() {
+        return dataFim;
+    }
+
+    public TipoTransacao getTipo() {
+        return tipo;
+    }
+
+    public List<Long> getIds() {
+        return ids != null ? ids : Collections.emptyList();
+    }
+
+    public boolean restringeIds() {
+        return ids != null;
+    }
+
+    // Condições adicionais a "IdUser = ?", na mesma ordem usada por vincular()
+    public String clausula() {
+        StringBuilder sql = new StringBuilder();
+        if (!descricao.isEmpty()) {
+            sql.append(" AND descricao LIKE ?");
+        }
+        if (dataInicio != null) {
+            sql.append(" AND data >= ?");
+        }
+        if (dataFim != null) {
+            sql.append(" AND data <= ?");
+        }
+        if (tipo != null) {
+            sql.append(" AND tipo = ?");
+        }
+        if (ids != null) {
+            sql.append(ids.isEmpty() ? " AND 1 = 0" : " AND id IN (" + String.join(", ", Collections.nCopies(tamanhoLista(ids.size()), "?")) + ")");
+        }
+        return sql.toString();
+    }
+
+    // Define os parâmetros a partir de parameterIndex e retorna o próximo índice livre
+    public int vincular(PreparedStatement statement, int parameterIndex) throws SQLException {
+        if (!descricao.isEmpty()) {
+            statement.setString(parameterIndex++, "%" + descricao + "%");
+        }
+        if (dataInicio != null) {
+            statement.setDate(parameterIndex++, Date.valueOf(dataInicio));
+        }
+        if (dataFim != null) {
+            statement.setDate(parameterIndex++, Date.valueOf(dataFim));
+        }
+        if (tipo != null) {
+            statement.setString(parameterIndex++, tipo.name());
+        }
+        if (ids != null && !ids.isEmpty()) {
+            for (long id : ids) {
+                statement.setLong(parameterIndex++, id);
+            }
+            // As posições que sobram repetem o último id, o que não muda o resultado do IN
+            long ultimo = ids.get(ids.size() - 1);
+            for (int i = ids.size(); i < tamanhoLista(ids.size()); i++) {
+                statement.setLong(parameterIndex++, ultimo);
+            }
+        }
+        return parameterIndex;
+    }
+
+    // Próxima potência de dois a partir de 8: os até 1000 ids da busca textual cabem em 8 formatos de IN
+    static int tamanhoLista(int quantidade) {
+        return quantidade <= MENOR_LISTA ? MENOR_LISTA : Integer.highestOneBit(quantidade - 1) << 1;
+    }
+}
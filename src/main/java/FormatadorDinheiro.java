@@ -0,0 +1,71 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Formatação no padrão brasileiro ("1.234,56" e "R$ 1.234,56") sem DecimalFormat, que não é
+// seguro entre threads. Não guarda estado, então serve à tela, ao servidor e aos relatórios ao
+// mesmo tempo; no caminho em centavos a única alocação é a String do resultado.
+final class FormatadorDinheiro {
+    private static final int TAMANHO_MAXIMO = 32; // Sinal, "R$ ", 19 dígitos, separadores e vírgula
+
+    private FormatadorDinheiro() {
+    }
+
+    public static String formatar(Dinheiro valor) {
+        return formatar(valor, false);
+    }
+
+    public static String formatarComMoeda(Dinheiro valor) {
+        return formatar(valor, true);
+    }
+
+    private static String formatar(Dinheiro valor, boolean moeda) {
+        if (!valor.cabeEmCentavos()) {
+            return formatarExcedente(valor.paraBigDecimal(), moeda);
+        }
+        long centavos = valor.getCentavos();
+        char[] texto = new char[TAMANHO_MAXIMO];
+        int posicao = texto.length;
+        // Dígitos do fim para o começo; trabalhar com o valor negativo evita o estouro de Long.MIN_VALUE
+        long restante = centavos > 0 ? -centavos : centavos;
+        for (int casa = 0; casa < 2; casa++) {
+            texto[--posicao] = (char) ('0' - restante % 10);
+            restante /= 10;
+        }
+        texto[--posicao] = ',';
+        int digitos = 0;
+        do {
+            if (digitos > 0 && digitos % 3 == 0) {
+                texto[--posicao] = '.';
+            }
+            texto[--posicao] = (char) ('0' - restante % 10);
+            restante /= 10;
+            digitos++;
+        } while (restante != 0);
+        if (moeda) {
+            texto[--posicao] = ' ';
+            texto[--posicao] = '$';
+            texto[--posicao] = 'R';
+        }
+        if (centavos < 0) {
+            texto[--posicao] = '-';
+        }
+        return new String(texto, posicao, texto.length - posicao);
+    }
+
+    // Caminho raro de valores além do long: mesmo formato a partir do texto do BigDecimal
+    private static String formatarExcedente(BigDecimal valor, boolean moeda) {
+        String digitos = valor.abs().setScale(2, RoundingMode.HALF_UP).toPlainString();
+        String inteiros = digitos.substring(0, digitos.length() - 3);
+        StringBuilder texto = new StringBuilder(valor.signum() < 0 ? "-" : "");
+        if (moeda) {
+            texto.append("R$ ");
+        }
+        for (int i = 0; i < inteiros.length(); i++) {
+            if (i > 0 && (inteiros.length() - i) % 3 == 0) {
+                texto.append('.');
+            }
+            texto.append(inteiros.charAt(i));
+        }
+        return texto.append(',').append(digitos, digitos.length() - 2, digitos.length()).toString();
+    }
+}
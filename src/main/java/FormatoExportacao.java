@@ -0,0 +1,26 @@
+import java.util.Locale;
+
+// Formatos da exportação de transações. O CSV tem as colunas id;data;tipo;valor;descricao em UTF-8
+// e é lido de volta pela importação de extratos. O binário ("CFTX" e a versão, seguidos de uma
+// transação por registro) guarda cada campo em varint: id, dias desde a data anterior e centavos
+// (ambos zigzag), o tipo em um byte e a descrição em UTF-8 precedida do tamanho.
+enum FormatoExportacao {
+    CSV("csv"),
+    BINARIO("cftx");
+
+    private final String extensao;
+
+    FormatoExportacao(String extensao) {
+        this.extensao = extensao;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+
+    // Pela extensão do arquivo, desconsiderando um ".gz" final
+    static FormatoExportacao doArquivo(String nome) {
+        String semCompactacao = nome.toLowerCase(Locale.ROOT).replaceFirst("\\.gz$", "");
+        return semCompactacao.endsWith("." + BINARIO.extensao) ? BINARIO : CSV;
+    }
+}
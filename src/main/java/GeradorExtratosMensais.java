@@ -0,0 +1,227 @@
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperExportManager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Extratos do fechamento do mês para todos os usuários, sem interface gráfica. Um pool fixo de
+// trabalhadores preenche e exporta um usuário por vez cada, todos sobre o mesmo modelo compilado.
+// O preenchimento segura uma conexão do pool enquanto a consulta é lida, então um semáforo limita
+// quantos acontecem ao mesmo tempo; a exportação do PDF, só CPU e disco, fica fora desse limite.
+// Cada PDF é gravado como .tmp e renomeado no fim, então um arquivo final está sempre completo:
+// depois de uma falha (ou do processo interrompido) a mesma rodada pode ser repetida e só gera os
+// extratos que faltam.
+class GeradorExtratosMensais {
+
+    interface Progresso {
+        void atualizar(RelatorioExtratosMensais parcial);
+    }
+
+    private final ServicoExtrato servicoExtrato;
+    private final UsuarioRepository usuarioRepository;
+
+    public GeradorExtratosMensais(ServicoExtrato servicoExtrato, UsuarioRepository usuarioRepository) {
+        this.servicoExtrato = servicoExtrato;
+        this.usuarioRepository = usuarioRepository;
+    }
+
+    // Grava diretorio/<aaaa-mm>/extrato-<idUser>.pdf para cada usuário que ainda não tem o arquivo
+    public RelatorioExtratosMensais gerar(YearMonth mes, Path diretorio, int trabalhadores, int limiteBanco, Progresso progresso)
+            throws IOException, JRException, SQLException, InterruptedException {
+        servicoExtrato.compilar(); // Antes dos trabalhadores, que só leem o modelo compilado
+        Path diretorioMes = diretorio.resolve(mes.toString());
+        Files.createDirectories(diretorioMes);
+        removerTemporarios(diretorioMes);
+        List<Integer> usuarios = usuarioRepository.listarIds();
+
+        RelatorioExtratosMensais relatorio = new RelatorioExtratosMensais(usuarios.size(), trabalhadores, limiteBanco);
+        Semaphore vagasBanco = new Semaphore(limiteBanco, true);
+        AtomicInteger sequencia = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(trabalhadores, tarefa -> {
+            Thread thread = new Thread(tarefa, "extratos-mensais-" + sequencia.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long inicio = System.nanoTime();
+        try {
+            for (int idUser : usuarios) {
+                Path arquivo = diretorioMes.resolve("extrato-" + idUser + ".pdf");
+                if (Files.exists(arquivo)) {
+                    relatorio.registrarExistente();
+                    continue;
+                }
+                executor.execute(() -> gerarExtrato(idUser, mes, arquivo, vagasBanco, relatorio, progresso));
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Rodadas grandes levam vários minutos
+            }
+        } finally {
+            executor.shutdownNow(); // Só tem efeito se a espera foi interrompida
+        }
+        relatorio.concluir(System.nanoTime() - inicio);
+        return relatorio;
+    }
+
+    @SuppressWarnings("try") // O escopo de MetricasJdbc só delimita a operação medida
+    private void gerarExtrato(int idUser, YearMonth mes, Path arquivo, Semaphore vagasBanco,
+                              RelatorioExtratosMensais relatorio, Progresso progresso) {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("extratos-mensais")) {
+            long inicio = System.nanoTime();
+            vagasBanco.acquire();
+            long inicioPreenchimento = System.nanoTime();
+            ExtratoPreenchido extrato;
+            try {
+                extrato = servicoExtrato.preencher(idUser, mes.atDay(1), mes.atEndOfMonth(), null);
+            } finally {
+                vagasBanco.release();
+            }
+            long inicioExportacao = System.nanoTime();
+            int paginas;
+            try (extrato) {
+                paginas = extrato.getImpressao().getPages().size();
+                JasperExportManager.exportReportToPdfFile(extrato.getImpressao(), temporario.toString());
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            relatorio.registrarGerado(inicioPreenchimento - inicio, inicioExportacao - inicioPreenchimento,
+                    System.nanoTime() - inicioExportacao, paginas);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (JRException | SQLException | IOException | RuntimeException ex) {
+            relatorio.registrarFalha(idUser, ex); // Os demais usuários seguem; este fica para a próxima rodada
+        } finally {
+            try {
+                Files.deleteIfExists(temporario);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        progresso.atualizar(relatorio);
+    }
+
+    // Restos de uma rodada interrompida no meio de uma exportação
+    private static void removerTemporarios(Path diretorioMes) throws IOException {
+        try (DirectoryStream<Path> temporarios = Files.newDirectoryStream(diretorioMes, "*.pdf.tmp")) {
+            for (Path temporario : temporarios) {
+                Files.deleteIfExists(temporario);
+            }
+        }
+    }
+
+    // Modo em lote sem interface gráfica: "java ControleFinanceiro --extratos-mensais". Opções:
+    // --mes aaaa-mm (padrão: o mês anterior), --destino (padrão "extratos"), --trabalhadores
+    // (padrão: um por processador), --conexoes (padrão: metade do pool) e --escala 1,2,4,8, que em
+    // vez de gravar no destino mede a vazão com cada número de trabalhadores em um diretório temporário
+    static void executar(String[] args) {
+        ServicoFinanceiro servico = new ServicoFinanceiro();
+        try {
+            servico.iniciar();
+        } catch (SQLException ex) {
+            System.err.println("Falha ao migrar o banco: " + ex.getMessage());
+            System.exit(1);
+        }
+        int codigoSaida;
+        try {
+            YearMonth mes = YearMonth.parse(opcao(args, "--mes", YearMonth.now().minusMonths(1).toString()));
+            int trabalhadores = Integer.parseInt(opcao(args, "--trabalhadores", String.valueOf(Runtime.getRuntime().availableProcessors())));
+            int limiteBanco = Integer.parseInt(opcao(args, "--conexoes",
+                    String.valueOf(Math.max(1, servico.getMetricasPool().getMaximoAtivas() / 2))));
+            String escala = opcao(args, "--escala", null);
+            if (escala != null) {
+                codigoSaida = medirEscala(servico, mes, escala, limiteBanco);
+            } else {
+                Path destino = Paths.get(opcao(args, "--destino", "extratos"));
+                System.out.println("Extratos de " + mes + " em " + destino.toAbsolutePath().resolve(mes.toString()));
+                RelatorioExtratosMensais relatorio = servico.gerarExtratosMensais(mes, destino, trabalhadores,
+                        Math.min(trabalhadores, limiteBanco), mostrarAndamento());
+                System.out.println(relatorio);
+                for (String falha : relatorio.getFalhas()) {
+                    System.err.println("Falha no extrato do " + falha);
+                }
+                codigoSaida = relatorio.getFalhas().isEmpty() ? 0 : 1;
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            codigoSaida = 1;
+        } finally {
+            servico.encerrar();
+        }
+        System.exit(codigoSaida);
+    }
+
+    // A primeira rodada, com o maior número de trabalhadores, só aquece o JIT e o cache do banco
+    private static int medirEscala(ServicoFinanceiro servico, YearMonth mes, String escala, int limiteBanco) throws Exception {
+        List<Integer> quantidades = new ArrayList<>();
+        for (String quantidade : escala.split(",")) {
+            quantidades.add(Integer.parseInt(quantidade.trim()));
+        }
+        Path temporario = Files.createTempDirectory("extratos-mensais");
+        try {
+            int maior = quantidades.stream().max(Integer::compare).orElse(1);
+            servico.gerarExtratosMensais(mes, temporario.resolve("aquecimento"), maior, Math.min(maior, limiteBanco), parcial -> { });
+
+            System.out.printf("%n%-13s %8s %9s %9s %11s %10s %13s %13s %13s%n", "trabalhadores", "conexões", "extratos",
+                    "s", "extratos/s", "aceleração", "espera p50", "preench. p50", "export. p50");
+            double base = 0;
+            int falhas = 0;
+            for (int quantidade : quantidades) {
+                RelatorioExtratosMensais relatorio = servico.gerarExtratosMensais(mes, temporario.resolve("trabalhadores-" + quantidade),
+                        quantidade, Math.min(quantidade, limiteBanco), parcial -> { });
+                base = base == 0 ? relatorio.getExtratosPorSegundo() / quantidade : base;
+                falhas += relatorio.getFalhas().size();
+                System.out.printf("%-13d %8d %9d %9.2f %11.1f %9.2fx %10.1f ms %10.1f ms %10.1f ms%n", quantidade,
+                        relatorio.getLimiteBanco(), relatorio.getGerados(), relatorio.getDuracaoSegundos(),
+                        relatorio.getExtratosPorSegundo(), base == 0 ? 0 : relatorio.getExtratosPorSegundo() / base,
+                        relatorio.getEspera().percentilMs(0.50), relatorio.getPreenchimento().percentilMs(0.50),
+                        relatorio.getExportacao().percentilMs(0.50));
+            }
+            return falhas == 0 ? 0 : 1;
+        } finally {
+            try (Stream<Path> arquivos = Files.walk(temporario)) {
+                for (Path arquivo : (Iterable<Path>) arquivos.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        }
+    }
+
+    // No máximo uma linha por segundo, vinda de qualquer trabalhador
+    private static Progresso mostrarAndamento() {
+        AtomicLong ultimo = new AtomicLong(System.nanoTime());
+        return parcial -> {
+            long agora = System.nanoTime();
+            long anterior = ultimo.get();
+            if (agora - anterior >= TimeUnit.SECONDS.toNanos(1) && ultimo.compareAndSet(anterior, agora)) {
+                System.out.println(parcial.getConcluidos() + "/" + parcial.getUsuarios() + " usuários ("
+                        + parcial.getFalhas().size() + " falhas)");
+            }
+        };
+    }
+
+    private static String opcao(String[] args, String nome, String padrao) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(nome)) {
+                return args[i + 1];
+            }
+        }
+        return padrao;
+    }
+}
@@ -0,0 +1,351 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.sql.DataTruncation;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Gravação write-behind das transações registradas na tela. O registro só grava no diário local
+// e volta; uma thread de fundo envia a fila ao banco em lotes, com nova tentativa e espera
+// exponencial enquanto o banco estiver indisponível. O que não foi enviado continua no diário
+// e é reenviado na próxima inicialização. Um lançamento que o banco recusa de forma definitiva
+// (dado inválido, restrição, sintaxe) não segura a fila: vai para o arquivo de rejeitados do diário.
+//
+// A escrita no diário acontece sob o monitor, mas a sincronização com o disco fora dele, em
+// grupo: quem encontra uma sincronização em andamento espera por ela ou pela seguinte, que
+// cobre todos os registros escritos até começar. Registros de várias sessões dividem um só
+// force, e a thread de envio não espera o disco para confirmar lotes.
+class GravadorTransacoes {
+    private static final long ESPERA_INICIAL_MS = 500;
+    private static final long ESPERA_MAXIMA_MS = 30_000;
+
+    private final DiarioTransacoes diario;
+    private final TransacaoRepository transacaoRepository;
+    private final int tamanhoLote;
+    private final Runnable aoGravar;
+
+    // Protegidos pelo monitor deste objeto, junto com as escritas no diário
+    private final Deque<LancamentoPendente> fila = new ArrayDeque<>();
+    private int maximoPendentes;
+    private long lotesGravados;
+    private long lancamentosGravados;
+    private long rejeitados;
+    private int falhasConsecutivas;
+    private long latenciaTotalNanos;
+    private long latenciaMaximaNanos;
+    private boolean encerrado;
+    private boolean interrompido; // Prazo de encerrar() esgotado: para depois do lote atual
+    // Commit em grupo: registros escritos no diário, quantos deles já estão no disco, e os que
+    // estão escritos mas ainda fora da fila (o diário não pode ser esvaziado enquanto houver algum)
+    private long escritos;
+    private long sincronizados;
+    private boolean sincronizando;
+    private int aguardandoDisco;
+
+    private Thread escritor;
+
+    public GravadorTransacoes(DiarioTransacoes diario, TransacaoRepository transacaoRepository, Runnable aoGravar) {
+        this.diario = diario;
+        this.transacaoRepository = transacaoRepository;
+        this.tamanhoLote = Integer.getInteger("controlefinanceiro.gravacao.lote", 100);
+        this.aoGravar = aoGravar;
+    }
+
+    // Recoloca na fila o que ficou pendente no diário e inicia o envio
+    public synchronized void iniciar() throws IOException {
+        fila.addAll(diario.pendentes());
+        maximoPendentes = fila.size();
+        rejeitados = diario.contarRejeitados();
+        escritor = new Thread(this::enviar, "gravacao-transacoes");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    // Retorna assim que o lançamento está seguro no diário local. Quem chama já validou a
+    // transação (TransacaoRepository.validar): o que entra aqui é dado como registrado.
+    // Uma exceção só sai daqui se o lançamento não vai ser gravado, nem agora nem ao reiniciar
+    public void registrar(int idUser, Transacao transacao) throws IOException {
+        LancamentoPendente lancamento = new LancamentoPendente(UUID.randomUUID().toString(), idUser, transacao);
+        long numero;
+        synchronized (this) {
+            diario.registrar(lancamento);
+            numero = ++escritos;
+            aguardandoDisco++;
+        }
+        boolean aceito = false;
+        try {
+            sincronizarAte(numero);
+            aceito = true;
+        } catch (IOException ex) {
+            // A linha "L" já está no arquivo e voltaria à fila na próxima inicialização. Se o
+            // cancelamento não chegar ao disco, o lançamento segue como aceito
+            aceito = ex instanceof InterruptedIOException || !cancelar(lancamento, ex);
+            if (!aceito) {
+                throw ex;
+            }
+            System.err.println("Diário não sincronizado, lançamento " + lancamento.getChave() + " mantido na fila: " + ex.getMessage());
+        } finally {
+            synchronized (this) {
+                aguardandoDisco--;
+                if (aceito) {
+                    fila.addLast(lancamento);
+                    maximoPendentes = Math.max(maximoPendentes, fila.size());
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    // Acrescenta o cancelamento do lançamento ao diário e o leva ao disco junto com os registros
+    // anteriores. Uma thread interrompida não chega aqui: a escrita no canal o fecharia
+    private boolean cancelar(LancamentoPendente lancamento, IOException falha) {
+        try {
+            long numero;
+            synchronized (this) {
+                diario.cancelar(lancamento);
+                numero = ++escritos;
+            }
+            sincronizarAte(numero);
+            return true;
+        } catch (IOException ex) {
+            falha.addSuppressed(ex);
+            return false;
+        }
+    }
+
+    // Espera o registro de número "numero" chegar ao disco. Se não houver sincronização em
+    // andamento que o cubra, faz uma por todos os registros escritos até agora
+    private void sincronizarAte(long numero) throws IOException {
+        long alvo;
+        synchronized (this) {
+            while (sincronizando && sincronizados < numero) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrompido aguardando o diário");
+                }
+            }
+            if (sincronizados >= numero) {
+                return;
+            }
+            sincronizando = true;
+            alvo = escritos;
+        }
+        boolean concluida = false;
+        try {
+            diario.sincronizar();
+            concluida = true;
+        } finally {
+            synchronized (this) {
+                sincronizando = false;
+                if (concluida) {
+                    sincronizados = Math.max(sincronizados, alvo);
+                }
+                notifyAll(); // Se falhou, cada registro em espera tenta a própria sincronização
+            }
+        }
+    }
+
+    // Totais ainda não enviados do usuário, somados de forma otimista ao saldo exibido
+    public synchronized ResumoSaldo pendentes(int idUser) {
+        SomaDinheiro entradas = new SomaDinheiro();
+        SomaDinheiro saidas = new SomaDinheiro();
+        for (LancamentoPendente lancamento : fila) {
+            if (lancamento.getIdUser() == idUser) {
+                Transacao transacao = lancamento.getTransacao();
+                (transacao.getTipo() == TipoTransacao.RECEITA ? entradas : saidas).adicionar(transacao.getValor());
+            }
+        }
+        return new ResumoSaldo(entradas.total(), saidas.total());
+    }
+
+    public synchronized MetricasGravacao metricas() {
+        double latenciaMediaMs = lotesGravados == 0 ? 0 : latenciaTotalNanos / 1_000_000.0 / lotesGravados;
+        return new MetricasGravacao(fila.size(), maximoPendentes, lotesGravados, lancamentosGravados, rejeitados,
+                falhasConsecutivas, latenciaMediaMs, latenciaMaximaNanos / 1_000_000.0);
+    }
+
+    public Path getArquivoRejeitados() {
+        return diario.getArquivoRejeitados();
+    }
+
+    // Tenta esvaziar a fila antes de sair; o que sobrar fica no diário para a próxima execução
+    public void encerrar(long esperaMaximaMs) {
+        synchronized (this) {
+            encerrado = true;
+            notifyAll();
+        }
+        try {
+            if (escritor != null) {
+                escritor.join(esperaMaximaMs);
+                synchronized (this) {
+                    interrompido = true;
+                }
+                // O lote em andamento termina antes que banco e índice sejam fechados
+                escritor.join();
+            }
+            diario.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void enviar() {
+        long espera = ESPERA_INICIAL_MS;
+        while (true) {
+            List<LancamentoPendente> lote = new ArrayList<>(tamanhoLote);
+            synchronized (this) {
+                while (fila.isEmpty() && !encerrado) {
+                    aguardar(0);
+                }
+                if (fila.isEmpty() || interrompido) {
+                    return;
+                }
+                Iterator<LancamentoPendente> iterador = fila.iterator();
+                while (iterador.hasNext() && lote.size() < tamanhoLote) {
+                    lote.add(iterador.next());
+                }
+            }
+
+            try {
+                enviarLote(lote);
+                espera = ESPERA_INICIAL_MS;
+                aoGravar.run();
+            } catch (SQLException | IOException ex) {
+                // Um lote repetido não duplica nada: o banco ignora as chaves que já recebeu
+                synchronized (this) {
+                    falhasConsecutivas++;
+                    if (encerrado) {
+                        return;
+                    }
+                    System.err.println("Falha ao gravar " + lote.size() + " lançamento(s), nova tentativa em " + espera + "ms: " + ex.getMessage());
+                    long limite = System.currentTimeMillis() + espera;
+                    for (long restante = espera; restante > 0 && !encerrado; restante = limite - System.currentTimeMillis()) {
+                        aguardar(restante); // Novos registros não antecipam a tentativa
+                    }
+                }
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_MS);
+            }
+        }
+    }
+
+    // Envia o lote do início da fila. Se o banco o recusar de forma definitiva, reenvia um
+    // lançamento por vez para separar os recusados; os que já tinham chegado são ignorados
+    // pela chave de cliente. Uma falha passageira interrompe e deixa o resto na fila
+    private void enviarLote(List<LancamentoPendente> lote) throws SQLException, IOException {
+        long inicio = System.nanoTime();
+        try {
+            gravar(lote);
+        } catch (SQLException ex) {
+            if (!recusaDefinitiva(ex)) {
+                throw ex;
+            }
+            for (LancamentoPendente lancamento : lote) {
+                List<LancamentoPendente> unitario = Collections.singletonList(lancamento);
+                long inicioUnitario = System.nanoTime();
+                try {
+                    gravar(unitario);
+                } catch (SQLException exUnitario) {
+                    if (!recusaDefinitiva(exUnitario)) {
+                        throw exUnitario;
+                    }
+                    rejeitar(lancamento, exUnitario);
+                    continue;
+                }
+                confirmar(unitario, System.nanoTime() - inicioUnitario);
+            }
+            return;
+        }
+        confirmar(lote, System.nanoTime() - inicio);
+    }
+
+    // Erros de dado (SQLSTATE 22), de restrição (23) e de sintaxe ou acesso (42) se repetiriam a
+    // cada tentativa. Os lotes do JDBC trazem o erro original como causa ou próxima exceção
+    static boolean recusaDefinitiva(SQLException ex) {
+        Throwable causa = ex;
+        for (int profundidade = 0; causa != null && profundidade < 10; profundidade++) {
+            if (causa instanceof SQLDataException || causa instanceof SQLIntegrityConstraintViolationException
+                    || causa instanceof SQLSyntaxErrorException || causa instanceof DataTruncation) {
+                return true;
+            }
+            if (causa instanceof SQLException) {
+                String estado = ((SQLException) causa).getSQLState();
+                if (estado != null && (estado.startsWith("22") || estado.startsWith("23") || estado.startsWith("42"))) {
+                    return true;
+                }
+                SQLException proxima = ((SQLException) causa).getNextException();
+                causa = proxima != null ? proxima : causa.getCause();
+            } else {
+                causa = causa.getCause();
+            }
+        }
+        return false;
+    }
+
+    // Cada usuário do lote é gravado numa transação do banco própria, na ordem de registro
+    private void gravar(List<LancamentoPendente> lote) throws SQLException {
+        Map<Integer, List<LancamentoPendente>> porUsuario = new LinkedHashMap<>();
+        for (LancamentoPendente lancamento : lote) {
+            porUsuario.computeIfAbsent(lancamento.getIdUser(), idUser -> new ArrayList<>()).add(lancamento);
+        }
+        for (Map.Entry<Integer, List<LancamentoPendente>> lancamentos : porUsuario.entrySet()) {
+            transacaoRepository.inserirPendentes(lancamentos.getKey(), lancamentos.getValue());
+        }
+    }
+
+    private synchronized void confirmar(List<LancamentoPendente> lote, long latenciaNanos) throws IOException {
+        diario.confirmar(lote);
+        for (int i = 0; i < lote.size(); i++) {
+            fila.removeFirst();
+        }
+        esvaziarSePossivel();
+        lotesGravados++;
+        lancamentosGravados += lote.size();
+        falhasConsecutivas = 0;
+        latenciaTotalNanos += latenciaNanos;
+        latenciaMaximaNanos = Math.max(latenciaMaximaNanos, latenciaNanos);
+    }
+
+    // O arquivo de rejeitados é escrito só por esta thread, fora do monitor
+    private void rejeitar(LancamentoPendente lancamento, SQLException motivo) throws IOException {
+        diario.rejeitar(lancamento, motivo.getMessage());
+        System.err.println("Lançamento " + lancamento.getChave() + " recusado pelo banco e movido para "
+                + diario.getArquivoRejeitados() + ": " + motivo.getMessage());
+        synchronized (this) {
+            diario.confirmar(Collections.singletonList(lancamento));
+            fila.removeFirst();
+            esvaziarSePossivel();
+            rejeitados++;
+        }
+    }
+
+    // Mantém o diário pequeno quando nada nele está pendente nem a caminho do disco
+    private void esvaziarSePossivel() throws IOException {
+        if (fila.isEmpty() && aguardandoDisco == 0) {
+            diario.esvaziar();
+        }
+    }
+
+    private void aguardar(long milissegundos) {
+        try {
+            wait(milissegundos);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            encerrado = true;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Hash de senha com PBKDF2-HMAC-SHA256 e sal aleatório, gravado na coluna senha como
+// "pbkdf2-sha256$iteracoes$sal$hash" (Base64 sem preenchimento). O custo vem de
+// controlefinanceiro.senha.iteracoes; hashes feitos com outro custo continuam valendo e são
+// refeitos no próximo login. Valores sem o prefixo são senhas antigas em texto puro.
+final class HashSenha {
+    static final int ITERACOES_PADRAO = 210_000;
+
+    private static final String ALGORITMO = "pbkdf2-sha256";
+    private static final int BYTES_SAL = 16;
+    private static final int BITS_HASH = 256;
+    private static final Base64.Encoder CODIFICADOR = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getDecoder();
+
+    private final int iteracoes;
+    private final SecureRandom aleatorio = new SecureRandom();
+
+    public HashSenha() {
+        this(Integer.getInteger("controlefinanceiro.senha.iteracoes", ITERACOES_PADRAO));
+    }
+
+    public HashSenha(int iteracoes) {
+        if (iteracoes < 1) {
+            throw new IllegalArgumentException("Iterações inválidas: " + iteracoes);
+        }
+        this.iteracoes = iteracoes;
+    }
+
+    public int getIteracoes() {
+        return iteracoes;
+    }
+
+    public String gerar(String senha) {
+        byte[] sal = new byte[BYTES_SAL];
+        aleatorio.nextBytes(sal);
+        return ALGORITMO + "$" + iteracoes + "$" + CODIFICADOR.encodeToString(sal) + "$"
+                + CODIFICADOR.encodeToString(derivar(senha, sal, iteracoes));
+    }
+
+    // Comparação em tempo constante, para o tempo de resposta não revelar quanto da senha confere
+    public boolean conferir(String senha, String armazenado) {
+        if (!emHash(armazenado)) {
+            return MessageDigest.isEqual(senha.getBytes(StandardCharsets.UTF_8), armazenado.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] partes = armazenado.split("\\$");
+        if (partes.length != 4) {
+            return false;
+        }
+        try {
+            byte[] esperado = DECODIFICADOR.decode(partes[3]);
+            return MessageDigest.isEqual(esperado, derivar(senha, DECODIFICADOR.decode(partes[2]), Integer.parseInt(partes[1])));
+        } catch (IllegalArgumentException ex) {
+            return false; // Valor corrompido na coluna: nenhuma senha confere
+        }
+    }
+
+    // Texto puro ou custo diferente do configurado
+    public boolean precisaRefazer(String armazenado) {
+        return !armazenado.startsWith(ALGORITMO + "$" + iteracoes + "$");
+    }
+
+    static boolean emHash(String armazenado) {
+        return armazenado.startsWith(ALGORITMO + "$");
+    }
+
+    private static byte[] derivar(String senha, byte[] sal, int iteracoes) {
+        PBEKeySpec especificacao = new PBEKeySpec(senha.toCharArray(), sal, iteracoes, BITS_HASH);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(especificacao).getEncoded();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 indisponível", ex);
+        } finally {
+            especificacao.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Histograma de latências sem trava, em baldes log-lineares de microssegundos: oito baldes por
+// potência de dois, então p50/p99 saem com erro de até 12,5%, em memória fixa (~2,5 KB)
+final class HistogramaLatencia {
+    private static final int SUBDIVISOES = 8;
+    private static final int BALDES = 39 * SUBDIVISOES; // Até 2^40 µs, bem mais que qualquer consulta
+
+    private final AtomicLongArray baldes = new AtomicLongArray(BALDES);
+    private final LongAdder quantidade = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public void registrar(long nanos) {
+        baldes.incrementAndGet(indice(Math.max(0, nanos / 1000)));
+        quantidade.increment();
+        totalNanos.add(nanos);
+    }
+
+    public long getQuantidade() {
+        return quantidade.sum();
+    }
+
+    public double getMediaMs() {
+        long total = quantidade.sum();
+        return total == 0 ? 0 : totalNanos.sum() / (double) total / 1_000_000;
+    }
+
+    // Limite superior do balde onde cai a fração pedida das amostras (0,5 = mediana)
+    public double percentilMs(double fracao) {
+        long total = 0;
+        long[] contagens = new long[BALDES];
+        for (int i = 0; i < BALDES; i++) {
+            contagens[i] = baldes.get(i);
+            total += contagens[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long alvo = Math.max(1, (long) Math.ceil(fracao * total));
+        long acumulado = 0;
+        for (int i = 0; i < BALDES; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= alvo) {
+                return limiteSuperior(i) / 1000.0;
+            }
+        }
+        return limiteSuperior(BALDES - 1) / 1000.0;
+    }
+
+    private static int indice(long micros) {
+        if (micros < SUBDIVISOES) {
+            return (int) micros;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(micros);
+        int subdivisao = (int) (micros >>> (expoente - 3)) & (SUBDIVISOES - 1);
+        return Math.min(BALDES - 1, (expoente - 2) * SUBDIVISOES + subdivisao);
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < SUBDIVISOES) {
+            return indice;
+        }
+        int expoente = indice / SUBDIVISOES + 2;
+        return ((SUBDIVISOES + indice % SUBDIVISOES + 1L) << (expoente - 3)) - 1;
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Importa extratos bancários (CSV/OFX) lendo o arquivo em streaming e gravando em lotes
+// JDBC (addBatch/executeBatch), cada lote na sua própria transação do banco.
+class ImportadorExtrato {
+
+    interface Progresso {
+        void atualizar(RelatorioImportacao parcial);
+    }
+
+    private final TransacaoRepository transacaoRepository;
+    private final int tamanhoLote;
+
+    public ImportadorExtrato(TransacaoRepository transacaoRepository) {
+        this(transacaoRepository, Integer.getInteger("controlefinanceiro.importacao.lote", 1000));
+    }
+
+    public ImportadorExtrato(TransacaoRepository transacaoRepository, int tamanhoLote) {
+        this.transacaoRepository = transacaoRepository;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    public RelatorioImportacao importar(int idUser, LeitorExtrato leitor, Progresso progresso) throws IOException, SQLException {
+        RelatorioImportacao relatorio = new RelatorioImportacao();
+        long inicio = System.nanoTime();
+        List<Transacao> lote = new ArrayList<>(tamanhoLote);
+
+        while (true) {
+            Transacao transacao;
+            try {
+                transacao = leitor.proxima();
+            } catch (LinhaInvalidaException ex) {
+                relatorio.registrarInvalida(leitor.getLinha(), ex.getMessage());
+                continue;
+            }
+            if (transacao == null) {
+                break;
+            }
+            lote.add(transacao);
+            if (lote.size() == tamanhoLote) {
+                gravarLote(idUser, lote, relatorio, progresso);
+            }
+        }
+        if (!lote.isEmpty()) {
+            gravarLote(idUser, lote, relatorio, progresso);
+        }
+
+        relatorio.concluir(System.nanoTime() - inicio);
+        return relatorio;
+    }
+
+    private void gravarLote(int idUser, List<Transacao> lote, RelatorioImportacao relatorio, Progresso progresso) throws SQLException {
+        relatorio.registrarLote(lote.size(), transacaoRepository.inserirLote(idUser, lote));
+        lote.clear();
+        progresso.atualizar(relatorio);
+    }
+}
@@ -0,0 +1,207 @@
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Version;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Quebra a descrição em palavras, em minúsculas e sem acentos ("Pão de Açúcar" -> pao, de, acucar)
+class AnalisadorDescricoes extends Analyzer {
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
+        Tokenizer tokenizer = new StandardTokenizer(Version.LUCENE_45, reader);
+        TokenStream filtro = new LowerCaseFilter(Version.LUCENE_45, tokenizer);
+        return new TokenStreamComponents(tokenizer, new ASCIIFoldingFilter(filtro));
+    }
+}
+
+// Índice Lucene local das descrições das transações, usado no lugar de "descricao LIKE '%texto%'".
+// Cada palavra digitada casa com o início de uma palavra da descrição, ignorando acentos.
+// As alterações ficam visíveis na hora (busca quase em tempo real) e são gravadas em disco
+// periodicamente; divergências com o banco são corrigidas por reindexação no login.
+class IndiceDescricoes implements AutoCloseable {
+    static final int MAXIMO_RESULTADOS = 1000;
+
+    private static final String CAMPO_ID = "id";
+    private static final String CAMPO_ID_NUMERICO = "id_numerico"; // Doc values para a conferência com o banco
+    private static final String CAMPO_USUARIO = "usuario";
+    private static final String CAMPO_DESCRICAO = "descricao";
+
+    private final AnalisadorDescricoes analisador = new AnalisadorDescricoes();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final AtomicBoolean pendente = new AtomicBoolean();
+    private final ScheduledExecutorService gravacao = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "gravacao-indice");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IndiceDescricoes(Path diretorio) throws IOException {
+        IndexWriterConfig configuracao = new IndexWriterConfig(Version.LUCENE_45, analisador);
+        configuracao.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(FSDirectory.open(diretorio.toFile()), configuracao);
+        searcherManager = new SearcherManager(writer, true, null);
+        gravacao.scheduleWithFixedDelay(this::confirmar, 5, 5, TimeUnit.SECONDS);
+    }
+
+    // Um lote inteiro fica visível de uma vez, com um único refresh do leitor
+    public void adicionar(int idUser, List<Transacao> transacoes) throws IOException {
+        if (transacoes.isEmpty()) {
+            return;
+        }
+        for (Transacao transacao : transacoes) {
+            Document documento = new Document();
+            documento.add(new StringField(CAMPO_ID, String.valueOf(transacao.getId()), Field.Store.YES));
+            documento.add(new NumericDocValuesField(CAMPO_ID_NUMERICO, transacao.getId()));
+            documento.add(new StringField(CAMPO_USUARIO, String.valueOf(idUser), Field.Store.NO));
+            documento.add(new TextField(CAMPO_DESCRICAO, transacao.getDescricao(), Field.Store.NO));
+            writer.updateDocument(new Term(CAMPO_ID, String.valueOf(transacao.getId())), documento);
+        }
+        alterado();
+    }
+
+    public void remover(List<Long> ids) throws IOException {
+        Term[] termos = new Term[ids.size()];
+        for (int i = 0; i < termos.length; i++) {
+            termos[i] = new Term(CAMPO_ID, String.valueOf(ids.get(i)));
+        }
+        writer.deleteDocuments(termos);
+        alterado();
+    }
+
+    public void removerUsuario(int idUser) throws IOException {
+        writer.deleteDocuments(new Term(CAMPO_USUARIO, String.valueOf(idUser)));
+        alterado();
+    }
+
+    // Quantidade, maior id e soma dos ids dos documentos do usuário, para comparar com o banco.
+    // Documentos gravados antes do campo numérico contam como id 0, o que força a reindexação.
+    public ResumoIds resumir(int idUser) throws IOException {
+        long[] resumo = new long[3];
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            searcher.search(new TermQuery(new Term(CAMPO_USUARIO, String.valueOf(idUser))), new Collector() {
+                private NumericDocValues ids;
+
+                @Override
+                public void setScorer(Scorer scorer) {
+                }
+
+                @Override
+                public void collect(int doc) {
+                    long id = ids != null ? ids.get(doc) : 0;
+                    resumo[0]++;
+                    resumo[1] = Math.max(resumo[1], id);
+                    resumo[2] += id;
+                }
+
+                @Override
+                public void setNextReader(AtomicReaderContext context) throws IOException {
+                    ids = context.reader().getNumericDocValues(CAMPO_ID_NUMERICO);
+                }
+
+                @Override
+                public boolean acceptsDocsOutOfOrder() {
+                    return true;
+                }
+            });
+            return new ResumoIds(resumo[0], resumo[1], resumo[2]);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    // Ids das transações do usuário cuja descrição contém palavras começando com cada termo digitado.
+    // null quando o índice não responde a pesquisa: texto sem nenhuma palavra ("%%", "-") ou mais
+    // de MAXIMO_RESULTADOS transações encontradas; quem chama filtra com LIKE no banco.
+    public List<Long> buscar(int idUser, String texto) throws IOException {
+        BooleanQuery consulta = new BooleanQuery();
+        consulta.add(new TermQuery(new Term(CAMPO_USUARIO, String.valueOf(idUser))), BooleanClause.Occur.MUST);
+        try (TokenStream tokens = analisador.tokenStream(CAMPO_DESCRICAO, new StringReader(texto))) {
+            CharTermAttribute termo = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                consulta.add(new PrefixQuery(new Term(CAMPO_DESCRICAO, termo.toString())), BooleanClause.Occur.MUST);
+            }
+            tokens.end();
+        }
+        if (consulta.clauses().size() == 1) {
+            return null;
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs resultado = searcher.search(consulta, MAXIMO_RESULTADOS);
+            if (resultado.totalHits > MAXIMO_RESULTADOS) {
+                return null;
+            }
+            List<Long> ids = new ArrayList<>(resultado.scoreDocs.length);
+            for (ScoreDoc scoreDoc : resultado.scoreDocs) {
+                ids.add(Long.parseLong(searcher.doc(scoreDoc.doc).get(CAMPO_ID)));
+            }
+            return ids;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private void alterado() throws IOException {
+        pendente.set(true);
+        searcherManager.maybeRefresh();
+    }
+
+    // Grava em disco as alterações pendentes
+    public void confirmar() {
+        if (pendente.getAndSet(false)) {
+            try {
+                writer.commit();
+            } catch (IOException ex) {
+                pendente.set(true);
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        gravacao.shutdownNow();
+        confirmar();
+        searcherManager.close();
+        writer.close();
+    }
+}
@@ -0,0 +1,24 @@
+// Transação registrada no diário local e ainda não confirmada no banco
+class LancamentoPendente {
+    private final String chave;
+    private final int idUser;
+    private final Transacao transacao;
+
+    public LancamentoPendente(String chave, int idUser, Transacao transacao) {
+        this.chave = chave;
+        this.idUser = idUser;
+        this.transacao = transacao;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    public int getIdUser() {
+        return idUser;
+    }
+
+    public Transacao getTransacao() {
+        return transacao;
+    }
+}
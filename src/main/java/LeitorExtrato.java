@@ -0,0 +1,223 @@
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.Locale;
+
+// Leitura sequencial (streaming) de um extrato bancário, uma transação por vez
+interface LeitorExtrato extends Closeable {
+
+    // Próxima transação do arquivo, ou null ao final
+    Transacao proxima() throws IOException, LinhaInvalidaException;
+
+    // Posição atual no arquivo, usada nas mensagens de erro
+    long getLinha();
+
+    static LeitorExtrato abrir(Path arquivo) throws IOException {
+        String nome = arquivo.getFileName().toString().toLowerCase(Locale.ROOT);
+        // Extratos de bancos brasileiros costumam vir em ISO-8859-1; OFX declara o charset no cabeçalho
+        BufferedReader reader = Files.newBufferedReader(arquivo, nome.endsWith(".ofx") ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        return nome.endsWith(".ofx") ? new LeitorOfx(reader) : new LeitorCsv(reader);
+    }
+
+    static Dinheiro converterValor(String texto) throws LinhaInvalidaException {
+        String valor = texto.trim().replace("R$", "").replace(" ", "");
+        if (valor.contains(",")) {
+            valor = valor.replace(".", "").replace(",", "."); // Formato brasileiro: 1.234,56
+        }
+        try {
+            return Dinheiro.de(valor);
+        } catch (NumberFormatException ex) {
+            throw new LinhaInvalidaException("valor inválido: " + texto);
+        }
+    }
+
+    static LocalDate converterData(String texto) throws LinhaInvalidaException {
+        String data = texto.trim();
+        try {
+            if (data.contains("/")) {
+                return LocalDate.parse(data, DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+            }
+            if (data.length() >= 8 && data.substring(0, 8).chars().allMatch(Character::isDigit)) {
+                return LocalDate.parse(data.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE); // OFX: 20240115120000[-3:BRT]
+            }
+            return LocalDate.parse(data);
+        } catch (DateTimeParseException ex) {
+            throw new LinhaInvalidaException("data inválida: " + texto);
+        }
+    }
+
+    // Valores negativos sem tipo explícito são despesas
+    static Transacao criarTransacao(String descricao, Dinheiro valor, TipoTransacao tipo, LocalDate data) throws LinhaInvalidaException {
+        if (descricao == null || descricao.trim().isEmpty()) {
+            throw new LinhaInvalidaException("descrição vazia");
+        }
+        if (valor.signum() == 0) {
+            throw new LinhaInvalidaException("valor zerado");
+        }
+        if (tipo == null) {
+            tipo = valor.signum() < 0 ? TipoTransacao.DESPESA : TipoTransacao.RECEITA;
+        }
+        return new Transacao(0, descricao.trim(), valor.abs(), tipo, data);
+    }
+}
+
+// CSV com cabeçalho contendo as colunas data, descricao e valor (tipo é opcional).
+// O separador (";" ou ",") é detectado pela primeira linha.
+class LeitorCsv implements LeitorExtrato {
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> registros;
+    private long linha;
+
+    public LeitorCsv(BufferedReader reader) throws IOException {
+        reader.mark(8192);
+        String cabecalho = reader.readLine();
+        reader.reset();
+        char separador = cabecalho != null && cabecalho.indexOf(';') >= 0 ? ';' : ',';
+
+        parser = CSVFormat.DEFAULT.withDelimiter(separador).withFirstRecordAsHeader()
+                .withIgnoreHeaderCase().withIgnoreEmptyLines().withTrim().parse(reader);
+        registros = parser.iterator();
+    }
+
+    @Override
+    public Transacao proxima() throws LinhaInvalidaException {
+        if (!registros.hasNext()) {
+            return null;
+        }
+        CSVRecord registro = registros.next();
+        linha = registro.getRecordNumber() + 1; // +1 pelo cabeçalho
+        try {
+            Dinheiro valor = LeitorExtrato.converterValor(registro.get("valor"));
+            LocalDate data = LeitorExtrato.converterData(registro.get("data"));
+            TipoTransacao tipo = null;
+            if (parser.getHeaderMap().containsKey("tipo") && !registro.get("tipo").isEmpty()) {
+                tipo = TipoTransacao.valueOf(registro.get("tipo").toUpperCase(Locale.ROOT));
+            }
+            return LeitorExtrato.criarTransacao(registro.get("descricao"), valor, tipo, data);
+        } catch (IllegalArgumentException ex) {
+            throw new LinhaInvalidaException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public long getLinha() {
+        return linha;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
+
+// OFX (SGML ou XML): cada bloco <STMTTRN> vira uma transação.
+// O arquivo é lido marcação por marcação, sem carregar o documento inteiro.
+class LeitorOfx implements LeitorExtrato {
+    private final BufferedReader reader;
+    private long linha = 1;
+    private long transacao;
+
+    public LeitorOfx(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Transacao proxima() throws IOException, LinhaInvalidaException {
+        String marcacao;
+        while ((marcacao = lerMarcacao()) != null && !marcacao.equals("STMTTRN")) {
+            // Ignora o cabeçalho e os blocos que não são transações
+        }
+        if (marcacao == null) {
+            return null;
+        }
+        transacao++;
+
+        String valor = null;
+        String data = null;
+        String memo = null;
+        String nome = null;
+        while ((marcacao = lerMarcacao()) != null && !marcacao.equals("/STMTTRN")) {
+            switch (marcacao) {
+                case "TRNAMT":
+                    valor = lerTexto();
+                    break;
+                case "DTPOSTED":
+                    data = lerTexto();
+                    break;
+                case "MEMO":
+                    memo = lerTexto();
+                    break;
+                case "NAME":
+                    nome = lerTexto();
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (valor == null || data == null) {
+            throw new LinhaInvalidaException("transação " + transacao + " sem TRNAMT ou DTPOSTED");
+        }
+        String descricao = memo != null && !memo.isEmpty() ? memo : nome;
+        return LeitorExtrato.criarTransacao(descricao, LeitorExtrato.converterValor(valor), null, LeitorExtrato.converterData(data));
+    }
+
+    // Nome da próxima marcação (sem "<" e ">"), ou null ao final do arquivo
+    private String lerMarcacao() throws IOException {
+        int c;
+        while ((c = ler()) != -1 && c != '<') {
+            // Avança até a próxima marcação
+        }
+        if (c == -1) {
+            return null;
+        }
+        StringBuilder nome = new StringBuilder();
+        while ((c = ler()) != -1 && c != '>') {
+            nome.append((char) c);
+        }
+        return nome.toString().trim().toUpperCase(Locale.ROOT);
+    }
+
+    // Texto logo após a marcação, até a próxima "<" (que fica para a próxima leitura)
+    private String lerTexto() throws IOException {
+        StringBuilder texto = new StringBuilder();
+        reader.mark(1);
+        int c;
+        while ((c = ler()) != -1 && c != '<') {
+            texto.append((char) c);
+            reader.mark(1);
+        }
+        if (c == '<') {
+            reader.reset();
+        }
+        return texto.toString().trim();
+    }
+
+    private int ler() throws IOException {
+        int c = reader.read();
+        if (c == '\n') {
+            linha++;
+        }
+        return c;
+    }
+
+    @Override
+    public long getLinha() {
+        return linha;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,6 @@
+// Linha do extrato que não pôde ser convertida em transação
+class LinhaInvalidaException extends Exception {
+    public LinhaInvalidaException(String mensagem) {
+        super(mensagem);
+    }
+}
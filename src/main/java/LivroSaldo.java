@@ -0,0 +1,106 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Livro-razão com o saldo acumulado de cada usuário (tabela saldo_usuario).
+// Os lançamentos são aplicados de forma incremental na mesma transação do banco que
+// altera a tabela transacoes; a varredura completa só acontece na reconciliação.
+// Nenhuma gravação concorrente se perde: os lançamentos só somam ao que está na linha, e a
+// linha só é sobrescrita na reconciliação, com ela travada antes de somar as transações.
+class LivroSaldo {
+
+    // Soma (ou subtrai, com valor negativo) um lançamento no saldo do usuário. A linha que ainda
+    // não existe é criada com o lançamento: a migração já criou a dos usuários com transações
+    public void lancar(Connection conexao, int idUser, TipoTransacao tipo, Dinheiro valor) throws SQLException {
+        String coluna = tipo == TipoTransacao.RECEITA ? "total_receitas" : "total_despesas";
+        String sql = "INSERT INTO saldo_usuario (IdUser, " + coluna + ") VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE " + coluna + " = " + coluna + " + VALUES(" + coluna + ")";
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setInt(1, idUser);
+            statement.setBigDecimal(2, valor.paraBigDecimal());
+            statement.executeUpdate();
+        }
+    }
+
+    public void zerar(Connection conexao, int idUser) throws SQLException {
+        gravar(conexao, idUser, ResumoSaldo.ZERO);
+    }
+
+    // Sem linha gravada, ela é criada a partir das transações num único comando, que não faz nada
+    // se um lançamento concorrente criou a linha antes (a soma dele já está nela)
+    public ResumoSaldo carregar(Connection conexao, int idUser) throws SQLException {
+        ResumoSaldo resumo = ler(conexao, idUser, false);
+        if (resumo == null) {
+            String sql = "INSERT INTO saldo_usuario (IdUser, total_receitas, total_despesas) "
+                    + "SELECT ?, COALESCE(SUM(CASE WHEN tipo = 'RECEITA' THEN valor ELSE 0 END), 0), "
+                    + "COALESCE(SUM(CASE WHEN tipo = 'RECEITA' THEN 0 ELSE valor END), 0) FROM transacoes WHERE IdUser = ? "
+                    + "ON DUPLICATE KEY UPDATE IdUser = IdUser";
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                statement.setInt(2, idUser);
+                statement.executeUpdate();
+            }
+            resumo = ler(conexao, idUser, false);
+        }
+        return resumo;
+    }
+
+    // Reconstrói o saldo a partir de todas as transações do usuário e informa a divergência
+    // Deve ser o primeiro comando da transação de quem chama: a linha é travada antes da soma, então
+    // lançamentos em andamento terminam antes dela e os seguintes esperam o commit e somam ao resultado
+    public Reconciliacao reconciliar(Connection conexao, int idUser) throws SQLException {
+        String sqlLinha = "INSERT INTO saldo_usuario (IdUser, total_receitas, total_despesas) VALUES (?, 0, 0) "
+                + "ON DUPLICATE KEY UPDATE IdUser = IdUser";
+        try (PreparedStatement statement = conexao.prepareStatement(sqlLinha)) {
+            statement.setInt(1, idUser);
+            statement.executeUpdate();
+        }
+        ResumoSaldo gravado = ler(conexao, idUser, true);
+
+        Dinheiro totalEntradas = Dinheiro.ZERO;
+        Dinheiro totalSaidas = Dinheiro.ZERO;
+        String sql = "SELECT tipo, SUM(valor) AS total FROM transacoes WHERE IdUser = ? GROUP BY tipo";
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setInt(1, idUser);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    Dinheiro total = Dinheiro.de(resultSet.getBigDecimal("total"));
+                    if (TipoTransacao.valueOf(resultSet.getString("tipo")) == TipoTransacao.RECEITA) {
+                        totalEntradas = totalEntradas.somar(total);
+                    } else {
+                        totalSaidas = totalSaidas.somar(total);
+                    }
+                }
+            }
+        }
+
+        ResumoSaldo recalculado = new ResumoSaldo(totalEntradas, totalSaidas);
+        gravar(conexao, idUser, recalculado);
+        return new Reconciliacao(gravado, recalculado);
+    }
+
+    private ResumoSaldo ler(Connection conexao, int idUser, boolean travar) throws SQLException {
+        String sql = "SELECT total_receitas, total_despesas FROM saldo_usuario WHERE IdUser = ?" + (travar ? " FOR UPDATE" : "");
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setInt(1, idUser);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return new ResumoSaldo(Dinheiro.de(resultSet.getBigDecimal("total_receitas")), Dinheiro.de(resultSet.getBigDecimal("total_despesas")));
+                }
+            }
+        }
+        return null;
+    }
+
+    private void gravar(Connection conexao, int idUser, ResumoSaldo resumo) throws SQLException {
+        String sql = "INSERT INTO saldo_usuario (IdUser, total_receitas, total_despesas) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE total_receitas = VALUES(total_receitas), total_despesas = VALUES(total_despesas)";
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setInt(1, idUser);
+            statement.setBigDecimal(2, resumo.getEntradas().paraBigDecimal());
+            statement.setBigDecimal(3, resumo.getSaidas().paraBigDecimal());
+            statement.executeUpdate();
+        }
+    }
+}
@@ -1,77 +1,35 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionListener;
-import java.math.BigDecimal;
 import java.sql.*;
-import java.text.DecimalFormat;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import net.sf.jasperreports.engine.*;
 import net.sf.jasperreports.swing.JRViewer;
 
-// Enum para representar os tipos de transação
-enum TipoTransacao {
-    RECEITA, DESPESA
-}
-
-// Classe que representa uma transação
-class Transacao {
-    private final String descricao;
-    private final BigDecimal valor;
-    private final TipoTransacao tipo;
-    private final LocalDate data;
-
-    public Transacao(String descricao, BigDecimal valor, TipoTransacao tipo) {
-        this.descricao = descricao;
-        this.valor = valor;
-        this.tipo = tipo;
-        this.data = LocalDate.now(); // Data atual
-    }
-
-    public String getDescricao() {
-        return descricao;
-    }
-
-    public BigDecimal getValor() {
-        return valor;
-    }
-
-    public TipoTransacao getTipo() {
-        return tipo;
-    }
-
-    public LocalDate getData() {
-        return data;
-    }
-}
-
 // Classe principal do aplicativo de controle financeiro
 class ControleFinanceiro extends JFrame {
-    private final List<Transacao> transacoes;
-    private BigDecimal saldo;
-    private BigDecimal entradas;
-    private BigDecimal saidas;
+    private ResumoSaldo resumoSaldo;
     private JLabel saldoLabel;
-    private Connection conexao;
-    private final DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
-    private int usuarioLogado;
+    // Regras de negócio e acesso ao banco; esta janela é só um dos clientes do serviço. Ele sobe
+    // em segundo plano enquanto a tela de login é exibida e só é usado depois do login
+    private final CompletableFuture<ServicoFinanceiro> servicoPronto = new CompletableFuture<>();
+    private ServicoFinanceiro servico;
+    private SessaoUsuario sessao;
+    private TarefaSegundoPlano<?> tarefaSaldo;
 
     // Declaração da variável tabelaTransacoes
     private JTable tabelaTransacoes;
+    private ModeloTabelaTransacoes modeloTabela;
 
     public ControleFinanceiro() {
-        transacoes = new ArrayList<>();
-        saldo = BigDecimal.ZERO;
-        entradas = BigDecimal.ZERO;
-        saidas = BigDecimal.ZERO;
+        resumoSaldo = ResumoSaldo.ZERO;
 
         mostrarTelaLogin();
-        conectarBanco();
+        MarcasInicializacao.marcar("tela de login");
+        iniciarServico();
     }
 
     public void mostrarTelaLogin() {
@@ -85,19 +43,7 @@ class ControleFinanceiro extends JFrame {
         JPasswordField campoSenha = new JPasswordField();
 
         JButton botaoEntrar = new JButton("Entrar");
-        botaoEntrar.addActionListener(e -> {
-            String usuario = campoUsuario.getText();
-            String senha = new String(campoSenha.getPassword());
-            if (validarLogin(usuario, senha)) {
-                telaLogin.dispose();
-                initComponents();
-                atualizarSaldo();
-                atualizarLabelSaldo();
-
-            } else {
-                JOptionPane.showMessageDialog(telaLogin, "Usuário ou senha inválidos.", "Erro", JOptionPane.ERROR_MESSAGE);
-            }
-        });
+        botaoEntrar.addActionListener(e -> validarLogin(telaLogin, botaoEntrar, campoUsuario.getText(), new String(campoSenha.getPassword())));
 
         JButton botaoNovoUsuario = new JButton("Novo Usuário");
         botaoNovoUsuario.addActionListener(e -> mostrarTelaRegistro(telaLogin));
@@ -132,13 +78,7 @@ class ControleFinanceiro extends JFrame {
             if (novoUsuario.isEmpty() || novaSenha.isEmpty()) {
                 JOptionPane.showMessageDialog(telaRegistro, "Usuário e senha não podem estar vazios.", "Erro", JOptionPane.ERROR_MESSAGE);
             } else {
-                if (registrarNovoUsuario(novoUsuario, novaSenha)) {
-                    JOptionPane.showMessageDialog(telaRegistro, "Usuário registrado com sucesso.");
-                    telaRegistro.dispose();
-                    telaLogin.setVisible(true);
-                } else {
-                    JOptionPane.showMessageDialog(telaRegistro, "Erro ao registrar novo usuário.", "Erro", JOptionPane.ERROR_MESSAGE);
-                }
+                registrarNovoUsuario(telaLogin, telaRegistro, botaoRegistrar, novoUsuario, novaSenha);
             }
         });
 
@@ -157,34 +97,62 @@ class ControleFinanceiro extends JFrame {
     }
 
 
-    private boolean validarLogin(String usuario, String senha) {
-        String sql = "SELECT * FROM usuario WHERE nome = ? AND senha = ?";
-        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
-            statement.setString(1, usuario);
-            statement.setString(2, senha);
-            try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    usuarioLogado = resultSet.getInt("idUser");
-                    return true;
-                }
-            }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao validar login: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-        }
-        return false;
-    }
-
-    private boolean registrarNovoUsuario(String usuario, String senha) {
-        String sql = "INSERT INTO usuario (nome, senha) VALUES (?, ?)";
-        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
-            statement.setString(1, usuario);
-            statement.setString(2, senha);
-            statement.executeUpdate();
-            return true;
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao registrar novo usuário: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
+    // O hash da senha e o banco ficam fora da EDT; se o serviço ainda estiver subindo, o login espera por ele
+    private void validarLogin(JFrame telaLogin, JButton botaoEntrar, String usuario, String senha) {
+        botaoEntrar.setEnabled(false);
+        new TarefaSegundoPlano<SessaoUsuario>(
+                andamento -> {
+                    if (!servicoPronto.isDone()) {
+                        andamento.accept("Conectando...");
+                    }
+                    // A sessão da janela não expira; termina no logout
+                    return servicoPronto.join().entrar(usuario, senha, 0);
+                },
+                botaoEntrar::setText,
+                novaSessao -> {
+                    botaoEntrar.setText("Entrar");
+                    botaoEntrar.setEnabled(true);
+                    if (novaSessao == null) {
+                        JOptionPane.showMessageDialog(telaLogin, "Usuário ou senha inválidos.", "Erro", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    servico = servicoPronto.join();
+                    sessao = novaSessao;
+                    telaLogin.dispose();
+                    initComponents();
+                    atualizarSaldo();
+                },
+                ex -> {
+                    botaoEntrar.setText("Entrar");
+                    botaoEntrar.setEnabled(true);
+                    JOptionPane.showMessageDialog(telaLogin, "Erro ao validar login: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                }).execute();
+    }
+
+    // Como no login, o hash da senha e o cadastro (local ou no servidor) ficam fora da EDT
+    private void registrarNovoUsuario(JFrame telaLogin, JFrame telaRegistro, JButton botaoRegistrar, String usuario, String senha) {
+        botaoRegistrar.setEnabled(false);
+        new TarefaSegundoPlano<>(
+                andamento -> {
+                    if (!servicoPronto.isDone()) {
+                        andamento.accept("Conectando...");
+                    }
+                    servicoPronto.join().registrarUsuario(usuario, senha);
+                    return usuario;
+                },
+                botaoRegistrar::setText,
+                registrado -> {
+                    botaoRegistrar.setText("Registrar");
+                    botaoRegistrar.setEnabled(true);
+                    JOptionPane.showMessageDialog(telaRegistro, "Usuário registrado com sucesso.");
+                    telaRegistro.dispose();
+                    telaLogin.setVisible(true);
+                },
+                ex -> {
+                    botaoRegistrar.setText("Registrar");
+                    botaoRegistrar.setEnabled(true);
+                    JOptionPane.showMessageDialog(telaRegistro, "Erro ao registrar novo usuário: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                }).execute();
     }
 
     private void initComponents() {
@@ -216,6 +184,9 @@ class ControleFinanceiro extends JFrame {
 
         painelBotoes.add(criarBotao("Registrar Transação", e -> abrirJanelaTransacao()));
         painelBotoes.add(criarBotao("Visualizar Transações", e -> abrirJanelaVisualizarTransacoes()));
+        painelBotoes.add(criarBotao("Painel Mensal", e -> abrirPainelResumo()));
+        painelBotoes.add(criarBotao("Importar Extrato", e -> importarExtrato()));
+        painelBotoes.add(criarBotao("Reconciliar Saldo", e -> reconciliarSaldo()));
         painelBotoes.add(criarBotao("Logout", e -> logout()));
         painelBotoes.add(criarBotao("Sair", e -> System.exit(0)));
         painelBotoes.setBorder(BorderFactory.createEmptyBorder(20, 0, 20, 0)); // Margens no painel de botões
@@ -229,10 +200,14 @@ class ControleFinanceiro extends JFrame {
     }
 
     private void logout() {
-        // Reinicializa as variáveis de saldo, entradas e saídas
-        saldo = BigDecimal.ZERO;
-        entradas = BigDecimal.ZERO;
-        saidas = BigDecimal.ZERO;
+        if (tarefaSaldo != null) {
+            tarefaSaldo.cancel(false);
+        }
+        servico.sair(sessao);
+        sessao = null;
+
+        // Reinicializa o saldo, as entradas e as saídas
+        resumoSaldo = ResumoSaldo.ZERO;
 
         // Limpa o texto do saldoLabel
         saldoLabel.setText("");
@@ -267,11 +242,9 @@ class ControleFinanceiro extends JFrame {
         JButton botaoConfirmar = criarBotao("Confirmar", ev -> {
             try {
                 String valorTexto = campoValor.getText().replace(",", "."); // Substitui vírgula por ponto
-                BigDecimal valor = new BigDecimal(valorTexto);
+                Dinheiro valor = Dinheiro.deExato(valorTexto);
                 Transacao transacao = new Transacao(campoDescricao.getText(), valor, (TipoTransacao) comboTipo.getSelectedItem());
-                registrarTransacao(transacao);
-                JOptionPane.showMessageDialog(janelaTransacao, "Transação registrada com sucesso.");
-                janelaTransacao.dispose();
+                registrarTransacao(transacao, janelaTransacao, (JButton) ev.getSource());
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(janelaTransacao, "Por favor, insira um valor válido.", "Erro", JOptionPane.ERROR_MESSAGE);
             }
@@ -290,6 +263,44 @@ class ControleFinanceiro extends JFrame {
         janelaTransacao.setVisible(true);
     }
 
+    // O painel lê apenas a consolidação mensal, nunca a tabela de transações
+    private void abrirPainelResumo() {
+        SessaoUsuario sessaoAtual = sessao;
+        new TarefaSegundoPlano<>(
+                andamento -> servico.resumoMensal(sessaoAtual),
+                mensagem -> { },
+                totais -> new PainelResumo(this, totais).setVisible(true),
+                ex -> JOptionPane.showMessageDialog(this, "Erro ao carregar o painel: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE)).execute();
+    }
+
+    // Importa um extrato CSV ou OFX em segundo plano, mostrando o andamento no rótulo de saldo
+    private void importarExtrato() {
+        JFileChooser seletor = new JFileChooser();
+        seletor.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Extratos (CSV, OFX)", "csv", "ofx"));
+        if (seletor.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.nio.file.Path arquivo = seletor.getSelectedFile().toPath();
+        SessaoUsuario sessaoAtual = sessao;
+
+        new TarefaSegundoPlano<>(
+                andamento -> {
+                    try (LeitorExtrato leitor = LeitorExtrato.abrir(arquivo)) {
+                        return servico.importar(sessaoAtual, leitor,
+                                parcial -> andamento.accept("Importando... " + parcial.getLidas() + " linhas lidas"));
+                    }
+                },
+                this::mostrarAndamentoSaldo,
+                relatorio -> {
+                    atualizarSaldo();
+                    JOptionPane.showMessageDialog(this, relatorio.toString(), "Importação concluída", JOptionPane.INFORMATION_MESSAGE);
+                },
+                ex -> {
+                    atualizarSaldo();
+                    JOptionPane.showMessageDialog(this, "Erro ao importar extrato: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                }).execute();
+    }
+
     private void adicionarCampoEntrada(JPanel painel, GridBagConstraints gbc, String rotulo, JComponent campo) {
         gbc.gridx = 0;
         gbc.gridy++;
@@ -317,6 +328,26 @@ class ControleFinanceiro extends JFrame {
         JComboBox<TipoTransacao> comboTipo = new JComboBox<>(TipoTransacao.values());
         JButton botaoPesquisar = criarBotao("Pesquisar", ev -> atualizarTabelaTransacoes(campoDescricao.getText(), campoDataInicio.getText(), campoDataFim.getText(), (TipoTransacao) comboTipo.getSelectedItem()));
 
+        // Pesquisa enquanto digita, esperando uma pausa de 300 ms entre as teclas
+        Timer pesquisaAoDigitar = new Timer(300, ev -> botaoPesquisar.doClick());
+        pesquisaAoDigitar.setRepeats(false);
+        campoDescricao.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                pesquisaAoDigitar.restart();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                pesquisaAoDigitar.restart();
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                pesquisaAoDigitar.restart();
+            }
+        });
+
         adicionarCampoEntrada(painelFiltros, gbc, "Descrição:", campoDescricao);
         adicionarCampoEntrada(painelFiltros, gbc, "Data Início (yyyy-mm-dd):", campoDataInicio);
         adicionarCampoEntrada(painelFiltros, gbc, "Data Fim (yyyy-mm-dd):", campoDataFim);
@@ -324,17 +355,9 @@ class ControleFinanceiro extends JFrame {
         adicionarCampoEntrada(painelFiltros, gbc, "", botaoPesquisar);
 
         // Tabela de transações
-        String[] colunas = {"Descrição", "Valor (R$)", "Tipo", "Data", ""}; // Coluna de checkbox sem título
-        DefaultTableModel modeloTabela = new DefaultTableModel(colunas, 0);
-        tabelaTransacoes = new JTable(modeloTabela) {
-            @Override
-            public Class<?> getColumnClass(int column) {
-                if (column == 4) {
-                    return Boolean.class;
-                }
-                return super.getColumnClass(column);
-            }
-        };
+        // Linhas carregadas sob demanda, página a página, conforme a rolagem
+        modeloTabela = new ModeloTabelaTransacoes(servico, sessao);
+        tabelaTransacoes = new JTable(modeloTabela);
         tabelaTransacoes.setRowHeight(25); // Aumenta a altura das linhas da tabela
 
         JScrollPane scrollPaneTabela = new JScrollPane(tabelaTransacoes);
@@ -342,6 +365,12 @@ class ControleFinanceiro extends JFrame {
         // Botão de gerar PDF
         JButton botaoGerarPdf = criarBotao("Gerar extrato", ev -> gerarRelatorioPDF(campoDataInicio.getText(), campoDataFim.getText(), (TipoTransacao) comboTipo.getSelectedItem()));
 
+        // Botão de salvar o extrato direto em arquivo, sem abrir o visualizador
+        JButton botaoSalvarPdf = criarBotao("Salvar extrato em PDF", ev -> salvarRelatorioPDF(campoDataInicio.getText(), campoDataFim.getText(), (TipoTransacao) comboTipo.getSelectedItem()));
+
+        // Botão de exportar todo o histórico filtrado em CSV ou no formato binário, sem limite de linhas
+        JButton botaoExportar = criarBotao("Exportar transações", ev -> exportarTransacoes(campoDescricao.getText(), campoDataInicio.getText(), campoDataFim.getText(), (TipoTransacao) comboTipo.getSelectedItem()));
+
         // Botão de excluir transações selecionadas
         JButton botaoExcluir = criarBotao("Excluir Selecionadas", ev -> excluirTransacoesSelecionadas());
 
@@ -350,9 +379,17 @@ class ControleFinanceiro extends JFrame {
 
         // Botão de voltar
         JButton botaoVoltar = criarBotao("Voltar", ev -> janelaVisualizarTransacoes.dispose());
+        janelaVisualizarTransacoes.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                modeloTabela.encerrar();
+            }
+        });
 
         JPanel painelBotoesInferiores = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 20)); // Espaçamento entre os botões
         painelBotoesInferiores.add(botaoGerarPdf);
+        painelBotoesInferiores.add(botaoSalvarPdf);
+        painelBotoesInferiores.add(botaoExportar);
         painelBotoesInferiores.add(botaoExcluir);
         painelBotoesInferiores.add(botaoLimparDados);
         painelBotoesInferiores.add(botaoVoltar);
@@ -367,124 +404,77 @@ class ControleFinanceiro extends JFrame {
     }
 
     private void atualizarTabelaTransacoes(String descricao, String dataInicio, String dataFim, TipoTransacao tipo) {
-        DefaultTableModel modeloTabela = (DefaultTableModel) tabelaTransacoes.getModel();
-        modeloTabela.setRowCount(0); // Limpar tabela
-
-        String sql = "SELECT descricao, valor, tipo, data FROM transacoes WHERE IdUser = ?";
-        if (!descricao.isEmpty()) {
-            sql += " AND descricao LIKE ?";
-        }
-        if (!dataInicio.isEmpty()) {
-            sql += " AND data >= ?";
-        }
-        if (!dataFim.isEmpty()) {
-            sql += " AND data <= ?";
-        }
-        if (tipo != null) {
-            sql += " AND tipo = ?";
-        }
-
-        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
-            statement.setInt(1, usuarioLogado); // Define o idUser
-            int parameterIndex = 2;
-
-            if (!descricao.isEmpty()) {
-                statement.setString(parameterIndex++, "%" + descricao + "%");
-            }
-            if (!dataInicio.isEmpty()) {
-                statement.setString(parameterIndex++, dataInicio);
-            }
-            if (!dataFim.isEmpty()) {
-                statement.setString(parameterIndex++, dataFim);
-            }
-            if (tipo != null) {
-                statement.setString(parameterIndex++, tipo.name());
-            }
-
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
-                    String descricaoTransacao = resultSet.getString("descricao");
-                    BigDecimal valor = resultSet.getBigDecimal("valor");
-                    TipoTransacao tipoTransacao = TipoTransacao.valueOf(resultSet.getString("tipo"));
-                    LocalDate data = resultSet.getDate("data").toLocalDate();
-
-                    modeloTabela.addRow(new Object[]{descricaoTransacao, valor, tipoTransacao, data, false});
-                }
-            }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao carregar transações: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        LocalDate inicio;
+        LocalDate fim;
+        try {
+            inicio = converterData(dataInicio);
+            fim = converterData(dataFim);
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Data inválida: " + ex.getParsedString(), "Erro", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        modeloTabela.aplicarFiltro(new FiltroTransacao(descricao, inicio, fim, tipo));
     }
 
 
 
 
     private void excluirTransacoesSelecionadas() {
-        DefaultTableModel modeloTabela = (DefaultTableModel) tabelaTransacoes.getModel();
-        List<Integer> linhasParaExcluir = new ArrayList<>();
+        List<Long> selecionadas = modeloTabela.getSelecionadas();
 
-        for (int i = 0; i < modeloTabela.getRowCount(); i++) {
-            Boolean excluir = (Boolean) modeloTabela.getValueAt(i, 4);
-            if (excluir != null && excluir) {
-                linhasParaExcluir.add(i);
-            }
-        }
-
-        if (linhasParaExcluir.isEmpty()) {
+        if (selecionadas.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Nenhuma transação selecionada para exclusão.", "Aviso", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
         int confirmacao = JOptionPane.showConfirmDialog(this, "Tem certeza de que deseja excluir as transações selecionadas?", "Confirmação", JOptionPane.YES_NO_OPTION);
         if (confirmacao == JOptionPane.YES_OPTION) {
-            try {
-                conexao.setAutoCommit(false);
-                for (int i = linhasParaExcluir.size() - 1; i >= 0; i--) {
-                    int linha = linhasParaExcluir.get(i);
-                    String descricao = (String) modeloTabela.getValueAt(linha, 0);
-                    BigDecimal valor = (BigDecimal) modeloTabela.getValueAt(linha, 1);
-                    TipoTransacao tipo = (TipoTransacao) modeloTabela.getValueAt(linha, 2);
-                    LocalDate data = (LocalDate) modeloTabela.getValueAt(linha, 3);
-
-                    String sql = "DELETE FROM transacoes WHERE descricao = ? AND valor = ? AND tipo = ? AND data = ?";
-                    try (PreparedStatement statement = conexao.prepareStatement(sql)) {
-                        statement.setString(1, descricao);
-                        statement.setBigDecimal(2, valor);
-                        statement.setString(3, tipo.name());
-                        statement.setDate(4, Date.valueOf(data));
-                        statement.executeUpdate();
-                    }
-
-                    modeloTabela.removeRow(linha); // Remover da tabela após excluir do banco
-                }
-                conexao.commit();
-                conexao.setAutoCommit(true);
-                atualizarSaldo();
-                JOptionPane.showMessageDialog(this, "Transações excluídas com sucesso.");
-            } catch (SQLException ex) {
-                try {
-                    conexao.rollback();
-                } catch (SQLException rollbackEx) {
-                    rollbackEx.printStackTrace();
-                }
-                JOptionPane.showMessageDialog(this, "Erro ao excluir transações: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            SessaoUsuario sessaoAtual = sessao;
+            new TarefaSegundoPlano<>(
+                    andamento -> {
+                        andamento.accept("Excluindo " + selecionadas.size() + " transações...");
+                        servico.excluir(sessaoAtual, selecionadas);
+                        return selecionadas.size();
+                    },
+                    this::mostrarAndamentoSaldo,
+                    excluidas -> {
+                        modeloTabela.recarregar(); // Recarrega a contagem e as páginas após excluir do banco
+                        atualizarSaldo();
+                        JOptionPane.showMessageDialog(this, "Transações excluídas com sucesso.");
+                    },
+                    ex -> {
+                        atualizarLabelSaldo();
+                        JOptionPane.showMessageDialog(this, "Erro ao excluir transações: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                    }).execute();
         }
     }
 
+    // Compilação (em cache) e preenchimento rodam em segundo plano; só o visualizador abre na EDT
     private void gerarRelatorioPDF(String dataInicio, String dataFim, TipoTransacao tipo) {
-
-
+        LocalDate inicio;
+        LocalDate fim;
         try {
-            Map<String, Object> parametros = new HashMap<>();
-            parametros.put("DATA_INICIO", dataInicio);
-            parametros.put("DATA_FIM", dataFim);
-            parametros.put("TIPO_TRANSACAO", tipo != null ? tipo.name() : null);
-            parametros.put("ID_USER", usuarioLogado); // Adiciona o ID do usuário logado
-
-            JasperReport relatorioCompilado = JasperCompileManager.compileReport("Relatorios/Extrato.jrxml");
-            JasperPrint relatorioPreenchido = JasperFillManager.fillReport(relatorioCompilado, parametros, conexao);
+            inicio = converterData(dataInicio);
+            fim = converterData(dataFim);
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Data inválida: " + ex.getParsedString(), "Erro", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        SessaoUsuario sessaoAtual = sessao;
+
+        new TarefaSegundoPlano<ExtratoPreenchido>(
+                andamento -> servico.preencherExtrato(sessaoAtual, inicio, fim, tipo),
+                mensagem -> { },
+                this::mostrarRelatorio,
+                ex -> {
+                    JOptionPane.showMessageDialog(this, "Erro ao gerar o relatório: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                }).execute();
+    }
 
+    private void mostrarRelatorio(ExtratoPreenchido extrato) {
+        try (extrato) {
+            JasperPrint relatorioPreenchido = extrato.getImpressao();
             if (relatorioPreenchido.getPages().isEmpty()) {
                 JOptionPane.showMessageDialog(this, "O relatório está vazio. Verifique se há dados no banco de dados.", "Aviso", JOptionPane.INFORMATION_MESSAGE);
                 return;
@@ -496,111 +486,251 @@ class ControleFinanceiro extends JFrame {
             JRViewer painelRelatorio = new JRViewer(relatorioPreenchido);
             telaRelatorio.getContentPane().add(painelRelatorio);
 
-            telaRelatorio.setVisible(true);
-        } catch (JRException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao gerar o relatório: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
+            telaRelatorio.setVisible(true); // Modal: o arquivo de troca é liberado ao fechar
+        }
+    }
+
+    private void salvarRelatorioPDF(String dataInicio, String dataFim, TipoTransacao tipo) {
+        LocalDate inicio;
+        LocalDate fim;
+        try {
+            inicio = converterData(dataInicio);
+            fim = converterData(dataFim);
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Data inválida: " + ex.getParsedString(), "Erro", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        JFileChooser seletor = new JFileChooser();
+        seletor.setSelectedFile(new java.io.File("extrato.pdf"));
+        if (seletor.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.nio.file.Path destino = seletor.getSelectedFile().toPath();
+        SessaoUsuario sessaoAtual = sessao;
+
+        new TarefaSegundoPlano<>(
+                andamento -> {
+                    servico.exportarExtrato(sessaoAtual, inicio, fim, tipo, destino);
+                    return destino;
+                },
+                mensagem -> { },
+                arquivo -> JOptionPane.showMessageDialog(this, "Extrato salvo em " + arquivo),
+                ex -> JOptionPane.showMessageDialog(this, "Erro ao gerar o relatório: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE)).execute();
+    }
+
+    // Exportação em segundo plano, com o andamento no rótulo de saldo como na importação. O formato
+    // vem da extensão escolhida (.csv ou .cftx) e um ".gz" final liga a compactação
+    private void exportarTransacoes(String descricao, String dataInicio, String dataFim, TipoTransacao tipo) {
+        LocalDate inicio;
+        LocalDate fim;
+        try {
+            inicio = converterData(dataInicio);
+            fim = converterData(dataFim);
+        } catch (DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Data inválida: " + ex.getParsedString(), "Erro", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        JFileChooser seletor = new JFileChooser();
+        seletor.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Transações (CSV, CFTX, compactadas com .gz)", "csv", "cftx", "gz"));
+        seletor.setSelectedFile(new java.io.File("transacoes.csv"));
+        if (seletor.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        java.nio.file.Path destino = seletor.getSelectedFile().toPath();
+        String nome = destino.getFileName().toString();
+        FormatoExportacao formato = FormatoExportacao.doArquivo(nome);
+        boolean compactar = nome.toLowerCase().endsWith(".gz");
+        FiltroTransacao filtro = new FiltroTransacao(descricao, inicio, fim, tipo);
+        SessaoUsuario sessaoAtual = sessao;
+
+        new TarefaSegundoPlano<>(
+                andamento -> servico.exportarTransacoes(sessaoAtual, filtro, formato, compactar, destino,
+                        parcial -> andamento.accept("Exportando... " + parcial.getLinhas() + " transações")),
+                this::mostrarAndamentoSaldo,
+                relatorio -> {
+                    atualizarLabelSaldo();
+                    JOptionPane.showMessageDialog(this, relatorio.toString(), "Exportação concluída", JOptionPane.INFORMATION_MESSAGE);
+                },
+                ex -> {
+                    atualizarLabelSaldo();
+                    JOptionPane.showMessageDialog(this, "Erro ao exportar transações: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                }).execute();
+    }
+
+    // Campo de data vazio significa "sem filtro"
+    private static LocalDate converterData(String texto) {
+        return texto.trim().isEmpty() ? null : LocalDate.parse(texto.trim());
     }
 
 
     private void limparDadosTransacao() {
         int confirmacao = JOptionPane.showConfirmDialog(this, "Tem certeza de que deseja limpar todos os dados de transação?", "Confirmação", JOptionPane.YES_NO_OPTION);
         if (confirmacao == JOptionPane.YES_OPTION) {
-            String sql = "DELETE FROM transacoes WHERE IdUser = ?";
-            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
-                statement.setInt(1, usuarioLogado);
-                statement.executeUpdate();
-                transacoes.clear();
-                saldo = BigDecimal.ZERO;
-                entradas = BigDecimal.ZERO;
-                saidas = BigDecimal.ZERO;
-                atualizarLabelSaldo();
-                JOptionPane.showMessageDialog(this, "Dados de transação limpos com sucesso.");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-            }
+            SessaoUsuario sessaoAtual = sessao;
+            new TarefaSegundoPlano<>(
+                    andamento -> {
+                        andamento.accept("Limpando transações...");
+                        servico.limpar(sessaoAtual);
+                        return ResumoSaldo.ZERO;
+                    },
+                    this::mostrarAndamentoSaldo,
+                    zerado -> {
+                        modeloTabela.recarregar();
+                        resumoSaldo = zerado;
+                        atualizarLabelSaldo();
+                        JOptionPane.showMessageDialog(this, "Dados de transação limpos com sucesso.");
+                    },
+                    ex -> {
+                        atualizarLabelSaldo();
+                        JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                    }).execute();
         }
     }
 
 
-    private void registrarTransacao(Transacao transacao) {
-        transacoes.add(transacao);
-        inserirNoBanco(transacao);
-        atualizarSaldo();
-    }
-
-    private void inserirNoBanco(Transacao transacao) {
-        String sql = "INSERT INTO transacoes (descricao, valor, tipo, data, IdUser) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
-            statement.setString(1, transacao.getDescricao());
-            statement.setBigDecimal(2, transacao.getValor());
-            statement.setString(3, transacao.getTipo().name());
-            statement.setDate(4, java.sql.Date.valueOf(transacao.getData()));
-            statement.setInt(5, usuarioLogado);
-            statement.executeUpdate();
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Erro ao inserir transação: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-        }
+    // A gravação (diário local ou banco) fica fora da EDT; a janela só fecha depois de confirmada,
+    // e o botão fica desabilitado até lá para a mesma transação não ser enviada duas vezes
+    private void registrarTransacao(Transacao transacao, JFrame janelaTransacao, JButton botaoConfirmar) {
+        SessaoUsuario sessaoAtual = sessao;
+        botaoConfirmar.setEnabled(false);
+        new TarefaSegundoPlano<>(
+                andamento -> {
+                    servico.registrar(sessaoAtual, transacao);
+                    return transacao;
+                },
+                mensagem -> { },
+                registrada -> {
+                    atualizarSaldo();
+                    JOptionPane.showMessageDialog(janelaTransacao, "Transação registrada com sucesso.");
+                    janelaTransacao.dispose();
+                },
+                ex -> {
+                    botaoConfirmar.setEnabled(true);
+                    String mensagem = ex instanceof IllegalArgumentException ? ex.getMessage() : "Erro ao inserir transação: " + ex.getMessage();
+                    JOptionPane.showMessageDialog(janelaTransacao, mensagem, "Erro", JOptionPane.ERROR_MESSAGE);
+                }).execute();
     }
 
 
+    // Lê o saldo acumulado do livro-razão em segundo plano; a EDT só recebe o resultado final.
+    // Lançamentos ainda na fila de gravação entram no saldo exibido de forma otimista.
     public void atualizarSaldo() {
-        try {
-            String sql = "SELECT valor, tipo FROM transacoes WHERE idUser = ?";
-            PreparedStatement statement = conexao.prepareStatement(sql);
-            statement.setInt(1, usuarioLogado); // Definindo o parâmetro idUser
-
-            ResultSet resultSet = statement.executeQuery();
-
-            BigDecimal totalEntradas = BigDecimal.ZERO;
-            BigDecimal totalSaidas = BigDecimal.ZERO;
-
-            while (resultSet.next()) {
-                BigDecimal valor = resultSet.getBigDecimal("valor");
-                TipoTransacao tipo = TipoTransacao.valueOf(resultSet.getString("tipo"));
-                if (tipo == TipoTransacao.RECEITA) {
-                    totalEntradas = totalEntradas.add(valor);
-                } else {
-                    totalSaidas = totalSaidas.add(valor);
-                }
-                SwingUtilities.invokeLater(() -> {
-
-                    saldoLabel.setText("<html><div style='text-align: center; font-size: 20px;'>Saldo Atual</div><br><div style='font-size: 36px; text-align: center;'>R$ " + decimalFormat.format(saldo) + "</div><br><div style='text-align: center;'>Entradas: <font color='green'>R$ " + decimalFormat.format(entradas) + "</font> | Saídas: <font color='red'>R$ " + decimalFormat.format(saidas) + "</font></div></html>");
-                });
-            }
+        SessaoUsuario sessaoAtual = sessao;
+        executarTarefaSegundoPlano(new TarefaSegundoPlano<>(
+                andamento -> servico.saldo(sessaoAtual),
+                this::mostrarAndamentoSaldo,
+                this::aplicarResumoSaldo,
+                ex -> JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE)));
+    }
 
-            saldo = totalEntradas.subtract(totalSaidas);
-            entradas = totalEntradas;
-            saidas = totalSaidas;
-            atualizarLabelSaldo();
+    // Recalcula o saldo a partir de todas as transações (caminho O(n), apenas sob demanda)
+    private void reconciliarSaldo() {
+        SessaoUsuario sessaoAtual = sessao;
+        executarTarefaSegundoPlano(new TarefaSegundoPlano<>(
+                andamento -> {
+                    andamento.accept("Reconciliando saldo...");
+                    return servico.reconciliar(sessaoAtual);
+                },
+                this::mostrarAndamentoSaldo,
+                reconciliacao -> {
+                    aplicarResumoSaldo(reconciliacao.getRecalculado());
+                    if (reconciliacao.possuiDivergencia()) {
+                        JOptionPane.showMessageDialog(this, "Saldo reconstruído. Divergência encontrada:\nEntradas: "
+                                + FormatadorDinheiro.formatarComMoeda(reconciliacao.getDivergenciaEntradas()) + "\nSaídas: "
+                                + FormatadorDinheiro.formatarComMoeda(reconciliacao.getDivergenciaSaidas()), "Reconciliação", JOptionPane.WARNING_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Saldo conferido, nenhuma divergência encontrada.");
+                    }
+                },
+                ex -> JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE)));
+    }
 
-            resultSet.close();
-            statement.close();
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+    // Um cálculo novo substitui o anterior, cujo resultado já estaria desatualizado
+    private void executarTarefaSegundoPlano(TarefaSegundoPlano<?> tarefa) {
+        if (tarefaSaldo != null && !tarefaSaldo.isDone()) {
+            tarefaSaldo.cancel(false);
         }
+        tarefaSaldo = tarefa;
+        tarefa.execute();
     }
 
+    private void mostrarAndamentoSaldo(String mensagem) {
+        saldoLabel.setText("<html><div style='text-align: center; font-size: 20px;'>" + mensagem + "</div></html>");
+    }
 
+    private void aplicarResumoSaldo(ResumoSaldo resumo) {
+        resumoSaldo = resumo;
+        atualizarLabelSaldo();
+        MarcasInicializacao.marcar("primeiro saldo");
+    }
 
 
-    private void conectarBanco() {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            conexao = DriverManager.getConnection("jdbc:mysql://www.welisondavi.com.br/welisond_nicolla", "welisond_nicolla", "@Nico3044");
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+
+
+    // Cria o serviço (pool, índice textual), migra o banco e compila o extrato em segundo plano,
+    // com a tela de login já visível. Lotes gravados pela fila e alterações vindas do servidor
+    // atualizam o saldo exibido. Uma falha na migração é informada, mas o serviço fica disponível
+    private void iniciarServico() {
+        Thread inicializacao = new Thread(() -> {
+            try {
+                ServicoFinanceiro novoServico = new ServicoFinanceiro();
+                novoServico.adicionarOuvinte(() -> SwingUtilities.invokeLater(this::atualizarSaldoAposGravacao));
+                try {
+                    novoServico.iniciar();
+                } catch (SQLException ex) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE));
+                }
+                servicoPronto.complete(novoServico);
+                MarcasInicializacao.marcar("serviço pronto");
+            } catch (RuntimeException ex) {
+                servicoPronto.completeExceptionally(ex);
+            }
+        }, "inicializacao-servico");
+        inicializacao.setDaemon(true);
+        inicializacao.start();
+    }
+
+    // Chamado a cada lote enviado ao banco: o saldo otimista passa a vir do banco
+    private void atualizarSaldoAposGravacao() {
+        if (isVisible() && sessao != null) {
+            atualizarSaldo();
         }
     }
 
     private void atualizarLabelSaldo() {
         saldoLabel.setText(""); // Limpa o texto anterior
-        saldoLabel.setText("<html><div style='text-align: center; font-size: 20px;'>Saldo Atual</div><br><div style='font-size: 36px; text-align: center;'>R$ " + decimalFormat.format(saldo) + "</div><br><div style='text-align: center;'>Entradas: <font color='green'>R$ " + decimalFormat.format(entradas) + "</font> | Saídas: <font color='red'>R$ " + decimalFormat.format(saidas) + "</font></div></html>");
+        saldoLabel.setText("<html><div style='text-align: center; font-size: 20px;'>Saldo Atual</div><br><div style='font-size: 36px; text-align: center;'>" + FormatadorDinheiro.formatarComMoeda(resumoSaldo.getSaldo()) + "</div><br><div style='text-align: center;'>Entradas: <font color='green'>" + FormatadorDinheiro.formatarComMoeda(resumoSaldo.getEntradas()) + "</font> | Saídas: <font color='red'>" + FormatadorDinheiro.formatarComMoeda(resumoSaldo.getSaidas()) + "</font></div>" + descreverPendentes() + "</html>");
+
+    }
 
+    private String descreverPendentes() {
+        MetricasGravacao gravacao = servico.getMetricasGravacao();
+        if (gravacao == null) {
+            return "";
+        }
+        String descricao = "";
+        if (gravacao.getPendentes() > 0) {
+            descricao += "<br><div style='text-align: center; color: gray;'>" + gravacao.getPendentes() + " lançamento(s) aguardando envio ao banco</div>";
+        }
+        if (gravacao.getRejeitados() > 0) {
+            descricao += "<br><div style='text-align: center; color: red;'>" + gravacao.getRejeitados() + " lançamento(s) recusado(s) pelo banco</div>";
+        }
+        return descricao;
     }
 
     public static void main(String[] args) {
+        if (List.of(args).contains("--servidor")) {
+            ServidorHttp.executar(); // Sem interface gráfica: a API HTTP atende os usuários
+            return;
+        }
+        if (List.of(args).contains("--extratos-mensais")) {
+            GeradorExtratosMensais.executar(args); // Fechamento do mês: extratos de todos os usuários em PDF
+            return;
+        }
+        if (List.of(args).contains("--treinar-cds")) {
+            TreinoInicializacao.executar(); // Usado pelo build para gerar o arquivo AppCDS
+            return;
+        }
         SwingUtilities.invokeLater(() -> new ControleFinanceiro().setVisible(true));
     }
 }
\ No newline at end of file
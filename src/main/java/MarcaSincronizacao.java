@@ -0,0 +1,33 @@
+import java.sql.Timestamp;
+
+// Posição em um fluxo de alterações: momento da alteração e chave de cliente, nessa ordem
+class MarcaSincronizacao {
+    static final MarcaSincronizacao INICIO = new MarcaSincronizacao(Timestamp.valueOf("2000-01-01 00:00:00"), "");
+
+    private final Timestamp momento;
+    private final String chave;
+
+    public MarcaSincronizacao(Timestamp momento, String chave) {
+        this.momento = momento;
+        this.chave = chave;
+    }
+
+    public Timestamp getMomento() {
+        return momento;
+    }
+
+    public String getChave() {
+        return chave;
+    }
+
+    // Marca anterior a esta, para reler alterações cujo commit terminou depois da última leitura
+    public MarcaSincronizacao recuar(long milissegundos) {
+        long recuado = Math.max(INICIO.momento.getTime(), momento.getTime() - milissegundos);
+        return new MarcaSincronizacao(new Timestamp(recuado), "");
+    }
+
+    public boolean posteriorA(MarcaSincronizacao outra) {
+        int comparacao = momento.compareTo(outra.momento);
+        return comparacao > 0 || (comparacao == 0 && chave.compareTo(outra.chave) > 0);
+    }
+}
@@ -0,0 +1,25 @@
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tempos de partida desde o início do processo (tela de login, serviço pronto, primeiro saldo),
+// impressos no console com -Dcontrolefinanceiro.inicializacao.relatorio=true. Desligado, não
+// carrega nada além desta classe.
+final class MarcasInicializacao {
+    private static final boolean ATIVO = Boolean.getBoolean("controlefinanceiro.inicializacao.relatorio");
+    private static final Set<String> MARCADAS = ConcurrentHashMap.newKeySet();
+
+    private MarcasInicializacao() {
+    }
+
+    // Só a primeira ocorrência de cada etapa conta; o saldo, por exemplo, é recalculado a cada lançamento
+    static void marcar(String etapa) {
+        if (ATIVO && MARCADAS.add(etapa)) {
+            long inicio = ProcessHandle.current().info().startInstant()
+                    .map(Instant::toEpochMilli)
+                    .orElseGet(() -> ManagementFactory.getRuntimeMXBean().getStartTime());
+            System.out.println("Inicialização: " + etapa + " em " + (System.currentTimeMillis() - inicio) + " ms");
+        }
+    }
+}
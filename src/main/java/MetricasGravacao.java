@@ -0,0 +1,61 @@
+// Métricas da fila de gravação: profundidade e latência dos envios ao banco
+class MetricasGravacao {
+    private final int pendentes;
+    private final int maximoPendentes;
+    private final long lotesGravados;
+    private final long lancamentosGravados;
+    private final long rejeitados; // No arquivo de rejeitados do diário, inclusive de execuções anteriores
+    private final int falhasConsecutivas;
+    private final double latenciaMediaMs;
+    private final double latenciaMaximaMs;
+
+    public MetricasGravacao(int pendentes, int maximoPendentes, long lotesGravados, long lancamentosGravados,
+                            long rejeitados, int falhasConsecutivas, double latenciaMediaMs, double latenciaMaximaMs) {
+        this.pendentes = pendentes;
+        this.maximoPendentes = maximoPendentes;
+        this.lotesGravados = lotesGravados;
+        this.lancamentosGravados = lancamentosGravados;
+        this.rejeitados = rejeitados;
+        this.falhasConsecutivas = falhasConsecutivas;
+        this.latenciaMediaMs = latenciaMediaMs;
+        this.latenciaMaximaMs = latenciaMaximaMs;
+    }
+
+    public int getPendentes() {
+        return pendentes;
+    }
+
+    public int getMaximoPendentes() {
+        return maximoPendentes;
+    }
+
+    public long getLotesGravados() {
+        return lotesGravados;
+    }
+
+    public long getLancamentosGravados() {
+        return lancamentosGravados;
+    }
+
+    public long getRejeitados() {
+        return rejeitados;
+    }
+
+    public int getFalhasConsecutivas() {
+        return falhasConsecutivas;
+    }
+
+    public double getLatenciaMediaMs() {
+        return latenciaMediaMs;
+    }
+
+    public double getLatenciaMaximaMs() {
+        return latenciaMaximaMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pendentes=%d (máximo %d) lotes=%d lançamentos=%d rejeitados=%d falhas seguidas=%d latência média=%.2fms máxima=%.2fms",
+                pendentes, maximoPendentes, lotesGravados, lancamentosGravados, rejeitados, falhasConsecutivas, latenciaMediaMs, latenciaMaximaMs);
+    }
+}
@@ -0,0 +1,446 @@
+import com.google.common.collect.MapMaker;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+// Instrumentação de todo comando JDBC do aplicativo. FabricaConexoes entrega conexões embrulhadas
+// em proxies que medem cada execução e leitura de ResultSet; os números ficam por banco, operação
+// e SQL. A operação vem do escopo aberto por ServicoFinanceiro (login, saldo, listagem...) ou,
+// nas threads de fundo, do nome da thread. Comandos acima de controlefinanceiro.metricas.consultaLentaMs
+// vão para o log de consultas lentas (controlefinanceiro.metricas.consultasLentas, ou stderr),
+// sem parâmetros, que podem conter dados do usuário. O custo é uma chamada por reflexão por
+// método JDBC, pequeno perto da ida e volta ao banco; controlefinanceiro.metricas.ativas=false desliga.
+class MetricasJdbc implements MetricasJdbcMBean {
+    static final MetricasJdbc INSTANCIA = new MetricasJdbc();
+
+    private static final boolean ATIVAS = Boolean.parseBoolean(System.getProperty("controlefinanceiro.metricas.ativas", "true"));
+    private static final long CONSULTA_LENTA_NANOS = Long.getLong("controlefinanceiro.metricas.consultaLentaMs", 500) * 1_000_000;
+    private static final int MAXIMO_COMANDOS = 2000;
+    private static final Pattern LISTA_PARAMETROS = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final ThreadLocal<String> OPERACAO = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<String, EstatisticaComando> comandos = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, HistogramaLatencia> operacoes = new ConcurrentHashMap<>();
+    // SQL como chega ao prepareStatement -> normalizado; os comandos do aplicativo são constantes
+    private final ConcurrentHashMap<String, String> normalizados = new ConcurrentHashMap<>();
+    private final LongAdder consultasLentas = new LongAdder();
+    // Comandos do driver já entregues por prepareStatement: um que volta saiu do cache do pool.
+    // Chaves fracas e comparadas por identidade, então os que o pool fecha e descarta também saem
+    // daqui. A consulta não trava; só o primeiro preparo de cada comando escreve em um segmento
+    private final ConcurrentMap<Statement, Boolean> preparados = new MapMaker().weakKeys().concurrencyLevel(16).makeMap();
+    private final Path logConsultasLentas;
+    private volatile boolean registradaNoJmx;
+
+    private MetricasJdbc() {
+        String arquivo = System.getProperty("controlefinanceiro.metricas.consultasLentas");
+        logConsultasLentas = arquivo != null ? Paths.get(arquivo) : null;
+    }
+
+    // Operação lógica em andamento na thread; o tempo total dela também é medido
+    final class Escopo implements AutoCloseable {
+        private final String nome;
+        private final String anterior;
+        private final long inicio = System.nanoTime();
+
+        private Escopo(String nome) {
+            this.nome = nome;
+            this.anterior = OPERACAO.get();
+            OPERACAO.set(nome);
+        }
+
+        @Override
+        public void close() {
+            operacoes.computeIfAbsent(nome, chave -> new HistogramaLatencia()).registrar(System.nanoTime() - inicio);
+            if (anterior != null) {
+                OPERACAO.set(anterior);
+            } else {
+                OPERACAO.remove();
+            }
+        }
+    }
+
+    static Escopo operacao(String nome) {
+        return INSTANCIA.new Escopo(nome);
+    }
+
+    static Connection instrumentar(Connection conexao, String banco) {
+        if (!ATIVAS) {
+            return conexao;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                new ConexaoInstrumentada(conexao, banco));
+    }
+
+    // Idempotente; o servidor de MBeans só é carregado aqui, fora da partida da tela
+    void registrarNoJmx() {
+        if (!ATIVAS || registradaNoJmx) {
+            return;
+        }
+        synchronized (this) {
+            if (registradaNoJmx) {
+                return;
+            }
+            try {
+                MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+                ObjectName nome = new ObjectName("controlefinanceiro:type=MetricasJdbc");
+                if (!servidor.isRegistered(nome)) {
+                    servidor.registerMBean(this, nome);
+                }
+                registradaNoJmx = true;
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    public List<EstatisticaComando> listarComandos() {
+        List<EstatisticaComando> lista = new ArrayList<>(comandos.values());
+        lista.sort(Comparator.comparing(EstatisticaComando::getOperacao).thenComparing(EstatisticaComando::getSql));
+        return lista;
+    }
+
+    public List<String> listarOperacoes() {
+        List<String> nomes = new ArrayList<>(operacoes.keySet());
+        nomes.sort(null);
+        return nomes;
+    }
+
+    public HistogramaLatencia latenciaOperacao(String nome) {
+        return operacoes.get(nome);
+    }
+
+    @Override
+    public String getRelatorio() {
+        StringBuilder relatorio = new StringBuilder();
+        relatorio.append(String.format("Operações (tempo total)%n%-22s %10s %10s %10s%n", "operação", "quantidade", "p50 ms", "p99 ms"));
+        for (String nome : listarOperacoes()) {
+            HistogramaLatencia latencia = operacoes.get(nome);
+            relatorio.append(String.format("%-22s %10d %10.2f %10.2f%n", nome, latencia.getQuantidade(),
+                    latencia.percentilMs(0.50), latencia.percentilMs(0.99)));
+        }
+        long preparos = getPreparos();
+        relatorio.append(String.format("%nComandos preparados: %d, reaproveitados do cache do pool: %d (%.1f%%)%n",
+                preparos, getPreparosReaproveitados(), preparos == 0 ? 0 : 100.0 * getPreparosReaproveitados() / preparos));
+        relatorio.append(String.format("%nComandos SQL (consultas lentas: %d)%n", consultasLentas.sum()));
+        for (String linha : getComandos()) {
+            relatorio.append(linha).append(System.lineSeparator());
+        }
+        return relatorio.toString();
+    }
+
+    @Override
+    public String[] getComandos() {
+        List<String> linhas = new ArrayList<>();
+        for (EstatisticaComando comando : listarComandos()) {
+            linhas.add(String.format("[%s/%s] execuções=%d erros=%d preparos=%d reaproveitados=%d execução p50=%.2fms p99=%.2fms leitura p50=%.2fms p99=%.2fms linhas=%d bytes=%d | %s",
+                    comando.getBanco(), comando.getOperacao(), comando.execucao.getQuantidade(), comando.getErros(),
+                    comando.getPreparos(), comando.getPreparosReaproveitados(),
+                    comando.execucao.percentilMs(0.50), comando.execucao.percentilMs(0.99),
+                    comando.leitura.percentilMs(0.50), comando.leitura.percentilMs(0.99),
+                    comando.getLinhas(), comando.getBytes(), comando.getSql()));
+        }
+        return linhas.toArray(new String[0]);
+    }
+
+    @Override
+    public long getExecucoes() {
+        return comandos.values().stream().mapToLong(comando -> comando.execucao.getQuantidade()).sum();
+    }
+
+    @Override
+    public long getPreparos() {
+        return comandos.values().stream().mapToLong(EstatisticaComando::getPreparos).sum();
+    }
+
+    @Override
+    public long getPreparosReaproveitados() {
+        return comandos.values().stream().mapToLong(EstatisticaComando::getPreparosReaproveitados).sum();
+    }
+
+    @Override
+    public long getConsultasLentas() {
+        return consultasLentas.sum();
+    }
+
+    @Override
+    public void zerar() {
+        comandos.clear();
+        operacoes.clear();
+        normalizados.clear();
+        consultasLentas.reset();
+    }
+
+    // Grava o relatório em texto, substituindo o anterior
+    public void gravar(Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.toAbsolutePath().getParent());
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        Files.writeString(temporario, "Métricas JDBC em " + LocalDateTime.now() + System.lineSeparator() + getRelatorio());
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private EstatisticaComando estatistica(String banco, String sql) {
+        String operacao = OPERACAO.get();
+        if (operacao == null) {
+            operacao = Thread.currentThread().isVirtual() ? "outras" : Thread.currentThread().getName();
+        }
+        String normalizado = normalizados.get(sql);
+        if (normalizado == null) {
+            normalizado = normalizar(sql);
+            if (normalizados.size() < MAXIMO_COMANDOS) {
+                normalizados.put(sql, normalizado);
+            }
+        }
+        String chave = banco + '\u0000' + operacao + '\u0000' + normalizado;
+        EstatisticaComando estatistica = comandos.get(chave);
+        if (estatistica != null) {
+            return estatistica;
+        }
+        if (comandos.size() >= MAXIMO_COMANDOS) {
+            chave = banco + '\u0000' + operacao + "\u0000(outros)";
+            normalizado = "(outros comandos)";
+        }
+        String sqlFinal = normalizado;
+        String operacaoFinal = operacao;
+        return comandos.computeIfAbsent(chave, c -> new EstatisticaComando(banco, operacaoFinal, sqlFinal));
+    }
+
+    private void registrarPreparo(EstatisticaComando comando, Statement statement) {
+        Statement doDriver = FabricaConexoes.comandoDoDriver(statement);
+        boolean reaproveitado = preparados.containsKey(doDriver) || preparados.putIfAbsent(doDriver, Boolean.TRUE) != null;
+        comando.preparos.increment();
+        if (reaproveitado) {
+            comando.preparosReaproveitados.increment();
+        }
+    }
+
+    // Listas IN de tamanho variável viram um só comando
+    private static String normalizar(String sql) {
+        String normalizado = sql.indexOf('?') >= 0 && sql.indexOf(',') >= 0 ? LISTA_PARAMETROS.matcher(sql).replaceAll("?, ...") : sql;
+        return ESPACOS.matcher(normalizado).replaceAll(" ").trim();
+    }
+
+    private void registrarConsultaLenta(EstatisticaComando comando, long nanos, long linhas) {
+        if (nanos < CONSULTA_LENTA_NANOS) {
+            return;
+        }
+        consultasLentas.increment();
+        String linha = String.format("%s consulta lenta %.1f ms, %d linhas [%s/%s] %s%n", LocalDateTime.now(),
+                nanos / 1_000_000.0, linhas, comando.getBanco(), comando.getOperacao(), comando.getSql());
+        if (logConsultasLentas == null) {
+            System.err.print(linha);
+            return;
+        }
+        synchronized (this) {
+            try {
+                Files.writeString(logConsultasLentas, linha, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                System.err.print(linha);
+            }
+        }
+    }
+
+    private static Object invocar(Object alvo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(alvo, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static final class ConexaoInstrumentada implements InvocationHandler {
+        private final Connection alvo;
+        private final String banco;
+
+        ConexaoInstrumentada(Connection alvo, String banco) {
+            this.alvo = alvo;
+            this.banco = banco;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(alvo, metodo, args);
+            switch (metodo.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                    EstatisticaComando estatistica = INSTANCIA.estatistica(banco, (String) args[0]);
+                    INSTANCIA.registrarPreparo(estatistica, (Statement) resultado);
+                    return ComandoInstrumentado.criar((Statement) resultado, banco, estatistica);
+                case "createStatement":
+                    return ComandoInstrumentado.criar((Statement) resultado, banco, null);
+                default:
+                    return resultado;
+            }
+        }
+    }
+
+    // Statement, PreparedStatement ou CallableStatement; no Statement simples o SQL chega em execute*
+    private static final class ComandoInstrumentado implements InvocationHandler {
+        private final Statement alvo;
+        private final String banco;
+        private final EstatisticaComando preparado;
+        private LeituraInstrumentada leituraAberta;
+
+        private ComandoInstrumentado(Statement alvo, String banco, EstatisticaComando preparado) {
+            this.alvo = alvo;
+            this.banco = banco;
+            this.preparado = preparado;
+        }
+
+        static Statement criar(Statement alvo, String banco, EstatisticaComando preparado) {
+            Class<?> tipo = alvo instanceof CallableStatement ? CallableStatement.class
+                    : alvo instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{tipo},
+                    new ComandoInstrumentado(alvo, banco, preparado));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nome = metodo.getName();
+            if (nome.startsWith("execute")) {
+                EstatisticaComando comando = preparado != null || args == null || !(args[0] instanceof String)
+                        ? preparado : INSTANCIA.estatistica(banco, (String) args[0]);
+                return comando != null ? executar(comando, metodo, args) : invocar(alvo, metodo, args);
+            }
+            if (nome.equals("getResultSet")) {
+                ResultSet resultSet = (ResultSet) invocar(alvo, metodo, args);
+                return resultSet != null && leituraAberta != null ? leituraAberta.embrulhar(resultSet) : resultSet;
+            }
+            if (nome.equals("close") && leituraAberta != null) {
+                leituraAberta.encerrar(); // ResultSet não fechado explicitamente fecha com o comando
+            }
+            return invocar(alvo, metodo, args);
+        }
+
+        private Object executar(EstatisticaComando comando, Method metodo, Object[] args) throws Throwable {
+            if (leituraAberta != null) {
+                leituraAberta.encerrar();
+            }
+            long inicio = System.nanoTime();
+            Object resultado;
+            try {
+                resultado = invocar(alvo, metodo, args);
+            } catch (Throwable ex) {
+                comando.erros.increment();
+                comando.execucao.registrar(System.nanoTime() - inicio);
+                throw ex;
+            }
+            long fim = System.nanoTime();
+            comando.execucao.registrar(fim - inicio);
+            if (resultado instanceof ResultSet || Boolean.TRUE.equals(resultado)) {
+                // Consulta: a medição continua até o ResultSet ser fechado
+                leituraAberta = new LeituraInstrumentada(comando, inicio, fim);
+                return resultado instanceof ResultSet ? leituraAberta.embrulhar((ResultSet) resultado) : resultado;
+            }
+            long linhas = 0;
+            if (Boolean.FALSE.equals(resultado)) {
+                linhas = Math.max(0, alvo.getUpdateCount());
+            } else if (resultado instanceof Number) {
+                linhas = ((Number) resultado).longValue();
+            } else if (resultado instanceof int[]) {
+                for (int quantidade : (int[]) resultado) {
+                    linhas += Math.max(0, quantidade);
+                }
+            } else if (resultado instanceof long[]) {
+                for (long quantidade : (long[]) resultado) {
+                    linhas += Math.max(0, quantidade);
+                }
+            }
+            comando.linhas.add(linhas);
+            INSTANCIA.registrarConsultaLenta(comando, fim - inicio, linhas);
+            return resultado;
+        }
+    }
+
+    // Conta linhas e o tamanho dos valores lidos; usado por uma só thread, como o ResultSet
+    private static final class LeituraInstrumentada implements InvocationHandler {
+        private final EstatisticaComando comando;
+        private final long inicio;
+        private final long fimExecucao;
+        private ResultSet alvo;
+        private long linhas;
+        private long bytes;
+        private boolean encerrada;
+
+        LeituraInstrumentada(EstatisticaComando comando, long inicio, long fimExecucao) {
+            this.comando = comando;
+            this.inicio = inicio;
+            this.fimExecucao = fimExecucao;
+        }
+
+        ResultSet embrulhar(ResultSet resultSet) {
+            alvo = resultSet;
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(alvo, metodo, args);
+            String nome = metodo.getName();
+            if (nome.equals("next")) {
+                if ((Boolean) resultado) {
+                    linhas++;
+                }
+            } else if (args != null && resultado != null && nome.startsWith("get")) {
+                bytes += tamanho(resultado);
+            } else if (nome.equals("close")) {
+                encerrar();
+            }
+            return resultado;
+        }
+
+        void encerrar() {
+            if (encerrada) {
+                return;
+            }
+            encerrada = true;
+            long fim = System.nanoTime();
+            comando.leitura.registrar(fim - fimExecucao);
+            comando.linhas.add(linhas);
+            comando.bytes.add(bytes);
+            INSTANCIA.registrarConsultaLenta(comando, fim - inicio, linhas);
+        }
+
+        private static long tamanho(Object valor) {
+            if (valor instanceof String) {
+                return ((String) valor).length();
+            }
+            if (valor instanceof byte[]) {
+                return ((byte[]) valor).length;
+            }
+            if (valor instanceof BigDecimal) {
+                return ((BigDecimal) valor).unscaledValue().bitLength() / 8 + 1;
+            }
+            if (valor instanceof Number || valor instanceof Boolean || valor instanceof java.util.Date) {
+                return 8;
+            }
+            return 0; // Metadados e outros objetos não contam
+        }
+    }
+}
@@ -0,0 +1,17 @@
+// Atributos e operações das métricas JDBC expostos por JMX (controlefinanceiro:type=MetricasJdbc).
+// O JMX exige que a interface seja pública
+public interface MetricasJdbcMBean {
+    String getRelatorio();
+
+    String[] getComandos();
+
+    long getExecucoes();
+
+    long getPreparos();
+
+    long getPreparosReaproveitados();
+
+    long getConsultasLentas();
+
+    void zerar();
+}
@@ -0,0 +1,48 @@
+// Métricas do pool de conexões, usadas para dimensioná-lo sob carga
+class MetricasPool {
+    private final int ativas;
+    private final int ociosas;
+    private final int maximoAtivas;
+    private final long emprestimos;
+    private final double esperaMediaMs;
+    private final double esperaMaximaMs;
+
+    public MetricasPool(int ativas, int ociosas, int maximoAtivas, long emprestimos, double esperaMediaMs, double esperaMaximaMs) {
+        this.ativas = ativas;
+        this.ociosas = ociosas;
+        this.maximoAtivas = maximoAtivas;
+        this.emprestimos = emprestimos;
+        this.esperaMediaMs = esperaMediaMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    public int getAtivas() {
+        return ativas;
+    }
+
+    public int getOciosas() {
+        return ociosas;
+    }
+
+    public int getMaximoAtivas() {
+        return maximoAtivas;
+    }
+
+    public long getEmprestimos() {
+        return emprestimos;
+    }
+
+    public double getEsperaMediaMs() {
+        return esperaMediaMs;
+    }
+
+    public double getEsperaMaximaMs() {
+        return esperaMaximaMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ativas=%d/%d ociosas=%d empréstimos=%d espera média=%.2fms máxima=%.2fms",
+                ativas, maximoAtivas, ociosas, emprestimos, esperaMediaMs, esperaMaximaMs);
+    }
+}
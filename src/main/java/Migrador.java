@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Migrações versionadas do esquema, aplicadas na inicialização.
+// A versão de cada migração aplicada fica registrada na tabela esquema_versao.
+// Várias instâncias podem iniciar ao mesmo tempo contra o mesmo servidor: no MySQL a migração
+// acontece sob GET_LOCK, uma trava nomeada da sessão que, ao contrário das travas de linha,
+// sobrevive aos commits implícitos dos comandos DDL. O H2 embutido só é aberto por um processo,
+// então lá basta serializar as migrações dentro da JVM.
+class Migrador {
+    private static final String TRAVA = "controlefinanceiro.migracao";
+    private static final int ESPERA_TRAVA_SEGUNDOS = Integer.getInteger("controlefinanceiro.migracao.esperaSegundos", 120);
+
+    interface Migracao {
+        void aplicar(Connection conexao) throws SQLException;
+    }
+
+    private final FabricaConexoes fabricaConexoes;
+    private final List<Migracao> migracoes = new ArrayList<>();
+    private final List<String> descricoes = new ArrayList<>();
+
+    public Migrador(FabricaConexoes fabricaConexoes) {
+        this.fabricaConexoes = fabricaConexoes;
+
+        // A ordem define o número da versão; migrações já publicadas nunca mudam de posição
+        registrar("criar tabelas", script("V1__criar_tabelas.sql"));
+        registrar("chave primária em transacoes", Migrador::garantirChavePrimariaTransacoes);
+        registrar("índices de transacoes e usuario", conexao -> {
+            recusarNomesRepetidos(conexao);
+            criarIndiceSeAusente(conexao, "transacoes", "idx_transacoes_usuario_data", "CREATE INDEX idx_transacoes_usuario_data ON transacoes (IdUser, data, id)");
+            criarIndiceSeAusente(conexao, "usuario", "uk_usuario_nome", "CREATE UNIQUE INDEX uk_usuario_nome ON usuario (nome)");
+        });
+        registrar("resumo mensal", script("V4__resumo_mensal.sql"));
+        registrar("chave de cliente em transacoes", script("V5__chave_cliente.sql"));
+        registrar("chave de cliente nas transações existentes", Migrador::preencherChavesCliente);
+        registrar("rastreamento para sincronização", script("V7__sincronizacao.sql"));
+        registrar("senhas em hash", Migrador::protegerSenhas);
+        registrar("livro-razão de todos os usuários", script("V9__livro_saldo.sql"));
+    }
+
+    private void registrar(String descricao, Migracao migracao) {
+        descricoes.add(descricao);
+        migracoes.add(migracao);
+    }
+
+    public void migrar() throws SQLException {
+        fabricaConexoes.executar(conexao -> {
+            if (!"MySQL".equalsIgnoreCase(conexao.getMetaData().getDatabaseProductName())) {
+                synchronized (Migrador.class) {
+                    aplicarPendentes(conexao);
+                }
+                return null;
+            }
+            travar(conexao);
+            try {
+                aplicarPendentes(conexao);
+            } finally {
+                liberar(conexao);
+            }
+            return null;
+        });
+    }
+
+    // A versão atual é lida já com a trava, então quem esperou encontra as migrações da outra instância aplicadas
+    private void aplicarPendentes(Connection conexao) throws SQLException {
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS esquema_versao ("
+                    + "versao INT NOT NULL PRIMARY KEY, "
+                    + "descricao VARCHAR(200) NOT NULL, "
+                    + "aplicada_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        int versaoAtual = 0;
+        try (Statement statement = conexao.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(versao), 0) FROM esquema_versao")) {
+            if (resultSet.next()) {
+                versaoAtual = resultSet.getInt(1);
+            }
+        }
+
+        for (int versao = versaoAtual + 1; versao <= migracoes.size(); versao++) {
+            migracoes.get(versao - 1).aplicar(conexao);
+            try (PreparedStatement statement = conexao.prepareStatement("INSERT INTO esquema_versao (versao, descricao) VALUES (?, ?)")) {
+                statement.setInt(1, versao);
+                statement.setString(2, descricoes.get(versao - 1));
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private static void travar(Connection conexao) throws SQLException {
+        try (PreparedStatement statement = conexao.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, TRAVA);
+            statement.setInt(2, ESPERA_TRAVA_SEGUNDOS);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                    throw new SQLException("Outra instância está migrando o banco há mais de " + ESPERA_TRAVA_SEGUNDOS + " s");
+                }
+            }
+        }
+    }
+
+    // A trava é da sessão e a conexão volta ao pool: sem liberar, ela ficaria presa até o pool fechar a conexão
+    private static void liberar(Connection conexao) throws SQLException {
+        try (PreparedStatement statement = conexao.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, TRAVA);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+            }
+        }
+    }
+
+    // Executa um script de src/main/resources/db/migracao, separando os comandos por ";"
+    private static Migracao script(String nome) {
+        return conexao -> {
+            String conteudo;
+            try (InputStream entrada = Migrador.class.getResourceAsStream("/db/migracao/" + nome)) {
+                if (entrada == null) {
+                    throw new SQLException("Migração não encontrada: " + nome);
+                }
+                conteudo = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException ex) {
+                throw new SQLException("Erro ao ler a migração " + nome, ex);
+            }
+
+            StringBuilder semComentarios = new StringBuilder();
+            for (String linha : conteudo.split("\\R")) {
+                if (!linha.trim().startsWith("--")) {
+                    semComentarios.append(linha).append('\n');
+                }
+            }
+            try (Statement statement = conexao.createStatement()) {
+                for (String comando : semComentarios.toString().split(";")) {
+                    if (!comando.trim().isEmpty()) {
+                        statement.execute(comando);
+                    }
+                }
+            }
+        };
+    }
+
+    // Bancos anteriores às migrações podem ter a tabela transacoes sem chave substituta
+    private static void garantirChavePrimariaTransacoes(Connection conexao) throws SQLException {
+        DatabaseMetaData metaData = conexao.getMetaData();
+        try (ResultSet colunas = metaData.getColumns(conexao.getCatalog(), null, "transacoes", "id")) {
+            if (colunas.next()) {
+                return;
+            }
+        }
+        try (Statement statement = conexao.createStatement()) {
+            statement.execute("ALTER TABLE transacoes ADD COLUMN id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY FIRST");
+        }
+    }
+
+    // A sincronização identifica as transações pela chave de cliente; as antigas recebem uma agora
+    private static void preencherChavesCliente(Connection conexao) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement statement = conexao.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id FROM transacoes WHERE chave_cliente IS NULL")) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getLong(1));
+            }
+        }
+        try (PreparedStatement statement = conexao.prepareStatement("UPDATE transacoes SET chave_cliente = ? WHERE id = ?")) {
+            for (int i = 0; i < ids.size(); i++) {
+                statement.setString(1, UUID.randomUUID().toString());
+                statement.setLong(2, ids.get(i));
+                statement.addBatch();
+                if (i % 1000 == 999) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    // Senhas em texto puro passam a hash (HashSenha); bancos antigos podem ter a coluna curta demais
+    private static void protegerSenhas(Connection conexao) throws SQLException {
+        try (ResultSet colunas = conexao.getMetaData().getColumns(conexao.getCatalog(), null, "usuario", "senha")) {
+            if (colunas.next() && colunas.getInt("COLUMN_SIZE") < 255) {
+                try (Statement statement = conexao.createStatement()) {
+                    statement.execute("ALTER TABLE usuario MODIFY senha VARCHAR(255) NOT NULL");
+                }
+            }
+        }
+        Map<Integer, String> senhas = new HashMap<>();
+        try (Statement statement = conexao.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT idUser, senha FROM usuario")) {
+            while (resultSet.next()) {
+                if (!HashSenha.emHash(resultSet.getString("senha"))) {
+                    senhas.put(resultSet.getInt("idUser"), resultSet.getString("senha"));
+                }
+            }
+        }
+        HashSenha hashSenha = new HashSenha();
+        try (PreparedStatement statement = conexao.prepareStatement("UPDATE usuario SET senha = ? WHERE idUser = ?")) {
+            for (Map.Entry<Integer, String> senha : senhas.entrySet()) {
+                statement.setString(1, hashSenha.gerar(senha.getValue()));
+                statement.setInt(2, senha.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    // O cadastro antigo não impedia nomes repetidos. Quem entra com cada conta só o dono sabe
+    // (as senhas podem ser diferentes), então a migração para com a lista a corrigir em vez de
+    // falhar no índice único e deixar as migrações seguintes sem aplicar sem explicação
+    private static void recusarNomesRepetidos(Connection conexao) throws SQLException {
+        Map<String, List<Integer>> repetidos = new LinkedHashMap<>();
+        try (Statement statement = conexao.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT nome, idUser FROM usuario WHERE nome IN "
+                     + "(SELECT nome FROM usuario GROUP BY nome HAVING COUNT(*) > 1) ORDER BY nome, idUser")) {
+            while (resultSet.next()) {
+                repetidos.computeIfAbsent(resultSet.getString("nome"), nome -> new ArrayList<>()).add(resultSet.getInt("idUser"));
+            }
+        }
+        if (repetidos.isEmpty()) {
+            return;
+        }
+        StringBuilder lista = new StringBuilder();
+        for (Map.Entry<String, List<Integer>> repetido : repetidos.entrySet()) {
+            lista.append(lista.length() == 0 ? "" : "; ").append('"').append(repetido.getKey()).append("\" (idUser ")
+                    .append(repetido.getValue().stream().map(String::valueOf).collect(Collectors.joining(", "))).append(')');
+        }
+        throw new SQLException("Há usuários com o mesmo nome, o que impede o índice único uk_usuario_nome: " + lista
+                + ". Renomeie ou remova as contas repetidas na tabela usuario e inicie o aplicativo de novo.");
+    }
+
+    private static void criarIndiceSeAusente(Connection conexao, String tabela, String indice, String sql) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        try (ResultSet indices = conexao.getMetaData().getIndexInfo(conexao.getCatalog(), null, tabela, false, false)) {
+            while (indices.next()) {
+                String nome = indices.getString("INDEX_NAME");
+                if (nome != null) {
+                    existentes.add(nome.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        if (!existentes.contains(indice.toLowerCase(Locale.ROOT))) {
+            try (Statement statement = conexao.createStatement()) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Modelo de tabela que carrega as transações sob demanda, página a página, conforme a
+// rolagem. As páginas são buscadas por chave (data, id) em segundo plano e mantidas em um
+// cache LRU limitado; o total de linhas vem de uma consulta COUNT separada. Assim o uso de
+// memória não depende do tamanho do histórico.
+class ModeloTabelaTransacoes extends AbstractTableModel {
+    static final int TAMANHO_PAGINA = 200;
+    private static final int MAXIMO_PAGINAS_CACHE = 25;
+    private static final int MAXIMO_LIMITES = 4096;
+    private static final String[] COLUNAS = {"Descrição", "Valor (R$)", "Tipo", "Data", ""}; // Coluna de checkbox sem título
+
+    private final ServicoFinanceiro servico;
+    private final SessaoUsuario sessao;
+    private final ExecutorService carregador = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "carregador-transacoes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FiltroTransacao filtro = FiltroTransacao.VAZIO;
+    private FiltroTransacao filtroResolvido = FiltroTransacao.VAZIO; // Descrição já traduzida em ids
+    private int totalLinhas;
+    private int geracao;
+
+    private final Map<Integer, List<Transacao>> paginas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Transacao>> maisAntiga) {
+            return size() > MAXIMO_PAGINAS_CACHE;
+        }
+    };
+    // Chave da última linha antes de cada página conhecida (a página 0 começa do início)
+    private final TreeMap<Integer, ChaveTransacao> limites = new TreeMap<>();
+    private final Set<Integer> carregando = new HashSet<>();
+    private final Set<Long> selecionadas = new LinkedHashSet<>();
+
+    public ModeloTabelaTransacoes(ServicoFinanceiro servico, SessaoUsuario sessao) {
+        this.servico = servico;
+        this.sessao = sessao;
+    }
+
+    // Troca o filtro e recarrega a contagem; páginas em carregamento do filtro anterior são descartadas
+    public void aplicarFiltro(FiltroTransacao novoFiltro) {
+        filtro = novoFiltro;
+        recarregar();
+    }
+
+    public void recarregar() {
+        int geracaoAtual = ++geracao;
+        FiltroTransacao filtroAtual = filtro;
+        paginas.clear();
+        limites.clear();
+        carregando.clear();
+        selecionadas.clear();
+        totalLinhas = 0;
+        fireTableDataChanged();
+
+        carregador.execute(() -> {
+            try {
+                FiltroTransacao resolvido = servico.resolverFiltro(sessao, filtroAtual);
+                int total = servico.contar(sessao, resolvido);
+                SwingUtilities.invokeLater(() -> {
+                    if (geracaoAtual == geracao) {
+                        filtroResolvido = resolvido;
+                        totalLinhas = total;
+                        fireTableDataChanged();
+                    }
+                });
+            } catch (SQLException ex) {
+                mostrarErro(ex);
+            }
+        });
+    }
+
+    // Ids das transações marcadas, inclusive as de páginas já descartadas do cache
+    public List<Long> getSelecionadas() {
+        return new ArrayList<>(selecionadas);
+    }
+
+    public void encerrar() {
+        carregador.shutdownNow();
+    }
+
+    @Override
+    public int getRowCount() {
+        return totalLinhas;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUNAS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 4 ? Boolean.class : Object.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return column == 4 && transacaoNaLinha(row) != null;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Transacao transacao = transacaoNaLinha(row);
+        if (transacao == null) {
+            return column == 4 ? Boolean.FALSE : null;
+        }
+        switch (column) {
+            case 0:
+                return transacao.getDescricao();
+            case 1:
+                return FormatadorDinheiro.formatar(transacao.getValor());
+            case 2:
+                return transacao.getTipo();
+            case 3:
+                return transacao.getData();
+            default:
+                return selecionadas.contains(transacao.getId());
+        }
+    }
+
+    @Override
+    public void setValueAt(Object valor, int row, int column) {
+        Transacao transacao = transacaoNaLinha(row);
+        if (column != 4 || transacao == null) {
+            return;
+        }
+        if (Boolean.TRUE.equals(valor)) {
+            selecionadas.add(transacao.getId());
+        } else {
+            selecionadas.remove(transacao.getId());
+        }
+        fireTableCellUpdated(row, column);
+    }
+
+    private Transacao transacaoNaLinha(int row) {
+        int pagina = row / TAMANHO_PAGINA;
+        List<Transacao> linhas = paginas.get(pagina);
+        if (linhas == null) {
+            solicitarPagina(pagina);
+            return null;
+        }
+        int posicao = row % TAMANHO_PAGINA;
+        return posicao < linhas.size() ? linhas.get(posicao) : null;
+    }
+
+    private void solicitarPagina(int pagina) {
+        if (!carregando.add(pagina)) {
+            return;
+        }
+        int geracaoAtual = geracao;
+        FiltroTransacao filtroAtual = filtroResolvido;
+
+        // Parte do limite conhecido mais próximo; se não for o início da página,
+        // localiza a chave de início pulando apenas pelo índice (data, id)
+        Map.Entry<Integer, ChaveTransacao> conhecido = limites.floorEntry(pagina);
+        int paginaConhecida = conhecido != null ? conhecido.getKey() : 0;
+        ChaveTransacao chaveConhecida = conhecido != null ? conhecido.getValue() : null;
+
+        carregador.execute(() -> {
+            try {
+                ChaveTransacao inicio = chaveConhecida;
+                int deslocamento = (pagina - paginaConhecida) * TAMANHO_PAGINA;
+                if (deslocamento > 0) {
+                    inicio = servico.buscarChave(sessao, filtroAtual, chaveConhecida, deslocamento - 1);
+                }
+                List<Transacao> linhas = servico.listar(sessao, filtroAtual, inicio, TAMANHO_PAGINA);
+                ChaveTransacao inicioPagina = inicio;
+                SwingUtilities.invokeLater(() -> concluirPagina(geracaoAtual, pagina, inicioPagina, linhas));
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> carregando.remove(pagina));
+                mostrarErro(ex);
+            }
+        });
+    }
+
+    private void concluirPagina(int geracaoPagina, int pagina, ChaveTransacao inicio, List<Transacao> linhas) {
+        if (geracaoPagina != geracao) {
+            return;
+        }
+        carregando.remove(pagina);
+        paginas.put(pagina, linhas);
+        if (inicio != null) {
+            registrarLimite(pagina, inicio);
+        }
+        if (linhas.size() == TAMANHO_PAGINA) {
+            Transacao ultima = linhas.get(linhas.size() - 1);
+            registrarLimite(pagina + 1, new ChaveTransacao(ultima.getData(), ultima.getId()));
+        }
+
+        int primeira = pagina * TAMANHO_PAGINA;
+        int ultimaLinha = Math.min(primeira + TAMANHO_PAGINA, totalLinhas) - 1;
+        if (ultimaLinha >= primeira) {
+            fireTableRowsUpdated(primeira, ultimaLinha);
+        }
+    }
+
+    // Mantém a tabela de limites pequena descartando o limite mais distante da página atual
+    private void registrarLimite(int pagina, ChaveTransacao chave) {
+        limites.put(pagina, chave);
+        if (limites.size() > MAXIMO_LIMITES) {
+            int primeira = limites.firstKey();
+            int ultima = limites.lastKey();
+            limites.remove(pagina - primeira > ultima - pagina ? primeira : ultima);
+        }
+    }
+
+    private void mostrarErro(SQLException ex) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Erro ao carregar transações: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE));
+    }
+}
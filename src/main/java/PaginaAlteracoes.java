@@ -0,0 +1,30 @@
+import java.util.List;
+
+// Trecho de um fluxo de alterações, já na ordem (momento, chave)
+class PaginaAlteracoes {
+    private final List<LancamentoPendente> inseridas;
+    private final List<String> excluidas;
+    private final MarcaSincronizacao ultima;
+
+    public PaginaAlteracoes(List<LancamentoPendente> inseridas, List<String> excluidas, MarcaSincronizacao ultima) {
+        this.inseridas = inseridas;
+        this.excluidas = excluidas;
+        this.ultima = ultima;
+    }
+
+    public List<LancamentoPendente> getInseridas() {
+        return inseridas;
+    }
+
+    public List<String> getExcluidas() {
+        return excluidas;
+    }
+
+    public MarcaSincronizacao getUltima() {
+        return ultima;
+    }
+
+    public int tamanho() {
+        return inseridas.size() + excluidas.size();
+    }
+}
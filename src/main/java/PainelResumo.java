@@ -0,0 +1,54 @@
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.DefaultCategoryDataset;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Painel com a evolução mensal de receitas, despesas e saldo acumulado,
+// montado a partir da consolidação mensal (um ponto por mês e tipo)
+class PainelResumo extends JFrame {
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("MM/yyyy");
+
+    public PainelResumo(Component pai, List<TotalMensal> totais) {
+        super("Painel Mensal");
+        setSize(1000, 700);
+        setLayout(new GridLayout(2, 1, 10, 10));
+
+        DefaultCategoryDataset movimentacao = new DefaultCategoryDataset();
+        DefaultCategoryDataset evolucaoSaldo = new DefaultCategoryDataset();
+        Dinheiro saldoAcumulado = Dinheiro.ZERO;
+        YearMonth mesAtual = null;
+        for (TotalMensal total : totais) {
+            String mes = total.getMes().format(FORMATO_MES);
+            if (mesAtual != null && !mesAtual.equals(total.getMes())) {
+                evolucaoSaldo.addValue(saldoAcumulado.paraBigDecimal(), "Saldo", mesAtual.format(FORMATO_MES));
+            }
+            mesAtual = total.getMes();
+            if (total.getTipo() == TipoTransacao.RECEITA) {
+                movimentacao.addValue(total.getTotal().paraBigDecimal(), "Receitas", mes);
+                saldoAcumulado = saldoAcumulado.somar(total.getTotal());
+            } else {
+                movimentacao.addValue(total.getTotal().paraBigDecimal(), "Despesas", mes);
+                saldoAcumulado = saldoAcumulado.subtrair(total.getTotal());
+            }
+        }
+        if (mesAtual != null) {
+            evolucaoSaldo.addValue(saldoAcumulado.paraBigDecimal(), "Saldo", mesAtual.format(FORMATO_MES));
+        }
+
+        JFreeChart graficoMovimentacao = ChartFactory.createBarChart("Receitas e despesas por mês", "Mês", "R$",
+                movimentacao, PlotOrientation.VERTICAL, true, true, false);
+        JFreeChart graficoSaldo = ChartFactory.createLineChart("Saldo acumulado", "Mês", "R$",
+                evolucaoSaldo, PlotOrientation.VERTICAL, false, true, false);
+
+        add(new ChartPanel(graficoMovimentacao));
+        add(new ChartPanel(graficoSaldo));
+        setLocationRelativeTo(pai);
+    }
+}
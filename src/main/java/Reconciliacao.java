@@ -0,0 +1,30 @@
+// Resultado de uma reconciliação: o que estava gravado e o que foi recalculado
+class Reconciliacao {
+    private final ResumoSaldo gravado;
+    private final ResumoSaldo recalculado;
+
+    public Reconciliacao(ResumoSaldo gravado, ResumoSaldo recalculado) {
+        this.gravado = gravado;
+        this.recalculado = recalculado;
+    }
+
+    public ResumoSaldo getGravado() {
+        return gravado;
+    }
+
+    public ResumoSaldo getRecalculado() {
+        return recalculado;
+    }
+
+    public Dinheiro getDivergenciaEntradas() {
+        return recalculado.getEntradas().subtrair(gravado.getEntradas());
+    }
+
+    public Dinheiro getDivergenciaSaidas() {
+        return recalculado.getSaidas().subtrair(gravado.getSaidas());
+    }
+
+    public boolean possuiDivergencia() {
+        return getDivergenciaEntradas().signum() != 0 || getDivergenciaSaidas().signum() != 0;
+    }
+}
@@ -0,0 +1,47 @@
+// Resultado de uma exportação; a vazão é medida sobre os bytes antes da compactação
+class RelatorioExportacao {
+    private long linhas;
+    private long bytes;
+    private long bytesGravados;
+    private long duracaoNanos;
+
+    void registrarLinha() {
+        linhas++;
+    }
+
+    void registrarBloco(int tamanho) {
+        bytes += tamanho;
+    }
+
+    void concluir(long bytesGravados, long duracaoNanos) {
+        this.bytesGravados = bytesGravados;
+        this.duracaoNanos = duracaoNanos;
+    }
+
+    public long getLinhas() {
+        return linhas;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getBytesGravados() {
+        return bytesGravados;
+    }
+
+    public double getDuracaoSegundos() {
+        return duracaoNanos / 1_000_000_000.0;
+    }
+
+    public double getMegabytesPorSegundo() {
+        return duracaoNanos == 0 ? 0 : bytes / 1_048_576.0 / getDuracaoSegundos();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Transações exportadas: %d%nTamanho: %.1f MB (%.1f MB gravados)%nTempo: %.2f s (%.1f MB/s, %.0f linhas/s)",
+                linhas, bytes / 1_048_576.0, bytesGravados / 1_048_576.0, getDuracaoSegundos(), getMegabytesPorSegundo(),
+                duracaoNanos == 0 ? 0 : linhas / getDuracaoSegundos());
+    }
+}
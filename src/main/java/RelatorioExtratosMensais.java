@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Resultado de uma rodada de extratos mensais. Por usuário são medidas a espera por uma vaga no
+// banco, o preenchimento (consulta e montagem das páginas) e a exportação do PDF
+class RelatorioExtratosMensais {
+    private final int usuarios;
+    private final int trabalhadores;
+    private final int limiteBanco;
+    private final AtomicInteger gerados = new AtomicInteger();
+    private final AtomicInteger existentes = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> falhas = new ConcurrentLinkedQueue<>();
+    private final LongAdder paginas = new LongAdder();
+    final HistogramaLatencia espera = new HistogramaLatencia();
+    final HistogramaLatencia preenchimento = new HistogramaLatencia();
+    final HistogramaLatencia exportacao = new HistogramaLatencia();
+    private volatile long duracaoNanos;
+
+    RelatorioExtratosMensais(int usuarios, int trabalhadores, int limiteBanco) {
+        this.usuarios = usuarios;
+        this.trabalhadores = trabalhadores;
+        this.limiteBanco = limiteBanco;
+    }
+
+    void registrarGerado(long esperaNanos, long preenchimentoNanos, long exportacaoNanos, int paginasExtrato) {
+        espera.registrar(esperaNanos);
+        preenchimento.registrar(preenchimentoNanos);
+        exportacao.registrar(exportacaoNanos);
+        paginas.add(paginasExtrato);
+        gerados.incrementAndGet();
+    }
+
+    void registrarExistente() {
+        existentes.incrementAndGet();
+    }
+
+    void registrarFalha(int idUser, Exception ex) {
+        falhas.add("usuário " + idUser + ": " + ex);
+    }
+
+    void concluir(long duracaoNanos) {
+        this.duracaoNanos = duracaoNanos;
+    }
+
+    public int getUsuarios() {
+        return usuarios;
+    }
+
+    public int getTrabalhadores() {
+        return trabalhadores;
+    }
+
+    public int getLimiteBanco() {
+        return limiteBanco;
+    }
+
+    public int getGerados() {
+        return gerados.get();
+    }
+
+    public int getExistentes() {
+        return existentes.get();
+    }
+
+    public List<String> getFalhas() {
+        return new ArrayList<>(falhas);
+    }
+
+    public long getPaginas() {
+        return paginas.sum();
+    }
+
+    public HistogramaLatencia getEspera() {
+        return espera;
+    }
+
+    public HistogramaLatencia getPreenchimento() {
+        return preenchimento;
+    }
+
+    public HistogramaLatencia getExportacao() {
+        return exportacao;
+    }
+
+    // Usuários já resolvidos: gerados agora, já existentes de uma rodada anterior ou com falha
+    public int getConcluidos() {
+        return gerados.get() + existentes.get() + falhas.size();
+    }
+
+    public double getDuracaoSegundos() {
+        return duracaoNanos / 1_000_000_000.0;
+    }
+
+    public double getExtratosPorSegundo() {
+        return duracaoNanos == 0 ? 0 : gerados.get() / getDuracaoSegundos();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Extratos gerados: %d de %d usuários (%d já existiam, %d falhas), %d páginas%n"
+                        + "Trabalhadores: %d, preenchimentos simultâneos no banco: %d%n"
+                        + "Tempo total: %.2f s (%.1f extratos/s)%n"
+                        + "Por usuário (p50/p99/média): espera pelo banco %.1f/%.1f/%.1f ms, "
+                        + "preenchimento %.1f/%.1f/%.1f ms, exportação %.1f/%.1f/%.1f ms",
+                gerados.get(), usuarios, existentes.get(), falhas.size(), paginas.sum(), trabalhadores, limiteBanco,
+                getDuracaoSegundos(), getExtratosPorSegundo(),
+                espera.percentilMs(0.50), espera.percentilMs(0.99), espera.getMediaMs(),
+                preenchimento.percentilMs(0.50), preenchimento.percentilMs(0.99), preenchimento.getMediaMs(),
+                exportacao.percentilMs(0.50), exportacao.percentilMs(0.99), exportacao.getMediaMs());
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de uma importação de extrato
+class RelatorioImportacao {
+    private static final int MAXIMO_ERROS = 20;
+
+    private long lidas;
+    private long importadas;
+    private long duplicadas;
+    private long invalidas;
+    private long duracaoNanos;
+    private final List<String> erros = new ArrayList<>();
+
+    void registrarLote(int lidasLote, ResultadoLote resultado) {
+        lidas += lidasLote;
+        importadas += resultado.getInseridas();
+        duplicadas += resultado.getDuplicadas();
+    }
+
+    void registrarInvalida(long linha, String motivo) {
+        lidas++;
+        invalidas++;
+        if (erros.size() < MAXIMO_ERROS) {
+            erros.add("Linha " + linha + ": " + motivo);
+        }
+    }
+
+    void concluir(long duracaoNanos) {
+        this.duracaoNanos = duracaoNanos;
+    }
+
+    public long getLidas() {
+        return lidas;
+    }
+
+    public long getImportadas() {
+        return importadas;
+    }
+
+    public long getDuplicadas() {
+        return duplicadas;
+    }
+
+    public long getInvalidas() {
+        return invalidas;
+    }
+
+    public List<String> getErros() {
+        return erros;
+    }
+
+    public double getDuracaoSegundos() {
+        return duracaoNanos / 1_000_000_000.0;
+    }
+
+    public double getLinhasPorSegundo() {
+        return duracaoNanos == 0 ? 0 : lidas / getDuracaoSegundos();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder(String.format(
+                "Linhas lidas: %d%nImportadas: %d%nDuplicadas: %d%nInválidas: %d%nTempo: %.2f s (%.0f linhas/s)",
+                lidas, importadas, duplicadas, invalidas, getDuracaoSegundos(), getLinhasPorSegundo()));
+        for (String erro : erros) {
+            texto.append(System.lineSeparator()).append(erro);
+        }
+        return texto.toString();
+    }
+}
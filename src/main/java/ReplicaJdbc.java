@@ -0,0 +1,83 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Réplica sobre as tabelas transacoes e transacoes_excluidas de um banco JDBC
+class ReplicaJdbc implements ReplicaTransacoes {
+    private final FabricaConexoes fabricaConexoes;
+    private final TransacaoRepository transacaoRepository;
+
+    public ReplicaJdbc(FabricaConexoes fabricaConexoes, TransacaoRepository transacaoRepository) {
+        this.fabricaConexoes = fabricaConexoes;
+        this.transacaoRepository = transacaoRepository;
+    }
+
+    @Override
+    public PaginaAlteracoes inseridasDesde(int idUser, MarcaSincronizacao apos, int limite) throws SQLException {
+        String sql = "SELECT chave_cliente, descricao, valor, tipo, data, atualizado_em FROM transacoes "
+                + "WHERE IdUser = ? AND chave_cliente IS NOT NULL AND (atualizado_em > ? OR (atualizado_em = ? AND chave_cliente > ?)) "
+                + "ORDER BY atualizado_em, chave_cliente LIMIT ?";
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                vincular(statement, idUser, apos, limite);
+                List<LancamentoPendente> inseridas = new ArrayList<>();
+                MarcaSincronizacao ultima = apos;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String chave = resultSet.getString("chave_cliente");
+                        Transacao transacao = new Transacao(0, resultSet.getString("descricao"), Dinheiro.de(resultSet.getBigDecimal("valor")),
+                                TipoTransacao.valueOf(resultSet.getString("tipo")), resultSet.getDate("data").toLocalDate());
+                        inseridas.add(new LancamentoPendente(chave, idUser, transacao));
+                        ultima = new MarcaSincronizacao(resultSet.getTimestamp("atualizado_em"), chave);
+                    }
+                }
+                return new PaginaAlteracoes(inseridas, Collections.emptyList(), ultima);
+            }
+        });
+    }
+
+    @Override
+    public PaginaAlteracoes excluidasDesde(int idUser, MarcaSincronizacao apos, int limite) throws SQLException {
+        String sql = "SELECT chave_cliente, excluida_em FROM transacoes_excluidas "
+                + "WHERE IdUser = ? AND (excluida_em > ? OR (excluida_em = ? AND chave_cliente > ?)) "
+                + "ORDER BY excluida_em, chave_cliente LIMIT ?";
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                vincular(statement, idUser, apos, limite);
+                List<String> excluidas = new ArrayList<>();
+                MarcaSincronizacao ultima = apos;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        excluidas.add(resultSet.getString("chave_cliente"));
+                        ultima = new MarcaSincronizacao(resultSet.getTimestamp("excluida_em"), resultSet.getString("chave_cliente"));
+                    }
+                }
+                return new PaginaAlteracoes(Collections.emptyList(), excluidas, ultima);
+            }
+        });
+    }
+
+    private static void vincular(PreparedStatement statement, int idUser, MarcaSincronizacao apos, int limite) throws SQLException {
+        statement.setInt(1, idUser);
+        statement.setTimestamp(2, apos.getMomento());
+        statement.setTimestamp(3, apos.getMomento());
+        statement.setString(4, apos.getChave());
+        statement.setInt(5, limite);
+    }
+
+    // Inclusões repetidas são ignoradas pela chave de cliente; exclusões sempre prevalecem
+    @Override
+    public int aplicar(int idUser, List<LancamentoPendente> inseridas, List<String> excluidas) throws SQLException {
+        int alteradas = 0;
+        if (!inseridas.isEmpty()) {
+            alteradas += transacaoRepository.inserirPendentes(idUser, inseridas);
+        }
+        if (!excluidas.isEmpty()) {
+            alteradas += transacaoRepository.excluirPorChave(idUser, excluidas);
+        }
+        return alteradas;
+    }
+}
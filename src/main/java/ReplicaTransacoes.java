@@ -0,0 +1,16 @@
+import java.sql.SQLException;
+import java.util.List;
+
+// Uma cópia do banco de transações que participa da sincronização. O banco local e o servidor
+// usam a mesma implementação JDBC; nos testes o servidor pode ser substituído por outro H2
+// ou por qualquer implementação em memória.
+interface ReplicaTransacoes {
+
+    PaginaAlteracoes inseridasDesde(int idUser, MarcaSincronizacao apos, int limite) throws SQLException;
+
+    PaginaAlteracoes excluidasDesde(int idUser, MarcaSincronizacao apos, int limite) throws SQLException;
+
+    // Aplica alterações vindas da outra cópia e retorna quantas mudaram algo aqui.
+    // Deve ser idempotente: a mesma página pode ser aplicada mais de uma vez.
+    int aplicar(int idUser, List<LancamentoPendente> inseridas, List<String> excluidas) throws SQLException;
+}
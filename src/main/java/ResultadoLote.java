@@ -0,0 +1,18 @@
+// Quantas transações de um lote foram gravadas e quantas já existiam no banco
+class ResultadoLote {
+    private final int inseridas;
+    private final int duplicadas;
+
+    public ResultadoLote(int inseridas, int duplicadas) {
+        this.inseridas = inseridas;
+        this.duplicadas = duplicadas;
+    }
+
+    public int getInseridas() {
+        return inseridas;
+    }
+
+    public int getDuplicadas() {
+        return duplicadas;
+    }
+}
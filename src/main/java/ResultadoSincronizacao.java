@@ -0,0 +1,23 @@
+// Quantas alterações uma rodada da sincronização enviou ao servidor e recebeu dele
+class ResultadoSincronizacao {
+    private final int enviadas;
+    private final int recebidas;
+
+    public ResultadoSincronizacao(int enviadas, int recebidas) {
+        this.enviadas = enviadas;
+        this.recebidas = recebidas;
+    }
+
+    public int getEnviadas() {
+        return enviadas;
+    }
+
+    public int getRecebidas() {
+        return recebidas;
+    }
+
+    @Override
+    public String toString() {
+        return "enviadas=" + enviadas + " recebidas=" + recebidas;
+    }
+}
@@ -0,0 +1,34 @@
+// Quantidade, maior id e soma dos ids das transações de um usuário. Comparado entre o banco e o
+// índice textual, detecta tanto documentos faltando quanto sobrando com a mesma contagem.
+class ResumoIds {
+    private final long quantidade;
+    private final long maiorId;
+    private final long somaIds;
+
+    public ResumoIds(long quantidade, long maiorId, long somaIds) {
+        this.quantidade = quantidade;
+        this.maiorId = maiorId;
+        this.somaIds = somaIds;
+    }
+
+    public long getQuantidade() {
+        return quantidade;
+    }
+
+    public long getMaiorId() {
+        return maiorId;
+    }
+
+    public long getSomaIds() {
+        return somaIds;
+    }
+
+    public boolean confere(ResumoIds outro) {
+        return quantidade == outro.quantidade && maiorId == outro.maiorId && somaIds == outro.somaIds;
+    }
+
+    @Override
+    public String toString() {
+        return "quantidade=" + quantidade + " maior id=" + maiorId + " soma=" + somaIds;
+    }
+}
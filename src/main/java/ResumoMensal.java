@@ -0,0 +1,71 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+// Consolidação mensal das transações (tabela resumo_mensal), mantida de forma incremental
+// na mesma transação do banco que altera transacoes. O painel lê só esta tabela, então
+// abri-lo custa O(meses) e não O(transações).
+class ResumoMensal {
+
+    public void aplicar(Connection conexao, int idUser, VariacoesMensais variacoes) throws SQLException {
+        if (variacoes.getTotais().isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO resumo_mensal (IdUser, mes, tipo, total, quantidade) VALUES (?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE total = total + VALUES(total), quantidade = quantidade + VALUES(quantidade)";
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            for (TotalMensal variacao : variacoes.getTotais()) {
+                statement.setInt(1, idUser);
+                statement.setInt(2, codigoMes(variacao.getMes()));
+                statement.setString(3, variacao.getTipo().name());
+                statement.setBigDecimal(4, variacao.getTotal().paraBigDecimal());
+                statement.setLong(5, variacao.getQuantidade());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    public void zerar(Connection conexao, int idUser) throws SQLException {
+        try (PreparedStatement statement = conexao.prepareStatement("DELETE FROM resumo_mensal WHERE IdUser = ?")) {
+            statement.setInt(1, idUser);
+            statement.executeUpdate();
+        }
+    }
+
+    // Recalcula a consolidação do usuário a partir de todas as transações (usado na reconciliação)
+    public void reconstruir(Connection conexao, int idUser) throws SQLException {
+        zerar(conexao, idUser);
+        String sql = "INSERT INTO resumo_mensal (IdUser, mes, tipo, total, quantidade) "
+                + "SELECT IdUser, YEAR(data) * 100 + MONTH(data), tipo, SUM(valor), COUNT(*) FROM transacoes "
+                + "WHERE IdUser = ? GROUP BY IdUser, YEAR(data) * 100 + MONTH(data), tipo";
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setInt(1, idUser);
+            statement.executeUpdate();
+        }
+    }
+
+    public List<TotalMensal> listar(Connection conexao, int idUser) throws SQLException {
+        String sql = "SELECT mes, tipo, total, quantidade FROM resumo_mensal WHERE IdUser = ? AND quantidade > 0 ORDER BY mes, tipo";
+        List<TotalMensal> totais = new ArrayList<>();
+        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+            statement.setInt(1, idUser);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int mes = resultSet.getInt("mes");
+                    totais.add(new TotalMensal(YearMonth.of(mes / 100, mes % 100), TipoTransacao.valueOf(resultSet.getString("tipo")),
+                            Dinheiro.de(resultSet.getBigDecimal("total")), resultSet.getLong("quantidade")));
+                }
+            }
+        }
+        return totais;
+    }
+
+    static int codigoMes(YearMonth mes) {
+        return mes.getYear() * 100 + mes.getMonthValue();
+    }
+}
@@ -0,0 +1,28 @@
+// Totais de um usuário: receitas, despesas e o saldo resultante
+class ResumoSaldo {
+    static final ResumoSaldo ZERO = new ResumoSaldo(Dinheiro.ZERO, Dinheiro.ZERO);
+
+    private final Dinheiro entradas;
+    private final Dinheiro saidas;
+
+    public ResumoSaldo(Dinheiro entradas, Dinheiro saidas) {
+        this.entradas = entradas;
+        this.saidas = saidas;
+    }
+
+    public Dinheiro getEntradas() {
+        return entradas;
+    }
+
+    public Dinheiro getSaidas() {
+        return saidas;
+    }
+
+    public Dinheiro getSaldo() {
+        return entradas.subtrair(saidas);
+    }
+
+    public ResumoSaldo somar(ResumoSaldo outro) {
+        return new ResumoSaldo(entradas.somar(outro.entradas), saidas.somar(outro.saidas));
+    }
+}
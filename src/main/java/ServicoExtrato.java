@@ -0,0 +1,65 @@
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+// Preenchimento e exportação do relatório Extrato. Os filtros de data e tipo vão para a
+// consulta do relatório, e as páginas preenchidas são virtualizadas em disco para que
+// extratos de vários anos não esgotem o heap.
+class ServicoExtrato {
+    private static final String MODELO = "Extrato";
+    private static final int PAGINAS_EM_MEMORIA = Integer.getInteger("controlefinanceiro.extrato.paginasEmMemoria", 100);
+
+    private final CacheRelatorios cacheRelatorios;
+    private final FabricaConexoes fabricaConexoes;
+
+    public ServicoExtrato(CacheRelatorios cacheRelatorios, FabricaConexoes fabricaConexoes) {
+        this.cacheRelatorios = cacheRelatorios;
+        this.fabricaConexoes = fabricaConexoes;
+    }
+
+    // Carrega ou compila o modelo antes de preenchimentos em paralelo, que passam a compartilhá-lo
+    public void compilar() throws JRException {
+        cacheRelatorios.obter(MODELO);
+    }
+
+    // Datas e tipo nulos não restringem o extrato
+    public ExtratoPreenchido preencher(int idUser, LocalDate dataInicio, LocalDate dataFim, TipoTransacao tipo) throws JRException, SQLException {
+        JRSwapFileVirtualizer virtualizador = new JRSwapFileVirtualizer(PAGINAS_EM_MEMORIA,
+                new JRSwapFile(System.getProperty("java.io.tmpdir"), 4096, 256), true);
+
+        Map<String, Object> parametros = new HashMap<>();
+        parametros.put("ID_USER", idUser);
+        parametros.put("DATA_INICIO", dataInicio != null ? Date.valueOf(dataInicio) : null);
+        parametros.put("DATA_FIM", dataFim != null ? Date.valueOf(dataFim) : null);
+        parametros.put("TIPO_TRANSACAO", tipo != null ? tipo.name() : null);
+        parametros.put(JRParameter.REPORT_VIRTUALIZER, virtualizador);
+
+        try (Connection conexao = fabricaConexoes.obterConexao()) {
+            JasperPrint impressao = JasperFillManager.fillReport(cacheRelatorios.obter(MODELO), parametros, conexao);
+            virtualizador.setReadOnly(true);
+            return new ExtratoPreenchido(impressao, virtualizador);
+        } catch (JRException | SQLException | RuntimeException ex) {
+            virtualizador.cleanup();
+            throw ex;
+        }
+    }
+
+    // Exportação sem interface gráfica, direto para o arquivo PDF
+    public void exportarPdf(int idUser, LocalDate dataInicio, LocalDate dataFim, TipoTransacao tipo, Path destino) throws JRException, SQLException {
+        try (ExtratoPreenchido extrato = preencher(idUser, dataInicio, dataFim, tipo)) {
+            JasperExportManager.exportReportToPdfFile(extrato.getImpressao(), destino.toString());
+        }
+    }
+}
@@ -0,0 +1,432 @@
+import net.sf.jasperreports.engine.JRException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// Núcleo do aplicativo, sem interface gráfica: conexões, repositórios, caches, fila de
+// gravação e sincronização, e as operações de cada usuário. Não guarda estado de um usuário
+// específico; tudo o que depende de quem está logado chega pela SessaoUsuario, então a mesma
+// instância atende a tela Swing e as requisições concorrentes do ServidorHttp.
+@SuppressWarnings("try") // Os escopos de MetricasJdbc só delimitam a operação medida
+class ServicoFinanceiro {
+    private static final long EXPIRACAO_PADRAO_MS = TimeUnit.MINUTES.toMillis(Long.getLong("controlefinanceiro.sessao.expiracaoMinutos", 30));
+
+    private final FabricaConexoes fabricaConexoes;
+    private final CacheRelatorios cacheRelatorios = new CacheRelatorios(Paths.get("Relatorios"));
+    private final CacheTransacoes cacheTransacoes = new CacheTransacoes();
+    private final IndiceDescricoes indiceDescricoes; // Opcional: sem ele a pesquisa volta a usar LIKE
+    private final TransacaoRepository transacaoRepository;
+    private final VerificadorSenhas verificadorSenhas = new VerificadorSenhas();
+    private final UsuarioRepository usuarioRepository;
+    private final ServicoExtrato servicoExtrato;
+    private final ExportadorTransacoes exportadorTransacoes;
+    private final GeradorExtratosMensais geradorExtratosMensais;
+    private volatile GravadorTransacoes gravadorTransacoes; // Opcional: sem diário local a gravação é síncrona
+    // Modo local: o banco principal é o H2 embutido e o servidor só recebe e envia alterações
+    private final FabricaConexoes fabricaRemota;
+    private final UsuarioRepository usuarioRemoto;
+    private final SincronizadorTransacoes sincronizador;
+    private volatile boolean servidorMigrado;
+    private final AtomicBoolean encerrado = new AtomicBoolean();
+
+    private final ConcurrentHashMap<String, SessaoUsuario> sessoes = new ConcurrentHashMap<>();
+    private final List<Runnable> ouvintes = new CopyOnWriteArrayList<>();
+    private final SecureRandom geradorTokens = new SecureRandom();
+    private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "servico-financeiro");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ServicoFinanceiro() {
+        this(System.getProperty("controlefinanceiro.modo", "remoto").equals("local"));
+    }
+
+    public ServicoFinanceiro(boolean modoLocal) {
+        fabricaConexoes = modoLocal ? FabricaConexoes.local() : new FabricaConexoes();
+        indiceDescricoes = abrirIndiceDescricoes();
+        transacaoRepository = new TransacaoRepository(fabricaConexoes, new LivroSaldo(), indiceDescricoes, cacheTransacoes);
+        usuarioRepository = new UsuarioRepository(fabricaConexoes, verificadorSenhas);
+        servicoExtrato = new ServicoExtrato(cacheRelatorios, fabricaConexoes);
+        exportadorTransacoes = new ExportadorTransacoes(fabricaConexoes);
+        geradorExtratosMensais = new GeradorExtratosMensais(servicoExtrato, usuarioRepository);
+        if (modoLocal) {
+            fabricaRemota = new FabricaConexoes();
+            usuarioRemoto = new UsuarioRepository(fabricaRemota, verificadorSenhas);
+            sincronizador = new SincronizadorTransacoes(new ReplicaJdbc(fabricaConexoes, transacaoRepository),
+                    new ReplicaJdbc(fabricaRemota, new TransacaoRepository(fabricaRemota, new LivroSaldo())), fabricaConexoes);
+        } else {
+            fabricaRemota = null;
+            usuarioRemoto = null;
+            sincronizador = null;
+        }
+    }
+
+    // Migra o banco e liga as tarefas de fundo. Uma falha na migração é informada ao final,
+    // depois que o restante já foi iniciado, como a tela sempre fez
+    public void iniciar() throws SQLException {
+        SQLException falhaMigracao = null;
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("migracao")) {
+            new Migrador(fabricaConexoes).migrar();
+        } catch (SQLException ex) {
+            falhaMigracao = ex;
+        }
+        gravadorTransacoes = abrirGravadorTransacoes();
+        if (sincronizador != null) {
+            long intervalo = Long.getLong("controlefinanceiro.sincronizacao.intervaloSegundos", 30);
+            agendador.scheduleWithFixedDelay(this::sincronizarComServidor, intervalo, intervalo, TimeUnit.SECONDS);
+        }
+        agendador.scheduleWithFixedDelay(this::removerSessoesExpiradas, 1, 1, TimeUnit.MINUTES);
+
+        // Relatório periódico das métricas do pool e do cache, para dimensionamento sob carga
+        long intervalo = Long.getLong("controlefinanceiro.db.pool.relatorioSegundos", 0);
+        if (intervalo > 0) {
+            agendador.scheduleAtFixedRate(() -> {
+                System.out.println("Pool JDBC: " + fabricaConexoes.metricas());
+                System.out.println("Cache de transações: " + cacheTransacoes);
+                GravadorTransacoes gravador = gravadorTransacoes;
+                if (gravador != null) {
+                    System.out.println("Fila de gravação: " + gravador.metricas());
+                }
+                System.out.println("Sessões ativas: " + sessoes.size());
+            }, intervalo, intervalo, TimeUnit.SECONDS);
+        }
+        // Métricas JDBC por JMX e em arquivo, reescrito periodicamente e no encerramento
+        MetricasJdbc.INSTANCIA.registrarNoJmx();
+        long intervaloMetricas = Long.getLong("controlefinanceiro.metricas.intervaloSegundos", 60);
+        if (intervaloMetricas > 0) {
+            agendador.scheduleAtFixedRate(this::gravarMetricas, intervaloMetricas, intervaloMetricas, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::encerrar));
+
+        // O extrato é compilado enquanto o usuário faz login
+        Thread compilacao = new Thread(() -> cacheRelatorios.precompilar("Extrato"), "compilacao-relatorios");
+        compilacao.setDaemon(true);
+        compilacao.start();
+
+        if (falhaMigracao != null) {
+            throw falhaMigracao;
+        }
+    }
+
+    // Pode ser chamado pelo dono do serviço e, de novo, pelo gancho de desligamento
+    public void encerrar() {
+        if (!encerrado.compareAndSet(false, true)) {
+            return;
+        }
+        agendador.shutdownNow();
+        GravadorTransacoes gravador = gravadorTransacoes;
+        if (gravador != null) {
+            gravador.encerrar(5000);
+        }
+        gravarMetricas();
+        fabricaConexoes.fechar();
+        if (fabricaRemota != null) {
+            fabricaRemota.fechar();
+        }
+        if (indiceDescricoes != null) {
+            try {
+                indiceDescricoes.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    // Chamado quando dados mudam fora de uma requisição: lote gravado pela fila ou
+    // alterações recebidas do servidor. Os ouvintes rodam na thread de fundo
+    public void adicionarOuvinte(Runnable ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    private void notificarOuvintes() {
+        for (Runnable ouvinte : ouvintes) {
+            ouvinte.run();
+        }
+    }
+
+    public SessaoUsuario entrar(String usuario, String senha) throws SQLException {
+        return entrar(usuario, senha, EXPIRACAO_PADRAO_MS);
+    }
+
+    // Retorna a nova sessão, ou null se usuário e senha não conferirem. Cache e índice
+    // textual do usuário são preparados em segundo plano
+    public SessaoUsuario entrar(String usuario, String senha, long expiracaoMs) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("login")) {
+            Integer idUser = usuarioRepository.autenticar(usuario, senha);
+            if (idUser == null && usuarioRemoto != null) {
+                // Primeiro acesso neste computador: o usuário vem do servidor
+                idUser = usuarioRemoto.autenticar(usuario, senha);
+                if (idUser != null) {
+                    usuarioRepository.copiarDe(usuarioRemoto, usuario);
+                }
+            }
+            if (idUser == null) {
+                return null;
+            }
+            byte[] aleatorio = new byte[24];
+            geradorTokens.nextBytes(aleatorio);
+            SessaoUsuario sessao = new SessaoUsuario(Base64.getUrlEncoder().withoutPadding().encodeToString(aleatorio), idUser, usuario, expiracaoMs);
+            sessoes.put(sessao.getToken(), sessao);
+
+            int idPreparado = idUser;
+            Thread.ofVirtual().name("preparacao-sessao").start(() -> prepararUsuario(idPreparado));
+            if (sincronizador != null) {
+                agendador.execute(this::sincronizarComServidor);
+            }
+            return sessao;
+        }
+    }
+
+    // Sessão ainda válida para o token, ou null
+    public SessaoUsuario sessao(String token) {
+        SessaoUsuario sessao = token != null ? sessoes.get(token) : null;
+        if (sessao == null) {
+            return null;
+        }
+        if (sessao.expirada(System.currentTimeMillis())) {
+            sessoes.remove(token, sessao);
+            return null;
+        }
+        sessao.tocar();
+        return sessao;
+    }
+
+    public void sair(SessaoUsuario sessao) {
+        sessoes.remove(sessao.getToken(), sessao);
+    }
+
+    public int getSessoesAtivas() {
+        return sessoes.size();
+    }
+
+    private void removerSessoesExpiradas() {
+        long agora = System.currentTimeMillis();
+        sessoes.values().removeIf(sessao -> sessao.expirada(agora));
+    }
+
+    public void registrarUsuario(String usuario, String senha) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("cadastro")) {
+            if (usuarioRemoto != null) {
+                // O idUser é atribuído pelo servidor, para ser o mesmo em todas as cópias
+                usuarioRemoto.registrar(usuario, senha);
+                usuarioRepository.copiarDe(usuarioRemoto, usuario);
+            } else {
+                usuarioRepository.registrar(usuario, senha);
+            }
+        }
+    }
+
+    // Confere o índice textual do usuário com o banco e carrega suas transações no cache
+    private void prepararUsuario(int idUser) {
+        try {
+            transacaoRepository.aquecerCache(idUser);
+            transacaoRepository.sincronizarIndice(idUser);
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    // Saldo do livro-razão; lançamentos ainda na fila de gravação entram de forma otimista
+    public ResumoSaldo saldo(SessaoUsuario sessao) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("saldo")) {
+            int idUser = sessao.getIdUser();
+            GravadorTransacoes gravador = gravadorTransacoes;
+            ResumoSaldo pendentes = gravador != null ? gravador.pendentes(idUser) : ResumoSaldo.ZERO;
+            return transacaoRepository.carregarSaldo(idUser).somar(pendentes);
+        }
+    }
+
+    public MetricasPool getMetricasPool() {
+        return fabricaConexoes.metricas();
+    }
+
+    // null quando não há diário local (gravação síncrona)
+    public MetricasGravacao getMetricasGravacao() {
+        GravadorTransacoes gravador = gravadorTransacoes;
+        return gravador != null ? gravador.metricas() : null;
+    }
+
+    // Recalcula o saldo a partir de todas as transações (caminho O(n), apenas sob demanda)
+    public Reconciliacao reconciliar(SessaoUsuario sessao) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("reconciliacao")) {
+            return transacaoRepository.reconciliarSaldo(sessao.getIdUser());
+        }
+    }
+
+    public List<TotalMensal> resumoMensal(SessaoUsuario sessao) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("resumo-mensal")) {
+            return transacaoRepository.listarResumoMensal(sessao.getIdUser());
+        }
+    }
+
+    // Troca a descrição pelos ids do índice textual; o resultado serve para várias páginas
+    public FiltroTransacao resolverFiltro(SessaoUsuario sessao, FiltroTransacao filtro) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("listagem")) {
+            return transacaoRepository.resolverDescricao(sessao.getIdUser(), filtro);
+        }
+    }
+
+    public int contar(SessaoUsuario sessao, FiltroTransacao filtro) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("listagem")) {
+            return transacaoRepository.contar(sessao.getIdUser(), filtro);
+        }
+    }
+
+    // Página de transações após a chave informada (null: do início), na ordem (data, id)
+    public List<Transacao> listar(SessaoUsuario sessao, FiltroTransacao filtro, ChaveTransacao apos, int limite) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("listagem")) {
+            return transacaoRepository.buscarPagina(sessao.getIdUser(), filtro, apos, limite);
+        }
+    }
+
+    public ChaveTransacao buscarChave(SessaoUsuario sessao, FiltroTransacao filtro, ChaveTransacao apos, int deslocamento) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("listagem")) {
+            return transacaoRepository.buscarChave(sessao.getIdUser(), filtro, apos, deslocamento);
+        }
+    }
+
+    // IllegalArgumentException se a transação não cabe nas colunas do banco (TransacaoRepository.validar)
+    public void registrar(SessaoUsuario sessao, Transacao transacao) throws IOException, SQLException {
+        TransacaoRepository.validar(transacao);
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("inclusao")) {
+            GravadorTransacoes gravador = gravadorTransacoes;
+            if (gravador != null) {
+                // Só o diário local é gravado aqui; o envio ao banco acontece em segundo plano
+                gravador.registrar(sessao.getIdUser(), transacao);
+            } else {
+                // Inserção e atualização do saldo acumulado na mesma transação do banco
+                transacaoRepository.inserir(sessao.getIdUser(), transacao);
+            }
+        }
+    }
+
+    public RelatorioImportacao importar(SessaoUsuario sessao, LeitorExtrato leitor, ImportadorExtrato.Progresso progresso) throws IOException, SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("importacao")) {
+            return new ImportadorExtrato(transacaoRepository).importar(sessao.getIdUser(), leitor, progresso);
+        }
+    }
+
+    // Ids de outros usuários são ignorados pela consulta
+    public void excluir(SessaoUsuario sessao, List<Long> ids) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("exclusao")) {
+            transacaoRepository.excluir(sessao.getIdUser(), ids);
+        }
+    }
+
+    public void limpar(SessaoUsuario sessao) throws SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("exclusao")) {
+            transacaoRepository.limpar(sessao.getIdUser());
+        }
+    }
+
+    public ExtratoPreenchido preencherExtrato(SessaoUsuario sessao, LocalDate dataInicio, LocalDate dataFim, TipoTransacao tipo) throws JRException, SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("extrato")) {
+            return servicoExtrato.preencher(sessao.getIdUser(), dataInicio, dataFim, tipo);
+        }
+    }
+
+    public void exportarExtrato(SessaoUsuario sessao, LocalDate dataInicio, LocalDate dataFim, TipoTransacao tipo, Path destino) throws JRException, SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("extrato")) {
+            servicoExtrato.exportarPdf(sessao.getIdUser(), dataInicio, dataFim, tipo, destino);
+        }
+    }
+
+    // Extratos do mês de todos os usuários, fora de qualquer sessão (fechamento do mês em lote)
+    public RelatorioExtratosMensais gerarExtratosMensais(YearMonth mes, Path diretorio, int trabalhadores, int limiteBanco,
+                                                         GeradorExtratosMensais.Progresso progresso)
+            throws IOException, JRException, SQLException, InterruptedException {
+        return geradorExtratosMensais.gerar(mes, diretorio, trabalhadores, limiteBanco, progresso);
+    }
+
+    // Todo o histórico que atende ao filtro, sem o limite de resultados do índice textual: a
+    // descrição é procurada com LIKE, como na tela quando o índice não está disponível
+    public RelatorioExportacao exportarTransacoes(SessaoUsuario sessao, FiltroTransacao filtro, FormatoExportacao formato, boolean compactar,
+                                                  Path destino, ExportadorTransacoes.Progresso progresso) throws IOException, SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("exportacao")) {
+            return exportadorTransacoes.exportar(sessao.getIdUser(), filtro, formato, compactar, destino, progresso);
+        }
+    }
+
+    public RelatorioExportacao exportarTransacoes(SessaoUsuario sessao, FiltroTransacao filtro, FormatoExportacao formato, boolean compactar,
+                                                  ExportadorTransacoes.Destino destino) throws IOException, SQLException {
+        try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("exportacao")) {
+            return exportadorTransacoes.exportar(sessao.getIdUser(), filtro, formato, compactar, destino, parcial -> { });
+        }
+    }
+
+    // Sincroniza cada usuário com sessão aberta. Sem conexão com o servidor a rodada é só
+    // adiada; o aplicativo continua no banco local
+    private void sincronizarComServidor() {
+        Set<Integer> usuarios = sessoes.values().stream().map(SessaoUsuario::getIdUser).collect(Collectors.toSet());
+        if (usuarios.isEmpty()) {
+            return;
+        }
+        try {
+            if (!servidorMigrado) {
+                new Migrador(fabricaRemota).migrar();
+                servidorMigrado = true;
+            }
+            int recebidas = 0;
+            for (int idUser : usuarios) {
+                recebidas += sincronizador.sincronizar(idUser).getRecebidas();
+            }
+            if (recebidas > 0) {
+                notificarOuvintes();
+            }
+        } catch (SQLException ex) {
+            System.err.println("Sincronização adiada, servidor indisponível: " + ex.getMessage());
+        }
+    }
+
+    private void gravarMetricas() {
+        Path arquivo = Paths.get(System.getProperty("controlefinanceiro.metricas.arquivo",
+                System.getProperty("user.home") + "/.controlefinanceiro/metricas.txt"));
+        try {
+            MetricasJdbc.INSTANCIA.gravar(arquivo);
+        } catch (IOException ex) {
+            System.err.println("Não foi possível gravar as métricas em " + arquivo + ": " + ex.getMessage());
+        }
+    }
+
+    // Diário local e fila de gravação; reenvia o que ficou pendente da última execução
+    private GravadorTransacoes abrirGravadorTransacoes() {
+        Path arquivo = Paths.get(System.getProperty("controlefinanceiro.diario",
+                System.getProperty("user.home") + "/.controlefinanceiro/diario/lancamentos.log"));
+        try {
+            GravadorTransacoes gravador = new GravadorTransacoes(new DiarioTransacoes(arquivo), transacaoRepository, this::notificarOuvintes);
+            gravador.iniciar();
+            return gravador;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    // Índice textual local das descrições, fechado em encerrar()
+    private IndiceDescricoes abrirIndiceDescricoes() {
+        Path diretorio = Paths.get(System.getProperty("controlefinanceiro.indice",
+                System.getProperty("user.home") + "/.controlefinanceiro/indice"));
+        try {
+            return new IndiceDescricoes(diretorio);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,490 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.sf.jasperreports.engine.JasperExportManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// API HTTP/JSON sobre o ServicoFinanceiro, para vários usuários ao mesmo tempo. Cada
+// requisição roda em uma thread virtual, então esperas no banco não prendem threads do
+// sistema; o limite de concorrência real é o pool de conexões. O token de sessão vai no
+// cabeçalho "Authorization: Bearer <token>" e nada de um usuário fica guardado aqui.
+class ServidorHttp {
+    private static final int LIMITE_PADRAO = 100;
+    private static final int LIMITE_MAXIMO = 1000;
+
+    static {
+        // Cabeçalhos e corpo saem em escritas separadas; com Nagle, cada resposta pequena
+        // esperaria o ACK atrasado do cliente (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    // Erro de uso da API, respondido com o status e a mensagem informados
+    static class ErroRequisicao extends Exception {
+        private final int status;
+
+        ErroRequisicao(int status, String mensagem) {
+            super(mensagem);
+            this.status = status;
+        }
+    }
+
+    interface Rota {
+        void atender(HttpExchange troca) throws Exception;
+    }
+
+    private final ServicoFinanceiro servico;
+    private final ObjectMapper json = new ObjectMapper();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpServer servidor;
+
+    public ServidorHttp(ServicoFinanceiro servico, int porta) throws IOException {
+        this.servico = servico;
+        servidor = HttpServer.create(new InetSocketAddress(porta), Integer.getInteger("controlefinanceiro.servidor.filaConexoes", 1024));
+        servidor.setExecutor(executor);
+        servidor.createContext("/api/usuarios", troca -> tratar(troca, this::usuarios));
+        servidor.createContext("/api/sessoes", troca -> tratar(troca, this::sessoes));
+        servidor.createContext("/api/saldo", troca -> tratar(troca, this::saldo));
+        servidor.createContext("/api/resumo-mensal", troca -> tratar(troca, this::resumoMensal));
+        servidor.createContext("/api/transacoes", troca -> tratar(troca, this::transacoes));
+        servidor.createContext("/api/extrato.pdf", troca -> tratar(troca, this::extrato));
+        servidor.createContext("/api/exportacao", troca -> tratar(troca, this::exportacao));
+        servidor.createContext("/api/metricas", troca -> tratar(troca, this::metricas));
+    }
+
+    public void iniciar() {
+        servidor.start();
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    public void parar() {
+        servidor.stop(1);
+        executor.shutdown();
+    }
+
+    // Modo servidor sem interface gráfica: "java ControleFinanceiro --servidor"
+    static void executar() {
+        ServicoFinanceiro servico = new ServicoFinanceiro();
+        try {
+            servico.iniciar();
+        } catch (SQLException ex) {
+            System.err.println("Falha ao migrar o banco: " + ex.getMessage());
+            System.exit(1);
+        }
+        try {
+            ServidorHttp servidor = new ServidorHttp(servico, Integer.getInteger("controlefinanceiro.servidor.porta", 8080));
+            servidor.iniciar();
+            Runtime.getRuntime().addShutdownHook(new Thread(servidor::parar));
+            System.out.println("Servidor ouvindo na porta " + servidor.getPorta());
+            MarcasInicializacao.marcar("servidor pronto");
+        } catch (IOException ex) {
+            System.err.println("Falha ao abrir o servidor: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void tratar(HttpExchange troca, Rota rota) throws IOException {
+        try {
+            rota.atender(troca);
+        } catch (ErroRequisicao ex) {
+            responderErro(troca, ex.status, ex.getMessage());
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            responderErro(troca, 400, "Parâmetro inválido: " + ex.getMessage());
+        } catch (SQLException ex) {
+            if (violaRestricao(ex)) {
+                // O banco respondeu e recusou o dado; repetir a requisição não adiantaria
+                responderErro(troca, 409, "Conflito com um registro existente");
+                return;
+            }
+            ex.printStackTrace();
+            responderErro(troca, 503, "Banco de dados indisponível");
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            responderErro(troca, 500, "Erro interno");
+        } finally {
+            troca.close();
+        }
+    }
+
+    // POST /api/usuarios {"nome", "senha"}
+    private void usuarios(HttpExchange troca) throws Exception {
+        exigirMetodo(troca, "POST");
+        JsonNode corpo = lerCorpo(troca);
+        String nome = texto(corpo, "nome");
+        String senha = texto(corpo, "senha");
+        if (nome.isEmpty() || senha.isEmpty()) {
+            throw new ErroRequisicao(400, "Usuário e senha não podem estar vazios.");
+        }
+        try {
+            servico.registrarUsuario(nome, senha);
+        } catch (SQLException ex) {
+            if (violaRestricao(ex)) {
+                throw new ErroRequisicao(409, "Usuário já existe");
+            }
+            throw ex;
+        }
+        responder(troca, 201, Map.of("nome", nome));
+    }
+
+    // Violação de restrição (SQLSTATE classe 23), como o índice único de usuario.nome. O driver
+    // pode trazer o erro original como causa ou próxima exceção
+    static boolean violaRestricao(SQLException ex) {
+        Throwable causa = ex;
+        for (int profundidade = 0; causa != null && profundidade < 10; profundidade++) {
+            if (causa instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (causa instanceof SQLException) {
+                String estado = ((SQLException) causa).getSQLState();
+                if (estado != null && estado.startsWith("23")) {
+                    return true;
+                }
+                SQLException proxima = ((SQLException) causa).getNextException();
+                causa = proxima != null ? proxima : causa.getCause();
+            } else {
+                causa = causa.getCause();
+            }
+        }
+        return false;
+    }
+
+    // POST /api/sessoes {"nome", "senha"} abre a sessão; DELETE /api/sessoes a encerra
+    private void sessoes(HttpExchange troca) throws Exception {
+        if (troca.getRequestMethod().equals("DELETE")) {
+            servico.sair(autenticar(troca));
+            responder(troca, 204, null);
+            return;
+        }
+        exigirMetodo(troca, "POST");
+        JsonNode corpo = lerCorpo(troca);
+        SessaoUsuario sessao = servico.entrar(texto(corpo, "nome"), texto(corpo, "senha"));
+        if (sessao == null) {
+            throw new ErroRequisicao(401, "Usuário ou senha inválidos.");
+        }
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        resposta.put("token", sessao.getToken());
+        resposta.put("idUser", sessao.getIdUser());
+        resposta.put("nome", sessao.getNome());
+        responder(troca, 201, resposta);
+    }
+
+    // GET /api/saldo; POST /api/saldo recalcula a partir das transações (reconciliação)
+    private void saldo(HttpExchange troca) throws Exception {
+        SessaoUsuario sessao = autenticar(troca);
+        if (troca.getRequestMethod().equals("POST")) {
+            Reconciliacao reconciliacao = servico.reconciliar(sessao);
+            Map<String, Object> resposta = converter(reconciliacao.getRecalculado());
+            resposta.put("divergenciaEntradas", reconciliacao.getDivergenciaEntradas().paraBigDecimal());
+            resposta.put("divergenciaSaidas", reconciliacao.getDivergenciaSaidas().paraBigDecimal());
+            responder(troca, 200, resposta);
+            return;
+        }
+        exigirMetodo(troca, "GET");
+        responder(troca, 200, converter(servico.saldo(sessao)));
+    }
+
+    // GET /api/resumo-mensal
+    private void resumoMensal(HttpExchange troca) throws Exception {
+        SessaoUsuario sessao = autenticar(troca);
+        exigirMetodo(troca, "GET");
+        List<Map<String, Object>> totais = new ArrayList<>();
+        for (TotalMensal total : servico.resumoMensal(sessao)) {
+            Map<String, Object> linha = new LinkedHashMap<>();
+            linha.put("mes", total.getMes().toString());
+            linha.put("tipo", total.getTipo().name());
+            linha.put("total", total.getTotal().paraBigDecimal());
+            linha.put("quantidade", total.getQuantidade());
+            totais.add(linha);
+        }
+        responder(troca, 200, totais);
+    }
+
+    // GET /api/metricas: latências por operação e por comando SQL (MetricasJdbc), o pool de
+    // conexões e a fila de gravação. Só atende a própria máquina, já que expõe o SQL e o volume de uso
+    private void metricas(HttpExchange troca) throws Exception {
+        exigirMetodo(troca, "GET");
+        if (!troca.getRemoteAddress().getAddress().isLoopbackAddress()) {
+            throw new ErroRequisicao(403, "Métricas disponíveis só em localhost.");
+        }
+        MetricasJdbc metricasJdbc = MetricasJdbc.INSTANCIA;
+        List<Map<String, Object>> operacoes = new ArrayList<>();
+        for (String nome : metricasJdbc.listarOperacoes()) {
+            HistogramaLatencia latencia = metricasJdbc.latenciaOperacao(nome);
+            Map<String, Object> linha = new LinkedHashMap<>();
+            linha.put("operacao", nome);
+            linha.put("quantidade", latencia.getQuantidade());
+            linha.put("p50Ms", latencia.percentilMs(0.50));
+            linha.put("p99Ms", latencia.percentilMs(0.99));
+            operacoes.add(linha);
+        }
+        List<Map<String, Object>> comandos = new ArrayList<>();
+        for (EstatisticaComando comando : metricasJdbc.listarComandos()) {
+            Map<String, Object> linha = new LinkedHashMap<>();
+            linha.put("banco", comando.getBanco());
+            linha.put("operacao", comando.getOperacao());
+            linha.put("sql", comando.getSql());
+            linha.put("execucoes", comando.getExecucao().getQuantidade());
+            linha.put("erros", comando.getErros());
+            linha.put("preparos", comando.getPreparos());
+            linha.put("preparosReaproveitados", comando.getPreparosReaproveitados());
+            linha.put("execucaoP50Ms", comando.getExecucao().percentilMs(0.50));
+            linha.put("execucaoP99Ms", comando.getExecucao().percentilMs(0.99));
+            linha.put("leituraP50Ms", comando.getLeitura().percentilMs(0.50));
+            linha.put("leituraP99Ms", comando.getLeitura().percentilMs(0.99));
+            linha.put("linhas", comando.getLinhas());
+            linha.put("bytes", comando.getBytes());
+            comandos.add(linha);
+        }
+        MetricasPool pool = servico.getMetricasPool();
+        Map<String, Object> conexoes = new LinkedHashMap<>();
+        conexoes.put("ativas", pool.getAtivas());
+        conexoes.put("ociosas", pool.getOciosas());
+        conexoes.put("maximoAtivas", pool.getMaximoAtivas());
+        conexoes.put("emprestimos", pool.getEmprestimos());
+        conexoes.put("esperaMediaMs", pool.getEsperaMediaMs());
+        conexoes.put("esperaMaximaMs", pool.getEsperaMaximaMs());
+
+        Map<String, Object> gravacao = new LinkedHashMap<>();
+        MetricasGravacao metricasGravacao = servico.getMetricasGravacao();
+        if (metricasGravacao != null) {
+            gravacao.put("pendentes", metricasGravacao.getPendentes());
+            gravacao.put("maximoPendentes", metricasGravacao.getMaximoPendentes());
+            gravacao.put("lancamentosGravados", metricasGravacao.getLancamentosGravados());
+            gravacao.put("rejeitados", metricasGravacao.getRejeitados());
+            gravacao.put("falhasConsecutivas", metricasGravacao.getFalhasConsecutivas());
+        }
+
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        resposta.put("operacoes", operacoes);
+        resposta.put("comandos", comandos);
+        resposta.put("consultasLentas", metricasJdbc.getConsultasLentas());
+        resposta.put("preparos", metricasJdbc.getPreparos());
+        resposta.put("preparosReaproveitados", metricasJdbc.getPreparosReaproveitados());
+        resposta.put("pool", conexoes);
+        resposta.put("gravacao", gravacao);
+        responder(troca, 200, resposta);
+    }
+
+    // GET lista uma página (filtros da tela e paginação por aposData/aposId),
+    // POST registra uma transação e DELETE exclui por ids ("?ids=1,2") ou todas ("?todas=true")
+    private void transacoes(HttpExchange troca) throws Exception {
+        SessaoUsuario sessao = autenticar(troca);
+        Map<String, String> parametros = lerParametros(troca);
+        switch (troca.getRequestMethod()) {
+            case "GET":
+                listarTransacoes(troca, sessao, parametros);
+                break;
+            case "POST":
+                JsonNode corpo = lerCorpo(troca);
+                String data = texto(corpo, "data");
+                Transacao transacao = new Transacao(0, texto(corpo, "descricao"), Dinheiro.deExato(texto(corpo, "valor")),
+                        TipoTransacao.valueOf(texto(corpo, "tipo")), data.isEmpty() ? LocalDate.now() : LocalDate.parse(data));
+                servico.registrar(sessao, transacao);
+                responder(troca, 202, null);
+                break;
+            case "DELETE":
+                if (Boolean.parseBoolean(parametros.get("todas"))) {
+                    servico.limpar(sessao);
+                } else {
+                    List<Long> ids = new ArrayList<>();
+                    for (String id : parametros.getOrDefault("ids", "").split(",")) {
+                        if (!id.isBlank()) {
+                            ids.add(Long.parseLong(id.trim()));
+                        }
+                    }
+                    if (ids.isEmpty()) {
+                        throw new ErroRequisicao(400, "Informe ids ou todas=true.");
+                    }
+                    servico.excluir(sessao, ids);
+                }
+                responder(troca, 204, null);
+                break;
+            default:
+                throw new ErroRequisicao(405, "Método não suportado.");
+        }
+    }
+
+    // O total só é contado na primeira página; as seguintes continuam da chave "proxima"
+    private void listarTransacoes(HttpExchange troca, SessaoUsuario sessao, Map<String, String> parametros) throws Exception {
+        FiltroTransacao filtro = servico.resolverFiltro(sessao, lerFiltro(parametros));
+        int limite = Math.min(LIMITE_MAXIMO, Integer.parseInt(parametros.getOrDefault("limite", String.valueOf(LIMITE_PADRAO))));
+        if (limite <= 0) {
+            throw new ErroRequisicao(400, "limite deve ser positivo.");
+        }
+        ChaveTransacao apos = null;
+        if (parametros.containsKey("aposData") && parametros.containsKey("aposId")) {
+            apos = new ChaveTransacao(LocalDate.parse(parametros.get("aposData")), Long.parseLong(parametros.get("aposId")));
+        }
+
+        List<Transacao> pagina = servico.listar(sessao, filtro, apos, limite);
+        List<Map<String, Object>> linhas = new ArrayList<>(pagina.size());
+        for (Transacao transacao : pagina) {
+            Map<String, Object> linha = new LinkedHashMap<>();
+            linha.put("id", transacao.getId());
+            linha.put("descricao", transacao.getDescricao());
+            linha.put("valor", transacao.getValor().paraBigDecimal());
+            linha.put("tipo", transacao.getTipo().name());
+            linha.put("data", transacao.getData().toString());
+            linhas.add(linha);
+        }
+        Map<String, Object> resposta = new LinkedHashMap<>();
+        if (apos == null) {
+            resposta.put("total", servico.contar(sessao, filtro));
+        }
+        resposta.put("transacoes", linhas);
+        if (pagina.size() == limite) {
+            Transacao ultima = pagina.get(pagina.size() - 1);
+            resposta.put("proxima", Map.of("aposData", ultima.getData().toString(), "aposId", ultima.getId()));
+        }
+        responder(troca, 200, resposta);
+    }
+
+    // GET /api/extrato.pdf com os mesmos filtros de data e tipo da tela
+    private void extrato(HttpExchange troca) throws Exception {
+        SessaoUsuario sessao = autenticar(troca);
+        exigirMetodo(troca, "GET");
+        Map<String, String> parametros = lerParametros(troca);
+        LocalDate inicio = data(parametros.get("dataInicio"));
+        LocalDate fim = data(parametros.get("dataFim"));
+        String tipo = parametros.getOrDefault("tipo", "");
+        // Preenchido antes de enviar os cabeçalhos, para que uma falha ainda vire um status de erro
+        try (ExtratoPreenchido extrato = servico.preencherExtrato(sessao, inicio, fim, tipo.isEmpty() ? null : TipoTransacao.valueOf(tipo))) {
+            troca.getResponseHeaders().set("Content-Type", "application/pdf");
+            troca.sendResponseHeaders(200, 0);
+            try (OutputStream saida = troca.getResponseBody()) {
+                JasperExportManager.exportReportToPdfStream(extrato.getImpressao(), saida);
+            }
+        }
+    }
+
+    // GET /api/exportacao?formato=csv|binario com os filtros da listagem: todo o histórico em
+    // streaming, compactado com gzip quando o cliente aceita
+    private void exportacao(HttpExchange troca) throws Exception {
+        SessaoUsuario sessao = autenticar(troca);
+        exigirMetodo(troca, "GET");
+        Map<String, String> parametros = lerParametros(troca);
+        FiltroTransacao filtro = lerFiltro(parametros);
+        FormatoExportacao formato = FormatoExportacao.valueOf(parametros.getOrDefault("formato", "csv").toUpperCase(Locale.ROOT));
+        String aceitas = troca.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean compactar = aceitas != null && aceitas.contains("gzip");
+        servico.exportarTransacoes(sessao, filtro, formato, compactar, () -> {
+            troca.getResponseHeaders().set("Content-Type", formato == FormatoExportacao.CSV ? "text/csv; charset=utf-8" : "application/octet-stream");
+            troca.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"transacoes." + formato.getExtensao() + "\"");
+            if (compactar) {
+                troca.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            troca.sendResponseHeaders(200, 0);
+            return Channels.newChannel(troca.getResponseBody());
+        });
+    }
+
+    private SessaoUsuario autenticar(HttpExchange troca) throws ErroRequisicao {
+        String cabecalho = troca.getRequestHeaders().getFirst("Authorization");
+        SessaoUsuario sessao = cabecalho != null && cabecalho.startsWith("Bearer ") ? servico.sessao(cabecalho.substring(7).trim()) : null;
+        if (sessao == null) {
+            throw new ErroRequisicao(401, "Sessão inválida ou expirada.");
+        }
+        return sessao;
+    }
+
+    private static void exigirMetodo(HttpExchange troca, String metodo) throws ErroRequisicao {
+        if (!troca.getRequestMethod().equals(metodo)) {
+            throw new ErroRequisicao(405, "Método não suportado.");
+        }
+    }
+
+    private JsonNode lerCorpo(HttpExchange troca) throws ErroRequisicao {
+        try {
+            JsonNode corpo = json.readTree(troca.getRequestBody());
+            if (corpo == null || !corpo.isObject()) {
+                throw new ErroRequisicao(400, "Corpo JSON ausente.");
+            }
+            return corpo;
+        } catch (IOException ex) {
+            throw new ErroRequisicao(400, "JSON inválido.");
+        }
+    }
+
+    private static String texto(JsonNode corpo, String campo) {
+        JsonNode valor = corpo.get(campo);
+        return valor == null || valor.isNull() ? "" : valor.asText();
+    }
+
+    private static Map<String, String> lerParametros(HttpExchange troca) {
+        Map<String, String> parametros = new HashMap<>();
+        String consulta = troca.getRequestURI().getRawQuery();
+        if (consulta != null) {
+            for (String par : consulta.split("&")) {
+                int igual = par.indexOf('=');
+                if (igual > 0) {
+                    parametros.put(URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8),
+                            URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parametros;
+    }
+
+    // Datas validadas aqui, para que um formato inválido vire 400 e não um filtro ignorado
+    private static FiltroTransacao lerFiltro(Map<String, String> parametros) {
+        LocalDate inicio = data(parametros.get("dataInicio"));
+        LocalDate fim = data(parametros.get("dataFim"));
+        String tipo = parametros.getOrDefault("tipo", "");
+        return new FiltroTransacao(parametros.getOrDefault("descricao", ""), inicio, fim, tipo.isEmpty() ? null : TipoTransacao.valueOf(tipo));
+    }
+
+    private static LocalDate data(String texto) {
+        return texto == null || texto.isBlank() ? null : LocalDate.parse(texto.trim());
+    }
+
+    private static Map<String, Object> converter(ResumoSaldo resumo) {
+        Map<String, Object> saldo = new LinkedHashMap<>();
+        saldo.put("entradas", resumo.getEntradas().paraBigDecimal());
+        saldo.put("saidas", resumo.getSaidas().paraBigDecimal());
+        saldo.put("saldo", resumo.getSaldo().paraBigDecimal());
+        return saldo;
+    }
+
+    private void responder(HttpExchange troca, int status, Object corpo) throws IOException {
+        if (corpo == null) {
+            troca.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.writeValueAsBytes(corpo);
+        troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        troca.sendResponseHeaders(status, bytes.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(bytes);
+        }
+    }
+
+    private void responderErro(HttpExchange troca, int status, String mensagem) throws IOException {
+        if (troca.getResponseCode() != -1) {
+            return; // Cabeçalhos já enviados: só resta fechar a resposta
+        }
+        responder(troca, status, Map.of("erro", mensagem));
+    }
+}
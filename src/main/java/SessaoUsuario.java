@@ -0,0 +1,36 @@
+// Sessão de um usuário autenticado. Só o instante do último acesso muda depois da criação
+class SessaoUsuario {
+    private final String token;
+    private final int idUser;
+    private final String nome;
+    private final long expiracaoMs; // 0: não expira (sessão da interface gráfica)
+    private volatile long ultimoAcesso;
+
+    public SessaoUsuario(String token, int idUser, String nome, long expiracaoMs) {
+        this.token = token;
+        this.idUser = idUser;
+        this.nome = nome;
+        this.expiracaoMs = expiracaoMs;
+        this.ultimoAcesso = System.currentTimeMillis();
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public int getIdUser() {
+        return idUser;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    void tocar() {
+        ultimoAcesso = System.currentTimeMillis();
+    }
+
+    boolean expirada(long agora) {
+        return expiracaoMs > 0 && agora - ultimoAcesso > expiracaoMs;
+    }
+}
@@ -0,0 +1,90 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Sincronização incremental entre o banco local (principal no modo local) e o servidor.
+// Cada sentido tem dois fluxos, inclusões e exclusões, lidos em páginas pela ordem
+// (momento, chave) a partir da última marca gravada na tabela sincronizacao do banco local.
+// Conflitos: a mesma chave incluída dos dois lados é uma só transação, e uma exclusão em
+// qualquer lado vence a inclusão (as transações não têm edição, então não há outro caso).
+class SincronizadorTransacoes {
+    private static final int TAMANHO_PAGINA = 500;
+
+    interface Leitura {
+        PaginaAlteracoes ler(MarcaSincronizacao apos) throws SQLException;
+    }
+
+    private final ReplicaTransacoes local;
+    private final ReplicaTransacoes remota;
+    private final FabricaConexoes fabricaLocal;
+    private final long janelaMs;
+
+    public SincronizadorTransacoes(ReplicaTransacoes local, ReplicaTransacoes remota, FabricaConexoes fabricaLocal) {
+        this.local = local;
+        this.remota = remota;
+        this.fabricaLocal = fabricaLocal;
+        this.janelaMs = Long.getLong("controlefinanceiro.sincronizacao.janelaSegundos", 60) * 1000;
+    }
+
+    public synchronized ResultadoSincronizacao sincronizar(int idUser) throws SQLException {
+        // Inclusões antes das exclusões: o que foi criado e excluído entre duas rodadas termina excluído
+        int enviadas = transferir(idUser, "envio-inseridas", apos -> local.inseridasDesde(idUser, apos, TAMANHO_PAGINA), remota)
+                + transferir(idUser, "envio-excluidas", apos -> local.excluidasDesde(idUser, apos, TAMANHO_PAGINA), remota);
+        int recebidas = transferir(idUser, "recebimento-inseridas", apos -> remota.inseridasDesde(idUser, apos, TAMANHO_PAGINA), local)
+                + transferir(idUser, "recebimento-excluidas", apos -> remota.excluidasDesde(idUser, apos, TAMANHO_PAGINA), local);
+        return new ResultadoSincronizacao(enviadas, recebidas);
+    }
+
+    // O momento de cada alteração é definido antes do commit, então uma alteração pode aparecer
+    // com momento anterior à última marca lida. A leitura recomeça "janelaMs" antes da marca;
+    // o que for relido é descartado pela idempotência de aplicar().
+    private int transferir(int idUser, String fluxo, Leitura leitura, ReplicaTransacoes destino) throws SQLException {
+        MarcaSincronizacao gravada = carregarMarca(idUser, fluxo);
+        MarcaSincronizacao apos = gravada.recuar(janelaMs);
+        int alteradas = 0;
+        while (true) {
+            PaginaAlteracoes pagina = leitura.ler(apos);
+            if (pagina.tamanho() == 0) {
+                break;
+            }
+            alteradas += destino.aplicar(idUser, pagina.getInseridas(), pagina.getExcluidas());
+            apos = pagina.getUltima();
+            if (pagina.tamanho() < TAMANHO_PAGINA) {
+                break;
+            }
+        }
+        if (apos.posteriorA(gravada)) {
+            gravarMarca(idUser, fluxo, apos);
+        }
+        return alteradas;
+    }
+
+    private MarcaSincronizacao carregarMarca(int idUser, String fluxo) throws SQLException {
+        String sql = "SELECT momento, chave_cliente FROM sincronizacao WHERE IdUser = ? AND fluxo = ?";
+        return fabricaLocal.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                statement.setString(2, fluxo);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next()
+                            ? new MarcaSincronizacao(resultSet.getTimestamp("momento"), resultSet.getString("chave_cliente").trim())
+                            : MarcaSincronizacao.INICIO;
+                }
+            }
+        });
+    }
+
+    private void gravarMarca(int idUser, String fluxo, MarcaSincronizacao marca) throws SQLException {
+        String sql = "INSERT INTO sincronizacao (IdUser, fluxo, momento, chave_cliente) VALUES (?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE momento = VALUES(momento), chave_cliente = VALUES(chave_cliente)";
+        fabricaLocal.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                statement.setString(2, fluxo);
+                statement.setTimestamp(3, marca.getMomento());
+                statement.setString(4, marca.getChave());
+                return statement.executeUpdate();
+            }
+        });
+    }
+}
@@ -0,0 +1,29 @@
+import java.math.BigDecimal;
+
+// Acumulador de somas sem alocação por parcela: soma em long e só recorre a BigDecimal para a
+// parte que estouraria. Não é seguro entre threads; cada soma usa o seu.
+final class SomaDinheiro {
+    private long centavos;
+    private BigDecimal excedente; // Parciais já retiradas do long por estouro
+
+    public void adicionar(long parcela) {
+        long soma = centavos + parcela;
+        if (((centavos ^ soma) & (parcela ^ soma)) < 0) {
+            excedente = (excedente != null ? excedente : BigDecimal.ZERO).add(BigDecimal.valueOf(centavos, 2));
+            soma = parcela;
+        }
+        centavos = soma;
+    }
+
+    public void adicionar(Dinheiro valor) {
+        if (valor.cabeEmCentavos()) {
+            adicionar(valor.getCentavos());
+        } else {
+            excedente = (excedente != null ? excedente : BigDecimal.ZERO).add(valor.paraBigDecimal());
+        }
+    }
+
+    public Dinheiro total() {
+        return excedente == null ? Dinheiro.centavos(centavos) : Dinheiro.de(excedente.add(BigDecimal.valueOf(centavos, 2)));
+    }
+}
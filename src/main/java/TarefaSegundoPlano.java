@@ -0,0 +1,52 @@
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+// Executa um cálculo (saldo, importação, relatório) fora da Event Dispatch Thread.
+// As mensagens de andamento publicadas pelo cálculo são agrupadas pelo SwingWorker,
+// então a EDT recebe no máximo uma atualização por ciclo de process() e, ao final,
+// uma única chamada de conclusão, independentemente da quantidade de transações.
+class TarefaSegundoPlano<T> extends SwingWorker<T, String> {
+
+    interface Calculo<T> {
+        T calcular(Consumer<String> andamento) throws Exception;
+    }
+
+    private final Calculo<T> calculo;
+    private final Consumer<String> andamento;
+    private final Consumer<T> conclusao;
+    private final Consumer<Exception> falha;
+
+    public TarefaSegundoPlano(Calculo<T> calculo, Consumer<String> andamento, Consumer<T> conclusao, Consumer<Exception> falha) {
+        this.calculo = calculo;
+        this.andamento = andamento;
+        this.conclusao = conclusao;
+        this.falha = falha;
+    }
+
+    @Override
+    protected T doInBackground() throws Exception {
+        return calculo.calcular(this::publish);
+    }
+
+    @Override
+    protected void process(List<String> mensagens) {
+        // Só a mensagem mais recente interessa ao rótulo
+        andamento.accept(mensagens.get(mensagens.size() - 1));
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            conclusao.accept(get());
+        } catch (ExecutionException ex) {
+            falha.accept(ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+// Enum para representar os tipos de transação
+enum TipoTransacao {
+    RECEITA, DESPESA
+}
@@ -0,0 +1,37 @@
+import java.time.YearMonth;
+
+// Total e quantidade de transações de um tipo em um mês
+class TotalMensal {
+    private final YearMonth mes;
+    private final TipoTransacao tipo;
+    private Dinheiro total;
+    private long quantidade;
+
+    public TotalMensal(YearMonth mes, TipoTransacao tipo, Dinheiro total, long quantidade) {
+        this.mes = mes;
+        this.tipo = tipo;
+        this.total = total;
+        this.quantidade = quantidade;
+    }
+
+    void somar(Dinheiro valor, long quantidadeAdicional) {
+        total = total.somar(valor);
+        quantidade += quantidadeAdicional;
+    }
+
+    public YearMonth getMes() {
+        return mes;
+    }
+
+    public TipoTransacao getTipo() {
+        return tipo;
+    }
+
+    public Dinheiro getTotal() {
+        return total;
+    }
+
+    public long getQuantidade() {
+        return quantidade;
+    }
+}
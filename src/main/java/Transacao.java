@@ -0,0 +1,46 @@
+import java.time.LocalDate;
+
+// Classe que representa uma transação
+class Transacao {
+    private final long id;
+    private final String descricao;
+    private final Dinheiro valor;
+    private final TipoTransacao tipo;
+    private final LocalDate data;
+
+    public Transacao(String descricao, Dinheiro valor, TipoTransacao tipo) {
+        this.id = 0; // Ainda não gravada no banco
+        this.descricao = descricao;
+        this.valor = valor;
+        this.tipo = tipo;
+        this.data = LocalDate.now(); // Data atual
+    }
+
+    public Transacao(long id, String descricao, Dinheiro valor, TipoTransacao tipo, LocalDate data) {
+        this.id = id;
+        this.descricao = descricao;
+        this.valor = valor;
+        this.tipo = tipo;
+        this.data = data;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public Dinheiro getValor() {
+        return valor;
+    }
+
+    public TipoTransacao getTipo() {
+        return tipo;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+}
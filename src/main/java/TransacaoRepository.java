@@ -0,0 +1,642 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Acesso à tabela transacoes. Toda alteração atualiza o livro-razão de saldo
+// na mesma transação do banco.
+class TransacaoRepository {
+    private static final int TAMANHO_LOTE_EXCLUSAO = 500;
+    // Limites das colunas descricao VARCHAR(255) e valor DECIMAL(15,2)
+    static final int TAMANHO_DESCRICAO = 255;
+    static final Dinheiro VALOR_MAXIMO = Dinheiro.de("9999999999999.99");
+
+    private final FabricaConexoes fabricaConexoes;
+    private final LivroSaldo livroSaldo;
+    private final ResumoMensal resumoMensal = new ResumoMensal();
+    private final IndiceDescricoes indiceDescricoes; // Opcional: sem ele a descrição é filtrada com LIKE
+    private final CacheTransacoes cacheTransacoes; // Opcional: sem ele toda consulta vai ao banco
+
+    public TransacaoRepository(FabricaConexoes fabricaConexoes, LivroSaldo livroSaldo) {
+        this(fabricaConexoes, livroSaldo, null, null);
+    }
+
+    public TransacaoRepository(FabricaConexoes fabricaConexoes, LivroSaldo livroSaldo, IndiceDescricoes indiceDescricoes) {
+        this(fabricaConexoes, livroSaldo, indiceDescricoes, null);
+    }
+
+    public TransacaoRepository(FabricaConexoes fabricaConexoes, LivroSaldo livroSaldo, IndiceDescricoes indiceDescricoes,
+                               CacheTransacoes cacheTransacoes) {
+        this.fabricaConexoes = fabricaConexoes;
+        this.livroSaldo = livroSaldo;
+        this.indiceDescricoes = indiceDescricoes;
+        this.cacheTransacoes = cacheTransacoes;
+    }
+
+    // Recusa o que o banco recusaria sempre. Chamado antes do diário local: um lançamento aceito
+    // ali já foi confirmado a quem registrou e não pode mais falhar por causa do próprio conteúdo
+    static void validar(Transacao transacao) {
+        if (transacao.getDescricao() == null || transacao.getValor() == null || transacao.getTipo() == null || transacao.getData() == null) {
+            throw new IllegalArgumentException("Descrição, valor, tipo e data são obrigatórios.");
+        }
+        if (transacao.getDescricao().length() > TAMANHO_DESCRICAO) {
+            throw new IllegalArgumentException("A descrição deve ter no máximo " + TAMANHO_DESCRICAO + " caracteres.");
+        }
+        if (transacao.getValor().abs().compareTo(VALOR_MAXIMO) > 0) {
+            throw new IllegalArgumentException("O valor deve ficar entre -" + VALOR_MAXIMO + " e " + VALOR_MAXIMO + ".");
+        }
+    }
+
+    public void inserir(int idUser, Transacao transacao) throws SQLException {
+        String sql = "INSERT INTO transacoes (descricao, valor, tipo, data, IdUser, chave_cliente) VALUES (?, ?, ?, ?, ?, ?)";
+        long id = fabricaConexoes.emTransacao(conexao -> {
+            long idGerado;
+            try (PreparedStatement statement = conexao.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                statement.setString(1, transacao.getDescricao());
+                statement.setBigDecimal(2, transacao.getValor().paraBigDecimal());
+                statement.setString(3, transacao.getTipo().name());
+                statement.setDate(4, Date.valueOf(transacao.getData()));
+                statement.setInt(5, idUser);
+                statement.setString(6, UUID.randomUUID().toString());
+                statement.executeUpdate();
+                try (ResultSet chaves = statement.getGeneratedKeys()) {
+                    if (!chaves.next()) {
+                        throw new SQLException("O banco não devolveu o id da transação inserida");
+                    }
+                    idGerado = chaves.getLong(1);
+                }
+            }
+            livroSaldo.lancar(conexao, idUser, transacao.getTipo(), transacao.getValor());
+            VariacoesMensais variacoes = new VariacoesMensais();
+            variacoes.adicionar(transacao.getData(), transacao.getTipo(), transacao.getValor(), 1);
+            resumoMensal.aplicar(conexao, idUser, variacoes);
+            return idGerado;
+        });
+        List<Transacao> gravada = Collections.singletonList(new Transacao(id, transacao.getDescricao(), transacao.getValor(), transacao.getTipo(), transacao.getData()));
+        indexar(idUser, gravada);
+        if (cacheTransacoes != null) {
+            cacheTransacoes.inserir(idUser, gravada);
+        }
+    }
+
+    // Grava um lote de transações com executeBatch em uma única transação do banco.
+    // Transações já existentes (mesma data, valor, tipo e descrição) são ignoradas: para cada
+    // combinação só entram as ocorrências que excedem as já gravadas, então reimportar o mesmo
+    // extrato não duplica nada, mas lançamentos idênticos legítimos no mesmo arquivo são mantidos.
+    public ResultadoLote inserirLote(int idUser, List<Transacao> lote) throws SQLException {
+        LocalDate menorData = lote.get(0).getData();
+        LocalDate maiorData = menorData;
+        for (Transacao transacao : lote) {
+            menorData = transacao.getData().isBefore(menorData) ? transacao.getData() : menorData;
+            maiorData = transacao.getData().isAfter(maiorData) ? transacao.getData() : maiorData;
+        }
+        LocalDate inicio = menorData;
+        LocalDate fim = maiorData;
+
+        List<Transacao> gravadas = new ArrayList<>(lote.size());
+        ResultadoLote resultado = fabricaConexoes.emTransacao(conexao -> {
+            Map<String, Integer> existentes = new HashMap<>();
+            String sqlExistentes = "SELECT descricao, valor, tipo, data FROM transacoes WHERE IdUser = ? AND data BETWEEN ? AND ?";
+            try (PreparedStatement statement = conexao.prepareStatement(sqlExistentes)) {
+                statement.setInt(1, idUser);
+                statement.setDate(2, Date.valueOf(inicio));
+                statement.setDate(3, Date.valueOf(fim));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        String chave = chaveDuplicidade(resultSet.getString("descricao"), Dinheiro.de(resultSet.getBigDecimal("valor")),
+                                resultSet.getString("tipo"), resultSet.getDate("data").toLocalDate());
+                        existentes.merge(chave, 1, Integer::sum);
+                    }
+                }
+            }
+
+            List<Transacao> novas = new ArrayList<>(lote.size());
+            for (Transacao transacao : lote) {
+                String chave = chaveDuplicidade(transacao.getDescricao(), transacao.getValor(), transacao.getTipo().name(), transacao.getData());
+                if (existentes.merge(chave, -1, Integer::sum) < 0) {
+                    novas.add(transacao); // As demais já existem no banco
+                }
+            }
+            gravarLote(conexao, idUser, novas, null, gravadas);
+            return new ResultadoLote(novas.size(), lote.size() - novas.size());
+        });
+        indexar(idUser, gravadas);
+        if (cacheTransacoes != null) {
+            cacheTransacoes.inserir(idUser, gravadas);
+        }
+        return resultado;
+    }
+
+    // Grava lançamentos do diário local. A chave de cliente torna o envio idempotente: lançamentos
+    // que já chegaram ao banco numa tentativa anterior (sem a confirmação no diário) são ignorados.
+    public int inserirPendentes(int idUser, List<LancamentoPendente> lancamentos) throws SQLException {
+        List<Transacao> gravadas = new ArrayList<>(lancamentos.size());
+        int inseridas = fabricaConexoes.emTransacao(conexao -> {
+            // Chaves já gravadas ou já excluídas (na sincronização a exclusão prevalece)
+            Set<String> existentes = new HashSet<>();
+            String marcadores = String.join(", ", Collections.nCopies(lancamentos.size(), "?"));
+            String sqlExistentes = "SELECT chave_cliente FROM transacoes WHERE chave_cliente IN (" + marcadores + ") "
+                    + "UNION ALL SELECT chave_cliente FROM transacoes_excluidas WHERE chave_cliente IN (" + marcadores + ")";
+            try (PreparedStatement statement = conexao.prepareStatement(sqlExistentes)) {
+                for (int i = 0; i < lancamentos.size(); i++) {
+                    statement.setString(i + 1, lancamentos.get(i).getChave());
+                    statement.setString(lancamentos.size() + i + 1, lancamentos.get(i).getChave());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        existentes.add(resultSet.getString(1));
+                    }
+                }
+            }
+
+            List<Transacao> novas = new ArrayList<>(lancamentos.size());
+            List<String> chaves = new ArrayList<>(lancamentos.size());
+            for (LancamentoPendente lancamento : lancamentos) {
+                if (existentes.add(lancamento.getChave())) {
+                    novas.add(lancamento.getTransacao());
+                    chaves.add(lancamento.getChave());
+                }
+            }
+            gravarLote(conexao, idUser, novas, chaves, gravadas);
+            return novas.size();
+        });
+        indexar(idUser, gravadas);
+        if (cacheTransacoes != null) {
+            cacheTransacoes.inserir(idUser, gravadas);
+        }
+        return inseridas;
+    }
+
+    // Insere as transações com executeBatch e lança os totais no saldo e no resumo mensal,
+    // na transação do banco de quem chamou. As gravadas, já com id, são acrescentadas a "gravadas".
+    private void gravarLote(Connection conexao, int idUser, List<Transacao> novas, List<String> chavesCliente,
+                            List<Transacao> gravadas) throws SQLException {
+        if (novas.isEmpty()) {
+            return;
+        }
+        SomaDinheiro totalReceitas = new SomaDinheiro();
+        SomaDinheiro totalDespesas = new SomaDinheiro();
+        VariacoesMensais variacoes = new VariacoesMensais();
+        String sql = "INSERT INTO transacoes (descricao, valor, tipo, data, IdUser, chave_cliente) VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement statement = conexao.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < novas.size(); i++) {
+                Transacao transacao = novas.get(i);
+                statement.setString(1, transacao.getDescricao());
+                statement.setBigDecimal(2, transacao.getValor().paraBigDecimal());
+                statement.setString(3, transacao.getTipo().name());
+                statement.setDate(4, Date.valueOf(transacao.getData()));
+                statement.setInt(5, idUser);
+                statement.setString(6, chavesCliente != null ? chavesCliente.get(i) : UUID.randomUUID().toString());
+                statement.addBatch();
+                variacoes.adicionar(transacao.getData(), transacao.getTipo(), transacao.getValor(), 1);
+                (transacao.getTipo() == TipoTransacao.RECEITA ? totalReceitas : totalDespesas).adicionar(transacao.getValor());
+            }
+            statement.executeBatch();
+            // Um id a menos deixaria uma linha fora do cache e do índice sem aviso; a exceção
+            // desfaz o lote inteiro antes de lançar os totais no livro e no resumo
+            try (ResultSet chaves = statement.getGeneratedKeys()) {
+                int recebidas = 0;
+                for (Transacao transacao : novas) {
+                    if (!chaves.next()) {
+                        break;
+                    }
+                    recebidas++;
+                    gravadas.add(new Transacao(chaves.getLong(1), transacao.getDescricao(), transacao.getValor(), transacao.getTipo(), transacao.getData()));
+                }
+                while (chaves.next()) {
+                    recebidas++;
+                }
+                if (recebidas != novas.size()) {
+                    throw new SQLException("O banco devolveu " + recebidas + " ids para um lote de " + novas.size() + " transações");
+                }
+            }
+        }
+        Dinheiro receitas = totalReceitas.total();
+        Dinheiro despesas = totalDespesas.total();
+        if (receitas.signum() != 0) {
+            livroSaldo.lancar(conexao, idUser, TipoTransacao.RECEITA, receitas);
+        }
+        if (despesas.signum() != 0) {
+            livroSaldo.lancar(conexao, idUser, TipoTransacao.DESPESA, despesas);
+        }
+        resumoMensal.aplicar(conexao, idUser, variacoes);
+    }
+
+    private static String chaveDuplicidade(String descricao, Dinheiro valor, String tipo, LocalDate data) {
+        return data + "|" + valor + "|" + tipo + "|" + descricao;
+    }
+
+    // Exclui pelas chaves primárias em lotes "IN (...)", sempre restritos ao usuário. As linhas de
+    // cada lote são lidas com FOR UPDATE e os abatimentos no saldo e no resumo mensal saem delas:
+    // só as linhas travadas são excluídas, então uma exclusão concorrente dos mesmos ids não é
+    // abatida duas vezes.
+    public void excluir(int idUser, List<Long> ids) throws SQLException {
+        fabricaConexoes.emTransacao(conexao -> {
+            for (int inicio = 0; inicio < ids.size(); inicio += TAMANHO_LOTE_EXCLUSAO) {
+                List<Long> lote = ids.subList(inicio, Math.min(inicio + TAMANHO_LOTE_EXCLUSAO, ids.size()));
+
+                String sqlLinhas = "SELECT id, tipo, data, valor FROM transacoes WHERE IdUser = ? AND id IN ("
+                        + String.join(", ", Collections.nCopies(lote.size(), "?")) + ") FOR UPDATE";
+                List<Long> travados = new ArrayList<>(lote.size());
+                VariacoesMensais variacoes = new VariacoesMensais();
+                SomaDinheiro totalReceitas = new SomaDinheiro();
+                SomaDinheiro totalDespesas = new SomaDinheiro();
+                try (PreparedStatement statement = conexao.prepareStatement(sqlLinhas)) {
+                    vincularIds(statement, idUser, lote);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            TipoTransacao tipo = TipoTransacao.valueOf(resultSet.getString("tipo"));
+                            Dinheiro valor = Dinheiro.de(resultSet.getBigDecimal("valor"));
+                            travados.add(resultSet.getLong("id"));
+                            variacoes.adicionar(resultSet.getDate("data").toLocalDate(), tipo, valor.negar(), -1);
+                            (tipo == TipoTransacao.RECEITA ? totalReceitas : totalDespesas).adicionar(valor);
+                        }
+                    }
+                }
+                if (travados.isEmpty()) {
+                    continue; // Já excluídas, ou de outro usuário
+                }
+                Dinheiro receitas = totalReceitas.total();
+                Dinheiro despesas = totalDespesas.total();
+                if (receitas.signum() != 0) {
+                    livroSaldo.lancar(conexao, idUser, TipoTransacao.RECEITA, receitas.negar());
+                }
+                if (despesas.signum() != 0) {
+                    livroSaldo.lancar(conexao, idUser, TipoTransacao.DESPESA, despesas.negar());
+                }
+                resumoMensal.aplicar(conexao, idUser, variacoes);
+
+                // Registro da exclusão, que a sincronização propaga para as outras cópias do banco
+                String marcadores = String.join(", ", Collections.nCopies(travados.size(), "?"));
+                String sqlExcluidas = "INSERT INTO transacoes_excluidas (chave_cliente, IdUser) "
+                        + "SELECT chave_cliente, IdUser FROM transacoes t WHERE IdUser = ? AND id IN (" + marcadores + ") "
+                        + "AND chave_cliente IS NOT NULL AND NOT EXISTS (SELECT 1 FROM transacoes_excluidas e WHERE e.chave_cliente = t.chave_cliente)";
+                try (PreparedStatement statement = conexao.prepareStatement(sqlExcluidas)) {
+                    vincularIds(statement, idUser, travados);
+                    statement.executeUpdate();
+                }
+
+                String sql = "DELETE FROM transacoes WHERE IdUser = ? AND id IN (" + marcadores + ")";
+                try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                    vincularIds(statement, idUser, travados);
+                    statement.executeUpdate();
+                }
+            }
+            return null;
+        });
+        if (cacheTransacoes != null) {
+            cacheTransacoes.remover(idUser, ids);
+        }
+        if (indiceDescricoes != null) {
+            try {
+                indiceDescricoes.remover(ids);
+            } catch (IOException ex) {
+                ex.printStackTrace(); // Corrigido pela reindexação do próximo login
+            }
+        }
+    }
+
+    // Aplica exclusões recebidas na sincronização. A exclusão fica registrada mesmo que a transação
+    // ainda não tenha chegado aqui, para que ela seja descartada quando chegar.
+    public int excluirPorChave(int idUser, List<String> chaves) throws SQLException {
+        String marcadores = String.join(", ", Collections.nCopies(chaves.size(), "?"));
+        List<Long> ids = fabricaConexoes.emTransacao(conexao -> {
+            Set<String> registradas = new HashSet<>();
+            String sqlRegistradas = "SELECT chave_cliente FROM transacoes_excluidas WHERE chave_cliente IN (" + marcadores + ")";
+            try (PreparedStatement statement = conexao.prepareStatement(sqlRegistradas)) {
+                for (int i = 0; i < chaves.size(); i++) {
+                    statement.setString(i + 1, chaves.get(i));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        registradas.add(resultSet.getString(1));
+                    }
+                }
+            }
+
+            List<Long> encontrados = new ArrayList<>();
+            String sqlIds = "SELECT id, chave_cliente FROM transacoes WHERE IdUser = ? AND chave_cliente IN (" + marcadores + ")";
+            try (PreparedStatement statement = conexao.prepareStatement(sqlIds)) {
+                statement.setInt(1, idUser);
+                for (int i = 0; i < chaves.size(); i++) {
+                    statement.setString(i + 2, chaves.get(i));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        encontrados.add(resultSet.getLong("id"));
+                        registradas.add(resultSet.getString("chave_cliente")); // excluir() registra estas
+                    }
+                }
+            }
+
+            String sql = "INSERT INTO transacoes_excluidas (chave_cliente, IdUser) VALUES (?, ?)";
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                for (String chave : chaves) {
+                    if (registradas.add(chave)) {
+                        statement.setString(1, chave);
+                        statement.setInt(2, idUser);
+                        statement.addBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            return encontrados;
+        });
+        if (!ids.isEmpty()) {
+            excluir(idUser, ids);
+        }
+        return ids.size();
+    }
+
+    private void vincularIds(PreparedStatement statement, int idUser, List<Long> ids) throws SQLException {
+        statement.setInt(1, idUser);
+        int parameterIndex = 2;
+        for (long id : ids) {
+            statement.setLong(parameterIndex++, id);
+        }
+    }
+
+    public void limpar(int idUser) throws SQLException {
+        String sqlExcluidas = "INSERT INTO transacoes_excluidas (chave_cliente, IdUser) "
+                + "SELECT chave_cliente, IdUser FROM transacoes t WHERE IdUser = ? AND chave_cliente IS NOT NULL "
+                + "AND NOT EXISTS (SELECT 1 FROM transacoes_excluidas e WHERE e.chave_cliente = t.chave_cliente)";
+        String sql = "DELETE FROM transacoes WHERE IdUser = ?";
+        fabricaConexoes.emTransacao(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sqlExcluidas)) {
+                statement.setInt(1, idUser);
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                statement.executeUpdate();
+            }
+            livroSaldo.zerar(conexao, idUser);
+            resumoMensal.zerar(conexao, idUser);
+            return null;
+        });
+        if (cacheTransacoes != null) {
+            cacheTransacoes.invalidar(idUser);
+        }
+        if (indiceDescricoes != null) {
+            try {
+                indiceDescricoes.removerUsuario(idUser);
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    // O índice é atualizado depois do commit; uma falha aqui não desfaz a gravação no banco
+    private void indexar(int idUser, List<Transacao> transacoes) {
+        if (indiceDescricoes == null) {
+            return;
+        }
+        try {
+            indiceDescricoes.adicionar(idUser, transacoes);
+        } catch (IOException ex) {
+            ex.printStackTrace(); // Corrigido pela reindexação do próximo login
+        }
+    }
+
+    // Resolve o filtro por descrição no índice textual, quando disponível; quando o índice não
+    // responde (texto sem palavras, resultados demais) o filtro segue com LIKE
+    public FiltroTransacao resolverDescricao(int idUser, FiltroTransacao filtro) throws SQLException {
+        if (indiceDescricoes == null || filtro.getDescricao().trim().isEmpty()) {
+            return filtro;
+        }
+        try {
+            List<Long> ids = indiceDescricoes.buscar(idUser, filtro.getDescricao());
+            return ids != null ? filtro.comIds(ids) : filtro;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return filtro; // Índice indisponível: volta para o LIKE
+        }
+    }
+
+    // Reconstrói o índice do usuário quando quantidade, maior id ou soma dos ids não conferem com o banco
+    public void sincronizarIndice(int idUser) throws SQLException {
+        if (indiceDescricoes == null) {
+            return;
+        }
+        try {
+            if (indiceDescricoes.resumir(idUser).confere(resumirIds(idUser))) {
+                return;
+            }
+            indiceDescricoes.removerUsuario(idUser);
+            String sql = "SELECT id, descricao, valor, tipo, data FROM transacoes WHERE IdUser = ?";
+            fabricaConexoes.executar(conexao -> {
+                try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                    statement.setInt(1, idUser);
+                    statement.setFetchSize(1000);
+                    List<Transacao> lote = new ArrayList<>(1000);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            lote.add(lerTransacao(resultSet));
+                            if (lote.size() == 1000) {
+                                indiceDescricoes.adicionar(idUser, lote);
+                                lote.clear();
+                            }
+                        }
+                    }
+                    indiceDescricoes.adicionar(idUser, lote);
+                } catch (IOException ex) {
+                    throw new SQLException("Erro ao reindexar descrições", ex);
+                }
+                return null;
+            });
+            indiceDescricoes.confirmar();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private ResumoIds resumirIds(int idUser) throws SQLException {
+        String sql = "SELECT COUNT(*), COALESCE(MAX(id), 0), COALESCE(SUM(id), 0) FROM transacoes WHERE IdUser = ?";
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return new ResumoIds(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+                }
+            }
+        });
+    }
+
+    // Carrega todas as transações do usuário no cache, se o histórico couber nele
+    public void aquecerCache(int idUser) throws SQLException {
+        if (cacheTransacoes == null || cacheTransacoes.obter(idUser) != null) {
+            return;
+        }
+        int quantidade = contarNoBanco(idUser, FiltroTransacao.VAZIO);
+        if (!cacheTransacoes.cabe(quantidade)) {
+            return;
+        }
+        long versao = cacheTransacoes.versao(idUser);
+        // Lidas na ordem do índice, as linhas são só acrescentadas às colunas
+        String sql = "SELECT id, descricao, valor, tipo, data FROM transacoes WHERE IdUser = ? ORDER BY IdUser, data, id";
+        TransacoesUsuario dados = fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                statement.setFetchSize(1000);
+                TransacoesUsuario colunas = new TransacoesUsuario(quantidade);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        colunas.inserir(lerTransacao(resultSet));
+                    }
+                }
+                return colunas;
+            }
+        });
+        // Uma gravação concorrente (outra sessão, a fila, a sincronização) descarta esta leitura;
+        // o cache será carregado no próximo aquecimento
+        cacheTransacoes.carregar(idUser, dados, versao);
+    }
+
+    // Filtro em memória quando o cache do usuário está carregado; null manda a consulta ao banco
+    private TransacoesUsuario.Filtro filtroEmMemoria(int idUser, FiltroTransacao filtro) {
+        if (cacheTransacoes == null) {
+            return null;
+        }
+        TransacoesUsuario.Filtro emMemoria = cacheTransacoes.obter(idUser) != null ? cacheTransacoes.converter(filtro) : null;
+        cacheTransacoes.registrarConsulta(emMemoria != null);
+        return emMemoria;
+    }
+
+    public int contar(int idUser, FiltroTransacao filtro) throws SQLException {
+        TransacoesUsuario.Filtro emMemoria = filtroEmMemoria(idUser, filtro);
+        TransacoesUsuario dados = emMemoria != null ? cacheTransacoes.obter(idUser) : null;
+        if (dados != null) {
+            return dados.contar(emMemoria);
+        }
+        return contarNoBanco(idUser, filtro);
+    }
+
+    private int contarNoBanco(int idUser, FiltroTransacao filtro) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM transacoes WHERE IdUser = ?" + filtro.clausula();
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                filtro.vincular(statement, 2);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getInt(1);
+                }
+            }
+        });
+    }
+
+    // Próxima página na ordem (data, id), começando logo depois de "apos" (null = do início).
+    // O IdUser no ORDER BY não muda a ordem, mas faz o H2 percorrer o índice (IdUser, data, id)
+    // em vez de ordenar todas as transações do usuário a cada página
+    public List<Transacao> buscarPagina(int idUser, FiltroTransacao filtro, ChaveTransacao apos, int limite) throws SQLException {
+        TransacoesUsuario.Filtro emMemoria = filtroEmMemoria(idUser, filtro);
+        TransacoesUsuario dados = emMemoria != null ? cacheTransacoes.obter(idUser) : null;
+        if (dados != null) {
+            return dados.pagina(emMemoria, apos, limite);
+        }
+        String sql = "SELECT id, descricao, valor, tipo, data FROM transacoes WHERE IdUser = ?" + filtro.clausula()
+                + (apos != null ? " AND (data > ? OR (data = ? AND id > ?))" : "")
+                + " ORDER BY IdUser, data, id LIMIT ?";
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                int parameterIndex = vincularApos(statement, filtro.vincular(statement, 2), apos);
+                statement.setInt(parameterIndex, limite);
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return lerTransacoes(resultSet, new ArrayList<>(limite));
+                }
+            }
+        });
+    }
+
+    private static List<Transacao> lerTransacoes(ResultSet resultSet, List<Transacao> transacoes) throws SQLException {
+        while (resultSet.next()) {
+            transacoes.add(lerTransacao(resultSet));
+        }
+        return transacoes;
+    }
+
+    private static Transacao lerTransacao(ResultSet resultSet) throws SQLException {
+        long id = resultSet.getLong("id");
+        String descricao = resultSet.getString("descricao");
+        Dinheiro valor = Dinheiro.de(resultSet.getBigDecimal("valor"));
+        TipoTransacao tipo = TipoTransacao.valueOf(resultSet.getString("tipo"));
+        LocalDate data = resultSet.getDate("data").toLocalDate();
+        return new Transacao(id, descricao, valor, tipo, data);
+    }
+
+    // Chave da linha que fica "deslocamento" posições depois de "apos", lendo só as colunas da chave
+    public ChaveTransacao buscarChave(int idUser, FiltroTransacao filtro, ChaveTransacao apos, int deslocamento) throws SQLException {
+        TransacoesUsuario.Filtro emMemoria = filtroEmMemoria(idUser, filtro);
+        TransacoesUsuario dados = emMemoria != null ? cacheTransacoes.obter(idUser) : null;
+        if (dados != null) {
+            return dados.chave(emMemoria, apos, deslocamento);
+        }
+        String sql = "SELECT data, id FROM transacoes WHERE IdUser = ?" + filtro.clausula()
+                + (apos != null ? " AND (data > ? OR (data = ? AND id > ?))" : "")
+                + " ORDER BY IdUser, data, id LIMIT 1 OFFSET ?";
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setInt(1, idUser);
+                int parameterIndex = vincularApos(statement, filtro.vincular(statement, 2), apos);
+                statement.setInt(parameterIndex, deslocamento);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? new ChaveTransacao(resultSet.getDate("data").toLocalDate(), resultSet.getLong("id")) : apos;
+                }
+            }
+        });
+    }
+
+    private int vincularApos(PreparedStatement statement, int parameterIndex, ChaveTransacao apos) throws SQLException {
+        if (apos != null) {
+            statement.setDate(parameterIndex++, Date.valueOf(apos.getData()));
+            statement.setDate(parameterIndex++, Date.valueOf(apos.getData()));
+            statement.setLong(parameterIndex++, apos.getId());
+        }
+        return parameterIndex;
+    }
+
+    // O saldo vem sempre do livro-razão (uma linha por usuário). Com o cache carregado, a soma das
+    // colunas é conferida com ele: se outro cliente gravou no banco, o cache do usuário é recarregado
+    public ResumoSaldo carregarSaldo(int idUser) throws SQLException {
+        long versao = cacheTransacoes != null ? cacheTransacoes.versao(idUser) : 0;
+        ResumoSaldo saldo = fabricaConexoes.executar(conexao -> livroSaldo.carregar(conexao, idUser));
+        TransacoesUsuario dados = cacheTransacoes != null ? cacheTransacoes.obter(idUser) : null;
+        // Uma gravação desta instância durante a leitura também muda a versão; aí não há o que concluir
+        if (dados != null && cacheTransacoes.versao(idUser) == versao && !mesmoSaldo(dados.somar(TransacoesUsuario.Filtro.TODAS), saldo)) {
+            cacheTransacoes.invalidar(idUser);
+            aquecerCache(idUser);
+        }
+        return saldo;
+    }
+
+    private static boolean mesmoSaldo(ResumoSaldo a, ResumoSaldo b) {
+        return a.getEntradas().equals(b.getEntradas()) && a.getSaidas().equals(b.getSaidas());
+    }
+
+    public Reconciliacao reconciliarSaldo(int idUser) throws SQLException {
+        return fabricaConexoes.emTransacao(conexao -> {
+            Reconciliacao reconciliacao = livroSaldo.reconciliar(conexao, idUser); // Trava o livro primeiro
+            resumoMensal.reconstruir(conexao, idUser);
+            return reconciliacao;
+        });
+    }
+
+    public List<TotalMensal> listarResumoMensal(int idUser) throws SQLException {
+        return fabricaConexoes.executar(conexao -> resumoMensal.listar(conexao, idUser));
+    }
+}
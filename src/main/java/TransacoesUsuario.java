@@ -0,0 +1,223 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Transações de um usuário em memória, em colunas de tipos primitivos ordenadas por (data, id)
+// como na paginação por chave. Valores ficam em centavos, datas em dias desde 1970 e as
+// descrições num dicionário, de modo que somas e filtros percorrem só arrays contíguos;
+// objetos Transacao são criados apenas para as linhas de uma página.
+class TransacoesUsuario {
+    private static final byte RECEITA = 0;
+    private static final byte DESPESA = 1;
+
+    private long[] ids;
+    private int[] dias;
+    private long[] centavos;
+    private byte[] tipos;
+    private int[] descricoes;
+    private int tamanho;
+
+    private List<String> dicionario = new ArrayList<>();
+    private Map<String, Integer> codigos = new HashMap<>();
+    private int removidasDesdeCompactacao; // Descrições de linhas removidas continuam no dicionário
+
+    public TransacoesUsuario(int capacidade) {
+        capacidade = Math.max(16, capacidade);
+        ids = new long[capacidade];
+        dias = new int[capacidade];
+        centavos = new long[capacidade];
+        tipos = new byte[capacidade];
+        descricoes = new int[capacidade];
+    }
+
+    public synchronized int tamanho() {
+        return tamanho;
+    }
+
+    // Inserções já na ordem (data, id), como na carga inicial, só acrescentam ao final
+    public synchronized void inserir(Transacao transacao) {
+        int dia = (int) transacao.getData().toEpochDay();
+        int posicao = primeiraApos(dia, transacao.getId());
+        if (posicao > 0 && ids[posicao - 1] == transacao.getId() && dias[posicao - 1] == dia) {
+            return; // Já lida pelo carregamento que correu junto com a gravação
+        }
+        if (tamanho == ids.length) {
+            crescer();
+        }
+        int deslocadas = tamanho - posicao;
+        if (deslocadas > 0) {
+            System.arraycopy(ids, posicao, ids, posicao + 1, deslocadas);
+            System.arraycopy(dias, posicao, dias, posicao + 1, deslocadas);
+            System.arraycopy(centavos, posicao, centavos, posicao + 1, deslocadas);
+            System.arraycopy(tipos, posicao, tipos, posicao + 1, deslocadas);
+            System.arraycopy(descricoes, posicao, descricoes, posicao + 1, deslocadas);
+        }
+        ids[posicao] = transacao.getId();
+        dias[posicao] = dia;
+        // Mesmo arredondamento da coluna DECIMAL(15,2)
+        centavos[posicao] = transacao.getValor().getCentavos();
+        tipos[posicao] = transacao.getTipo() == TipoTransacao.RECEITA ? RECEITA : DESPESA;
+        descricoes[posicao] = codificar(transacao.getDescricao());
+        tamanho++;
+    }
+
+    // Compacta as colunas numa única passada, sem alterar a ordem das restantes
+    public synchronized void remover(Collection<Long> ids) {
+        Set<Long> excluidas = new HashSet<>(ids);
+        int destino = 0;
+        for (int origem = 0; origem < tamanho; origem++) {
+            if (excluidas.contains(this.ids[origem])) {
+                continue;
+            }
+            this.ids[destino] = this.ids[origem];
+            dias[destino] = dias[origem];
+            centavos[destino] = centavos[origem];
+            tipos[destino] = tipos[origem];
+            descricoes[destino] = descricoes[origem];
+            destino++;
+        }
+        removidasDesdeCompactacao += tamanho - destino;
+        tamanho = destino;
+        // Refazer o dicionário custa uma passada; só depois de tantas remoções quanto linhas
+        // restantes, o custo por remoção fica constante
+        if (removidasDesdeCompactacao >= Math.max(64, tamanho)) {
+            compactarDicionario();
+        }
+    }
+
+    public synchronized int tamanhoDicionario() {
+        return dicionario.size();
+    }
+
+    public synchronized int contar(Filtro filtro) {
+        int quantidade = 0;
+        for (int i = filtro.inicio(this), fim = filtro.fim(this); i < fim; i++) {
+            if (filtro.aceita(tipos[i], ids[i])) {
+                quantidade++;
+            }
+        }
+        return quantidade;
+    }
+
+    // Totais de receitas e despesas das linhas que atendem ao filtro
+    public synchronized ResumoSaldo somar(Filtro filtro) {
+        SomaDinheiro receitas = new SomaDinheiro();
+        SomaDinheiro despesas = new SomaDinheiro();
+        for (int i = filtro.inicio(this), fim = filtro.fim(this); i < fim; i++) {
+            if (filtro.aceita(tipos[i], ids[i])) {
+                (tipos[i] == RECEITA ? receitas : despesas).adicionar(centavos[i]);
+            }
+        }
+        return new ResumoSaldo(receitas.total(), despesas.total());
+    }
+
+    public synchronized List<Transacao> pagina(Filtro filtro, ChaveTransacao apos, int limite) {
+        List<Transacao> pagina = new ArrayList<>(limite);
+        for (int i = inicio(filtro, apos), fim = filtro.fim(this); i < fim && pagina.size() < limite; i++) {
+            if (filtro.aceita(tipos[i], ids[i])) {
+                pagina.add(new Transacao(ids[i], dicionario.get(descricoes[i]), Dinheiro.centavos(centavos[i]),
+                        tipos[i] == RECEITA ? TipoTransacao.RECEITA : TipoTransacao.DESPESA, LocalDate.ofEpochDay(dias[i])));
+            }
+        }
+        return pagina;
+    }
+
+    // Chave da linha que fica "deslocamento" posições depois de "apos"; "apos" quando não existe
+    public synchronized ChaveTransacao chave(Filtro filtro, ChaveTransacao apos, int deslocamento) {
+        int restantes = deslocamento;
+        for (int i = inicio(filtro, apos), fim = filtro.fim(this); i < fim; i++) {
+            if (filtro.aceita(tipos[i], ids[i]) && restantes-- == 0) {
+                return new ChaveTransacao(LocalDate.ofEpochDay(dias[i]), ids[i]);
+            }
+        }
+        return apos;
+    }
+
+    private int inicio(Filtro filtro, ChaveTransacao apos) {
+        int inicio = filtro.inicio(this);
+        return apos != null ? Math.max(inicio, primeiraApos((int) apos.getData().toEpochDay(), apos.getId())) : inicio;
+    }
+
+    // Primeira posição cuja chave é maior que (dia, id)
+    private int primeiraApos(int dia, long id) {
+        int inicio = 0;
+        int fim = tamanho;
+        while (inicio < fim) {
+            int meio = (inicio + fim) >>> 1;
+            if (dias[meio] < dia || (dias[meio] == dia && ids[meio] <= id)) {
+                inicio = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        return inicio;
+    }
+
+    // Descrições repetidas (mercado, aluguel, salário...) ocupam uma única String
+    private int codificar(String descricao) {
+        Integer codigo = codigos.get(descricao);
+        if (codigo == null) {
+            codigo = dicionario.size();
+            dicionario.add(descricao);
+            codigos.put(descricao, codigo);
+        }
+        return codigo;
+    }
+
+    // Recodifica as linhas restantes num dicionário novo, só com as descrições em uso
+    private void compactarDicionario() {
+        List<String> anterior = dicionario;
+        dicionario = new ArrayList<>();
+        codigos = new HashMap<>();
+        for (int i = 0; i < tamanho; i++) {
+            descricoes[i] = codificar(anterior.get(descricoes[i]));
+        }
+        removidasDesdeCompactacao = 0;
+    }
+
+    private void crescer() {
+        int capacidade = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacidade);
+        dias = Arrays.copyOf(dias, capacidade);
+        centavos = Arrays.copyOf(centavos, capacidade);
+        tipos = Arrays.copyOf(tipos, capacidade);
+        descricoes = Arrays.copyOf(descricoes, capacidade);
+    }
+
+    // Filtro da tela já convertido para comparação em memória
+    static class Filtro {
+        static final Filtro TODAS = new Filtro(null, null, null, null);
+
+        private final LocalDate dataInicio;
+        private final LocalDate dataFim;
+        private final TipoTransacao tipo;
+        private final Set<Long> ids;
+
+        Filtro(LocalDate dataInicio, LocalDate dataFim, TipoTransacao tipo, Set<Long> ids) {
+            this.dataInicio = dataInicio;
+            this.dataFim = dataFim;
+            this.tipo = tipo;
+            this.ids = ids;
+        }
+
+        // A faixa de datas vira duas buscas binárias; tipo e ids são conferidos linha a linha
+        int inicio(TransacoesUsuario dados) {
+            return dataInicio != null ? dados.primeiraApos((int) dataInicio.toEpochDay() - 1, Long.MAX_VALUE) : 0;
+        }
+
+        int fim(TransacoesUsuario dados) {
+            return dataFim != null ? dados.primeiraApos((int) dataFim.toEpochDay(), Long.MAX_VALUE) : dados.tamanho;
+        }
+
+        boolean aceita(byte tipoLinha, long id) {
+            return (tipo == null || tipoLinha == (tipo == TipoTransacao.RECEITA ? RECEITA : DESPESA))
+                    && (ids == null || ids.contains(id));
+        }
+    }
+}
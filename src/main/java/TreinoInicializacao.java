@@ -0,0 +1,78 @@
+import javax.swing.*;
+import java.awt.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+// Execução de treino do arquivo AppCDS, chamada pelo build com --treinar-cds sob
+// -XX:ArchiveClassesAtExit. Percorre o caminho de partida sem tela nem banco de verdade: monta
+// os componentes da tela de login e do saldo, sobe o serviço sobre um H2 em memória e faz
+// cadastro, login, saldo, listagem e extrato, para que as classes de Swing, pool, Lucene e Jasper
+// carregadas na partida real já venham do arquivo.
+final class TreinoInicializacao {
+
+    private TreinoInicializacao() {
+    }
+
+    static void executar() {
+        try {
+            Path diretorio = Files.createTempDirectory("controlefinanceiro-treino");
+            System.setProperty("controlefinanceiro.db.driver", "org.h2.Driver");
+            System.setProperty("controlefinanceiro.db.url", "jdbc:h2:mem:treino;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+            System.setProperty("controlefinanceiro.db.usuario", "sa");
+            System.setProperty("controlefinanceiro.db.senha", "");
+            System.setProperty("controlefinanceiro.diario", diretorio.resolve("lancamentos.log").toString());
+            System.setProperty("controlefinanceiro.indice", diretorio.resolve("indice").toString());
+            System.setProperty("controlefinanceiro.senha.iteracoes", "1000"); // O custo não muda as classes carregadas
+
+            SwingUtilities.invokeAndWait(TreinoInicializacao::montarComponentes);
+
+            ServicoFinanceiro servico = new ServicoFinanceiro(false);
+            try {
+                servico.iniciar();
+                servico.registrarUsuario("treino", "treino");
+                SessaoUsuario sessao = servico.entrar("treino", "treino", 0);
+                servico.registrar(sessao, new Transacao("Treino", Dinheiro.de("10.00"), TipoTransacao.RECEITA));
+                FormatadorDinheiro.formatarComMoeda(servico.saldo(sessao).getSaldo());
+                FiltroTransacao filtro = servico.resolverFiltro(sessao, FiltroTransacao.VAZIO);
+                servico.contar(sessao, filtro);
+                servico.listar(sessao, filtro, null, 100);
+                servico.resumoMensal(sessao);
+                try (ExtratoPreenchido extrato = servico.preencherExtrato(sessao, LocalDate.now().withDayOfMonth(1), LocalDate.now(), null)) {
+                    extrato.getImpressao().getPages().size();
+                }
+            } finally {
+                servico.encerrar();
+            }
+            System.out.println("Treino de inicialização concluído");
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // Os mesmos componentes das telas, sem janela: em um build sem monitor JFrame não pode ser criado
+    private static void montarComponentes() {
+        JPanel login = new JPanel(new GridLayout(3, 2));
+        login.add(new JLabel("Usuário:"));
+        login.add(new JTextField());
+        login.add(new JLabel("Senha:"));
+        login.add(new JPasswordField());
+        login.add(new JButton("Entrar"));
+        login.add(new JButton("Novo Usuário"));
+        login.setSize(300, 200);
+        login.doLayout();
+
+        JPanel principal = new JPanel(new BorderLayout(20, 20));
+        JLabel saldo = new JLabel("<html><div style='text-align: center;'>Saldo Atual</div><br><div>"
+                + FormatadorDinheiro.formatarComMoeda(Dinheiro.ZERO) + "</div></html>", SwingConstants.CENTER);
+        saldo.setFont(new Font("SansSerif", Font.PLAIN, 24));
+        principal.add(saldo, BorderLayout.CENTER);
+        JPanel botoes = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        botoes.add(new JButton("Registrar Transação"));
+        principal.add(botoes, BorderLayout.PAGE_END);
+        principal.setSize(1024, 768);
+        principal.doLayout();
+        principal.getPreferredSize();
+    }
+}
@@ -0,0 +1,123 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Acesso à tabela usuario. A coluna senha guarda o hash gerado por HashSenha
+class UsuarioRepository {
+    private final FabricaConexoes fabricaConexoes;
+    private final VerificadorSenhas verificadorSenhas;
+
+    public UsuarioRepository(FabricaConexoes fabricaConexoes, VerificadorSenhas verificadorSenhas) {
+        this.fabricaConexoes = fabricaConexoes;
+        this.verificadorSenhas = verificadorSenhas;
+    }
+
+    // Retorna o idUser correspondente ao usuário e senha, ou null se não conferirem. A busca é
+    // só pelo nome (índice único) e a senha é conferida aqui; senhas em texto puro ou com custo
+    // antigo são regravadas com o hash atual quando conferem
+    public Integer autenticar(String usuario, String senha) throws SQLException {
+        String sql = "SELECT idUser, senha FROM usuario WHERE nome = ?";
+        SenhaGravada gravada = fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setString(1, usuario);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? new SenhaGravada(resultSet.getInt("idUser"), resultSet.getString("senha")) : null;
+                }
+            }
+        });
+        if (gravada == null) {
+            verificadorSenhas.conferirFicticia(senha);
+            return null;
+        }
+        String armazenada = gravada.senha;
+        // Fora da conexão: o PBKDF2 leva dezenas de milissegundos e não deve prender o pool
+        if (!verificadorSenhas.conferir(senha, armazenada)) {
+            return null;
+        }
+        HashSenha hashSenha = verificadorSenhas.getHashSenha();
+        if (hashSenha.precisaRefazer(armazenada)) {
+            atualizarSenha(gravada.idUser, armazenada, hashSenha.gerar(senha));
+            verificadorSenhas.esquecer(armazenada);
+        }
+        return gravada.idUser;
+    }
+
+    private static final class SenhaGravada {
+        private final int idUser;
+        private final String senha;
+
+        SenhaGravada(int idUser, String senha) {
+            this.idUser = idUser;
+            this.senha = senha;
+        }
+    }
+
+    public void registrar(String usuario, String senha) throws SQLException {
+        String sql = "INSERT INTO usuario (nome, senha) VALUES (?, ?)";
+        String hash = verificadorSenhas.getHashSenha().gerar(senha);
+        fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setString(1, usuario);
+                statement.setString(2, hash);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    // Só troca se ninguém alterou a senha desde a leitura
+    private void atualizarSenha(int idUser, String anterior, String nova) throws SQLException {
+        String sql = "UPDATE usuario SET senha = ? WHERE idUser = ? AND senha = ?";
+        fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                statement.setString(1, nova);
+                statement.setInt(2, idUser);
+                statement.setString(3, anterior);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    // Todos os usuários cadastrados, em ordem de idUser (extratos do fechamento do mês)
+    public List<Integer> listarIds() throws SQLException {
+        String sql = "SELECT idUser FROM usuario ORDER BY idUser";
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                List<Integer> ids = new ArrayList<>();
+                while (resultSet.next()) {
+                    ids.add(resultSet.getInt(1));
+                }
+                return ids;
+            }
+        });
+    }
+
+    // Traz o registro do usuário de outro banco (no modo local, o servidor) mantendo o mesmo idUser
+    public void copiarDe(UsuarioRepository origem, String usuario) throws SQLException {
+        String sqlOrigem = "SELECT idUser, nome, senha FROM usuario WHERE nome = ?";
+        String sql = "INSERT INTO usuario (idUser, nome, senha) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE nome = VALUES(nome), senha = VALUES(senha)";
+        origem.fabricaConexoes.executar(conexaoOrigem -> {
+            try (PreparedStatement consulta = conexaoOrigem.prepareStatement(sqlOrigem)) {
+                consulta.setString(1, usuario);
+                try (ResultSet resultSet = consulta.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    int idUser = resultSet.getInt("idUser");
+                    String senha = resultSet.getString("senha");
+                    return fabricaConexoes.executar(conexao -> {
+                        try (PreparedStatement statement = conexao.prepareStatement(sql)) {
+                            statement.setInt(1, idUser);
+                            statement.setString(2, usuario);
+                            statement.setString(3, senha);
+                            return statement.executeUpdate();
+                        }
+                    });
+                }
+            }
+        });
+    }
+}
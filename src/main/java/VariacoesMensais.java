@@ -0,0 +1,23 @@
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Variações acumuladas por (mês, tipo) antes de gravar: um UPDATE por grupo, não por transação
+class VariacoesMensais {
+    private final Map<String, TotalMensal> porMesETipo = new LinkedHashMap<>();
+
+    public void adicionar(LocalDate data, TipoTransacao tipo, Dinheiro valor, long quantidade) {
+        adicionar(YearMonth.from(data), tipo, valor, quantidade);
+    }
+
+    public void adicionar(YearMonth mes, TipoTransacao tipo, Dinheiro valor, long quantidade) {
+        porMesETipo.computeIfAbsent(mes + "|" + tipo, chave -> new TotalMensal(mes, tipo, Dinheiro.ZERO, 0))
+                .somar(valor, quantidade);
+    }
+
+    public Collection<TotalMensal> getTotais() {
+        return porMesETipo.values();
+    }
+}
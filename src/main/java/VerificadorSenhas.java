@@ -0,0 +1,76 @@
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+// Conferência de senha com cache das que já conferiram. Logins repetidos (várias janelas,
+// clientes do servidor que reabrem a sessão) pulam o PBKDF2: o cache guarda, para o hash
+// gravado, um SHA-256 da senha com uma chave aleatória deste processo, que nunca sai da memória.
+// Só a senha certa encontra entrada, então tentativas erradas pagam sempre o custo inteiro. A
+// chave é o próprio hash gravado, que muda quando a senha muda ou é refeita.
+class VerificadorSenhas {
+    private final HashSenha hashSenha;
+    private final Cache<String, byte[]> conferidas;
+    private final byte[] chaveProcesso = new byte[32];
+    private volatile String hashFicticio;
+
+    public VerificadorSenhas() {
+        this(new HashSenha(), Long.getLong("controlefinanceiro.senha.cacheMaximo", 1000),
+                Long.getLong("controlefinanceiro.senha.cacheMinutos", 10));
+    }
+
+    public VerificadorSenhas(HashSenha hashSenha, long maximo, long minutos) {
+        this.hashSenha = hashSenha;
+        this.conferidas = CacheBuilder.newBuilder()
+                .maximumSize(maximo)
+                .expireAfterWrite(minutos, TimeUnit.MINUTES)
+                .build();
+        new SecureRandom().nextBytes(chaveProcesso);
+    }
+
+    public HashSenha getHashSenha() {
+        return hashSenha;
+    }
+
+    public boolean conferir(String senha, String armazenado) {
+        if (!HashSenha.emHash(armazenado)) {
+            return hashSenha.conferir(senha, armazenado);
+        }
+        byte[] resumo = resumir(senha);
+        byte[] conferida = conferidas.getIfPresent(armazenado);
+        if (conferida != null && MessageDigest.isEqual(conferida, resumo)) {
+            return true;
+        }
+        if (!hashSenha.conferir(senha, armazenado)) {
+            return false;
+        }
+        conferidas.put(armazenado, resumo);
+        return true;
+    }
+
+    // Usuário inexistente gasta o mesmo tempo de uma senha errada, para não revelar quais nomes existem
+    public void conferirFicticia(String senha) {
+        if (hashFicticio == null) {
+            hashFicticio = hashSenha.gerar("");
+        }
+        hashSenha.conferir(senha, hashFicticio);
+    }
+
+    public void esquecer(String armazenado) {
+        conferidas.invalidate(armazenado);
+    }
+
+    private byte[] resumir(String senha) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(chaveProcesso);
+            return digest.digest(senha.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("SHA-256 indisponível", ex);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+-- Esquema inicial. IF NOT EXISTS preserva bancos criados antes das migrações.
+CREATE TABLE IF NOT EXISTS usuario (
+    idUser INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    nome VARCHAR(100) NOT NULL,
+    senha VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS transacoes (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    descricao VARCHAR(255) NOT NULL,
+    valor DECIMAL(15,2) NOT NULL,
+    tipo VARCHAR(10) NOT NULL,
+    data DATE NOT NULL,
+    IdUser INT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS saldo_usuario (
+    IdUser INT NOT NULL PRIMARY KEY,
+    total_receitas DECIMAL(15,2) NOT NULL DEFAULT 0,
+    total_despesas DECIMAL(15,2) NOT NULL DEFAULT 0
+);
@@ -0,0 +1,14 @@
+-- Totais por usuário, mês (aaaamm) e tipo, mantidos junto com cada alteração em transacoes
+CREATE TABLE IF NOT EXISTS resumo_mensal (
+    IdUser INT NOT NULL,
+    mes INT NOT NULL,
+    tipo VARCHAR(10) NOT NULL,
+    total DECIMAL(15,2) NOT NULL DEFAULT 0,
+    quantidade INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (IdUser, mes, tipo)
+);
+
+INSERT INTO resumo_mensal (IdUser, mes, tipo, total, quantidade)
+SELECT IdUser, YEAR(data) * 100 + MONTH(data), tipo, SUM(valor), COUNT(*)
+FROM transacoes
+GROUP BY IdUser, YEAR(data) * 100 + MONTH(data), tipo;
@@ -0,0 +1,5 @@
+-- Identificador gerado no cliente para cada lançamento do diário local; o índice único
+-- impede que um lançamento reenviado depois de uma falha seja gravado duas vezes
+ALTER TABLE transacoes ADD COLUMN chave_cliente CHAR(36) NULL;
+
+CREATE UNIQUE INDEX uk_transacoes_chave_cliente ON transacoes (chave_cliente);
@@ -0,0 +1,23 @@
+-- Rastreamento de alterações para a sincronização entre o banco local e o servidor.
+-- As transações não são editadas, só incluídas e excluídas: a inclusão é marcada por
+-- atualizado_em e a exclusão deixa um registro em transacoes_excluidas.
+ALTER TABLE transacoes ADD COLUMN atualizado_em TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3);
+
+CREATE INDEX idx_transacoes_usuario_atualizacao ON transacoes (IdUser, atualizado_em, chave_cliente);
+
+CREATE TABLE IF NOT EXISTS transacoes_excluidas (
+    chave_cliente CHAR(36) NOT NULL PRIMARY KEY,
+    IdUser INT NOT NULL,
+    excluida_em TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+CREATE INDEX idx_transacoes_excluidas_usuario ON transacoes_excluidas (IdUser, excluida_em, chave_cliente);
+
+-- Até onde cada fluxo (envio/recebimento de inclusões/exclusões) já foi sincronizado; só o banco local usa
+CREATE TABLE IF NOT EXISTS sincronizacao (
+    IdUser INT NOT NULL,
+    fluxo VARCHAR(30) NOT NULL,
+    momento TIMESTAMP(3) NOT NULL,
+    chave_cliente CHAR(36) NOT NULL,
+    PRIMARY KEY (IdUser, fluxo)
+);
@@ -0,0 +1,10 @@
+-- Linha no livro-razão para todo usuário que já tem transações. A partir daqui os lançamentos só
+-- somam e subtraem (LivroSaldo.lancar): a linha que faltar é criada com o próprio lançamento,
+-- o que só está certo se não havia transações anteriores sem saldo registrado.
+INSERT INTO saldo_usuario (IdUser, total_receitas, total_despesas)
+SELECT IdUser,
+       SUM(CASE WHEN tipo = 'RECEITA' THEN valor ELSE 0 END),
+       SUM(CASE WHEN tipo = 'RECEITA' THEN 0 ELSE valor END)
+FROM transacoes t
+WHERE NOT EXISTS (SELECT 1 FROM saldo_usuario s WHERE s.IdUser = t.IdUser)
+GROUP BY IdUser;
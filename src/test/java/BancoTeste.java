@@ -0,0 +1,55 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Banco H2 em memória no modo MySQL, com todas as migrações aplicadas, como o banco local do
+// aplicativo. Cada chamada cria um banco novo, então os testes não dependem uns dos outros.
+final class BancoTeste {
+    private static final AtomicInteger SEQUENCIA = new AtomicInteger();
+
+    private BancoTeste() {
+    }
+
+    static FabricaConexoes criar() throws SQLException {
+        FabricaConexoes fabricaConexoes = criarVazio();
+        new Migrador(fabricaConexoes).migrar();
+        return fabricaConexoes;
+    }
+
+    // Sem nenhuma migração aplicada
+    static FabricaConexoes criarVazio() {
+        String url = "jdbc:h2:mem:teste" + SEQUENCIA.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        FabricaConexoes fabricaConexoes;
+        synchronized (BancoTeste.class) {
+            System.setProperty("controlefinanceiro.local.url", url);
+            try {
+                fabricaConexoes = FabricaConexoes.local();
+            } finally {
+                System.clearProperty("controlefinanceiro.local.url");
+            }
+        }
+        return fabricaConexoes;
+    }
+
+    // Descarta o banco em memória e fecha o pool
+    static void fechar(FabricaConexoes fabricaConexoes) throws SQLException {
+        fabricaConexoes.executar(conexao -> {
+            try (Statement statement = conexao.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+            return null;
+        });
+        fabricaConexoes.fechar();
+    }
+
+    static long consultarNumero(FabricaConexoes fabricaConexoes, String sql) throws SQLException {
+        return fabricaConexoes.executar(conexao -> {
+            try (Statement statement = conexao.createStatement();
+                 ResultSet resultSet = statement.executeQuery(sql)) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        });
+    }
+}
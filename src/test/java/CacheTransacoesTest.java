@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheTransacoesTest {
+    private static final int USUARIO = 3;
+
+    private FabricaConexoes fabricaConexoes;
+
+    @BeforeEach
+    void criarBanco() throws SQLException {
+        fabricaConexoes = BancoTeste.criar();
+    }
+
+    @AfterEach
+    void fecharBanco() throws SQLException {
+        BancoTeste.fechar(fabricaConexoes);
+    }
+
+    @Test
+    void historicoQueCabeNaCapacidadeFicaNoCache() {
+        CacheTransacoes cache = new CacheTransacoes(200_000);
+        assertTrue(cache.cabe(60_000));
+        assertTrue(cache.carregar(USUARIO, historico(60_000), cache.versao(USUARIO)));
+        assertNotNull(cache.obter(USUARIO));
+    }
+
+    @Test
+    void insercoesAtualizamOPesoDoUsuario() {
+        CacheTransacoes cache = new CacheTransacoes(1_000);
+        cache.carregar(USUARIO, historico(600), cache.versao(USUARIO));
+        cache.carregar(USUARIO + 1, historico(300), cache.versao(USUARIO + 1));
+        TransacoesUsuario dados = cache.obter(USUARIO);
+
+        cache.inserir(USUARIO, transacoes(900, 200));
+        assertEquals(800, dados.tamanho());
+        // 800 + 300 passam da capacidade: um dos dois sai em vez de o cache crescer sem limite
+        assertTrue(cache.obter(USUARIO) == null || cache.obter(USUARIO + 1) == null);
+
+        cache.invalidar(USUARIO + 1);
+        cache.carregar(USUARIO, historico(800), cache.versao(USUARIO));
+        cache.inserir(USUARIO, transacoes(1_000, 300));
+        assertNull(cache.obter(USUARIO), "Sozinho o usuário já passa da capacidade");
+    }
+
+    @Test
+    void gravacaoDeOutroClienteRecarregaOCache() throws SQLException {
+        CacheTransacoes cache = new CacheTransacoes(1_000);
+        TransacaoRepository repositorio = new TransacaoRepository(fabricaConexoes, new LivroSaldo(), null, cache);
+        TransacaoRepository outroCliente = new TransacaoRepository(fabricaConexoes, new LivroSaldo());
+        repositorio.inserir(USUARIO, transacoes(0, 1).get(0));
+        repositorio.aquecerCache(USUARIO);
+        assertEquals(1, cache.obter(USUARIO).tamanho());
+
+        outroCliente.inserir(USUARIO, transacoes(1, 1).get(0));
+
+        assertEquals(Dinheiro.de("2.00"), repositorio.carregarSaldo(USUARIO).getEntradas());
+        assertEquals(2, cache.obter(USUARIO).tamanho());
+        assertEquals(2, repositorio.contar(USUARIO, FiltroTransacao.VAZIO));
+    }
+
+    @Test
+    void descricoesRemovidasSaemDoDicionario() {
+        TransacoesUsuario dados = new TransacoesUsuario(16);
+        LocalDate data = LocalDate.of(2024, 1, 1);
+        List<Long> removidas = new ArrayList<>();
+        // Descrições únicas (identificadores de pagamento) incluídas e removidas continuamente
+        for (long id = 1; id <= 10_000; id++) {
+            dados.inserir(new Transacao(id, "pix " + id, Dinheiro.de("1.00"), TipoTransacao.DESPESA, data));
+            if (id > 10) {
+                removidas.add(id - 10);
+                dados.remover(removidas);
+                removidas.clear();
+            }
+        }
+
+        assertEquals(10, dados.tamanho());
+        assertTrue(dados.tamanhoDicionario() <= 10 + 64, "Dicionário com " + dados.tamanhoDicionario() + " descrições");
+        List<Transacao> restantes = dados.pagina(TransacoesUsuario.Filtro.TODAS, null, 10);
+        assertEquals("pix 9991", restantes.get(0).getDescricao());
+        assertEquals("pix 10000", restantes.get(9).getDescricao());
+    }
+
+    private static TransacoesUsuario historico(int quantidade) {
+        TransacoesUsuario dados = new TransacoesUsuario(quantidade);
+        for (Transacao transacao : transacoes(0, quantidade)) {
+            dados.inserir(transacao);
+        }
+        return dados;
+    }
+
+    private static List<Transacao> transacoes(int primeiroId, int quantidade) {
+        List<Transacao> transacoes = new ArrayList<>(quantidade);
+        LocalDate data = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < quantidade; i++) {
+            transacoes.add(new Transacao(primeiroId + i + 1, "lançamento", Dinheiro.de("1.00"), TipoTransacao.RECEITA,
+                    data.plusDays((primeiroId + i) % 365)));
+        }
+        return Collections.unmodifiableList(transacoes);
+    }
+}
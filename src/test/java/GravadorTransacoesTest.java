@@ -0,0 +1,191 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.DataTruncation;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GravadorTransacoesTest {
+    private static final int USUARIO = 7;
+
+    @TempDir
+    Path pasta;
+
+    private FabricaConexoes fabricaConexoes;
+    private TransacaoRepository repositorio;
+
+    @BeforeEach
+    void criarBanco() throws SQLException {
+        fabricaConexoes = BancoTeste.criar();
+        repositorio = new TransacaoRepository(fabricaConexoes, new LivroSaldo());
+    }
+
+    @AfterEach
+    void fecharBanco() throws SQLException {
+        BancoTeste.fechar(fabricaConexoes);
+    }
+
+    @Test
+    void lancamentoRecusadoVaiParaRejeitadosSemSegurarAFila() throws Exception {
+        Path arquivo = pasta.resolve("lancamentos.log");
+        // Os quatro chegam à fila no mesmo lote, como depois de reiniciar com o diário cheio
+        try (DiarioTransacoes diario = new DiarioTransacoes(arquivo)) {
+            diario.registrar(lancamento("antes", "10.00"));
+            diario.registrar(lancamento("x".repeat(300), "1.00"));
+            diario.registrar(lancamento("valor grande", "100000000000000.00"));
+            diario.registrar(lancamento("depois", "20.00"));
+            diario.sincronizar();
+        }
+
+        GravadorTransacoes gravador = new GravadorTransacoes(new DiarioTransacoes(arquivo), repositorio, () -> { });
+        gravador.iniciar();
+        aguardarFilaVazia(gravador);
+        MetricasGravacao metricas = gravador.metricas();
+        gravador.encerrar(1000);
+
+        assertEquals(2, metricas.getRejeitados());
+        assertEquals(2, metricas.getLancamentosGravados());
+        assertEquals(2, BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM transacoes WHERE IdUser = " + USUARIO));
+        assertEquals(Dinheiro.de("30.00"), repositorio.carregarSaldo(USUARIO).getEntradas());
+
+        List<String> rejeitados = Files.readAllLines(pasta.resolve("rejeitados-lancamentos.log"), StandardCharsets.UTF_8);
+        assertEquals(2, rejeitados.size());
+        assertTrue(rejeitados.get(0).startsWith("R\t") && rejeitados.get(0).contains("x".repeat(300)));
+        assertTrue(rejeitados.get(1).contains("valor grande"));
+
+        // Nada volta para a fila na próxima inicialização, e a contagem de rejeitados persiste
+        try (DiarioTransacoes diario = new DiarioTransacoes(arquivo)) {
+            assertTrue(diario.pendentes().isEmpty());
+            assertEquals(2, diario.contarRejeitados());
+        }
+    }
+
+    @Test
+    void registrosConcorrentesDividemASincronizacaoDoDiario() throws Exception {
+        AtomicInteger sincronizacoes = new AtomicInteger();
+        DiarioTransacoes diario = new DiarioTransacoes(pasta.resolve("lancamentos.log")) {
+            @Override
+            public void sincronizar() throws IOException {
+                sincronizacoes.incrementAndGet();
+                try {
+                    Thread.sleep(5); // Um disco lento faz os registros se acumularem atrás do force
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.sincronizar();
+            }
+        };
+        GravadorTransacoes gravador = new GravadorTransacoes(diario, repositorio, () -> { });
+        gravador.iniciar();
+
+        int threads = 16;
+        int porThread = 20;
+        List<Thread> sessoes = new ArrayList<>();
+        List<Throwable> falhas = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread sessao = new Thread(() -> {
+                try {
+                    for (int i = 0; i < porThread; i++) {
+                        gravador.registrar(USUARIO, new Transacao(0, "lançamento", Dinheiro.de("1.00"), TipoTransacao.RECEITA, LocalDate.now()));
+                    }
+                } catch (Throwable ex) {
+                    synchronized (falhas) {
+                        falhas.add(ex);
+                    }
+                }
+            });
+            sessoes.add(sessao);
+            sessao.start();
+        }
+        for (Thread sessao : sessoes) {
+            sessao.join();
+        }
+        aguardarFilaVazia(gravador);
+        gravador.encerrar(1000);
+
+        assertTrue(falhas.isEmpty(), () -> "Falhas: " + falhas);
+        int registros = threads * porThread;
+        assertEquals(registros, BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM transacoes WHERE IdUser = " + USUARIO));
+        assertTrue(sincronizacoes.get() < registros / 2, "Sincronizações: " + sincronizacoes.get() + " para " + registros + " registros");
+    }
+
+    @Test
+    void falhaAoSincronizarCancelaORegistroOuOMantemNaFila() throws Exception {
+        Path arquivo = pasta.resolve("lancamentos.log");
+        AtomicInteger falhasRestantes = new AtomicInteger(1);
+        DiarioTransacoes diario = new DiarioTransacoes(arquivo) {
+            @Override
+            public void sincronizar() throws IOException {
+                if (falhasRestantes.getAndDecrement() > 0) {
+                    throw new IOException("disco cheio");
+                }
+                super.sincronizar();
+            }
+        };
+        GravadorTransacoes gravador = new GravadorTransacoes(diario, repositorio, () -> { });
+        gravador.iniciar();
+
+        // O cancelamento chega ao disco: a falha é informada e o lançamento não volta ao reiniciar
+        assertThrows(IOException.class, () -> gravador.registrar(USUARIO, new Transacao(0, "cancelado", Dinheiro.de("5.00"), TipoTransacao.RECEITA, LocalDate.now())));
+        try (DiarioTransacoes releitura = new DiarioTransacoes(arquivo)) {
+            assertTrue(releitura.pendentes().isEmpty());
+        }
+
+        // Nem o cancelamento chega ao disco: o lançamento é aceito e enviado ao banco
+        falhasRestantes.set(2);
+        gravador.registrar(USUARIO, new Transacao(0, "aceito", Dinheiro.de("7.00"), TipoTransacao.RECEITA, LocalDate.now()));
+        aguardarFilaVazia(gravador);
+        gravador.encerrar(1000);
+
+        assertEquals(Dinheiro.de("7.00"), repositorio.carregarSaldo(USUARIO).getEntradas());
+        assertEquals(1, BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM transacoes WHERE IdUser = " + USUARIO));
+    }
+
+    @Test
+    void classificaRecusasDefinitivasDoBanco() {
+        BatchUpdateException lote = new BatchUpdateException("lote", "22001", new int[0]);
+        assertTrue(GravadorTransacoes.recusaDefinitiva(lote));
+
+        BatchUpdateException semEstado = new BatchUpdateException(new int[0]);
+        semEstado.setNextException(new SQLDataException("valor longo demais"));
+        assertTrue(GravadorTransacoes.recusaDefinitiva(semEstado));
+
+        SQLException truncado = new SQLException("lote", null, new DataTruncation(1, true, false, 300, 255));
+        assertTrue(GravadorTransacoes.recusaDefinitiva(truncado));
+
+        assertTrue(GravadorTransacoes.recusaDefinitiva(new SQLException("chave duplicada", "23000")));
+        assertFalse(GravadorTransacoes.recusaDefinitiva(new SQLTransientConnectionException("sem conexão", "08S01")));
+        assertFalse(GravadorTransacoes.recusaDefinitiva(new SQLException("deadlock", "40001")));
+    }
+
+    private static LancamentoPendente lancamento(String descricao, String valor) {
+        return new LancamentoPendente(UUID.randomUUID().toString(), USUARIO,
+                new Transacao(0, descricao, Dinheiro.de(valor), TipoTransacao.RECEITA, LocalDate.of(2024, 5, 10)));
+    }
+
+    private static void aguardarFilaVazia(GravadorTransacoes gravador) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 20_000;
+        while (gravador.metricas().getPendentes() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, gravador.metricas().getPendentes(), "A fila de gravação não esvaziou");
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceDescricoesTest {
+    private static final int USUARIO = 5;
+
+    @TempDir
+    Path pasta;
+
+    @Test
+    void buscaPorInicioDePalavraSemAcentos() throws Exception {
+        try (IndiceDescricoes indice = new IndiceDescricoes(pasta)) {
+            indice.adicionar(USUARIO, Arrays.asList(transacao(1, "Pão de Açúcar"), transacao(2, "Padaria"), transacao(3, "Posto")));
+            indice.adicionar(USUARIO + 1, Collections.singletonList(transacao(4, "Pão de queijo")));
+
+            assertEquals(Collections.singletonList(1L), indice.buscar(USUARIO, "pao acu"));
+            assertEquals(2, indice.buscar(USUARIO, "pa").size());
+        }
+    }
+
+    @Test
+    void textoSemPalavrasOuResultadosDemaisFicamComOBanco() throws Exception {
+        try (IndiceDescricoes indice = new IndiceDescricoes(pasta)) {
+            List<Transacao> muitas = new ArrayList<>();
+            for (int i = 1; i <= IndiceDescricoes.MAXIMO_RESULTADOS + 2; i++) {
+                muitas.add(transacao(i, i == 1 ? "aluguel" : "mercado " + i));
+            }
+            indice.adicionar(USUARIO, muitas);
+
+            assertNull(indice.buscar(USUARIO, "%%"));
+            assertNull(indice.buscar(USUARIO, "-"));
+            assertNull(indice.buscar(USUARIO, "mercado"), "Mais de MAXIMO_RESULTADOS não pode ser cortado em silêncio");
+            assertEquals(Collections.singletonList(1L), indice.buscar(USUARIO, "aluguel"));
+        }
+    }
+
+    @Test
+    void resumoDetectaIdsTrocadosComAMesmaQuantidade() throws Exception {
+        try (IndiceDescricoes indice = new IndiceDescricoes(pasta)) {
+            indice.adicionar(USUARIO, Arrays.asList(transacao(10, "a"), transacao(20, "b")));
+            ResumoIds resumo = indice.resumir(USUARIO);
+            assertEquals(2, resumo.getQuantidade());
+            assertEquals(20, resumo.getMaiorId());
+            assertEquals(30, resumo.getSomaIds());
+
+            assertFalse(resumo.confere(new ResumoIds(2, 21, 31)));
+            assertTrue(resumo.confere(new ResumoIds(2, 20, 30)));
+        }
+    }
+
+    @Test
+    void sincronizacaoReindexaQuandoOsIdsNaoConferem() throws Exception {
+        FabricaConexoes fabricaConexoes = BancoTeste.criar();
+        try (IndiceDescricoes indice = new IndiceDescricoes(pasta)) {
+            TransacaoRepository repositorio = new TransacaoRepository(fabricaConexoes, new LivroSaldo(), indice);
+            repositorio.inserir(USUARIO, transacao(0, "farmácia"));
+            long id = BancoTeste.consultarNumero(fabricaConexoes, "SELECT MAX(id) FROM transacoes");
+            // Mesma quantidade de documentos, mas de uma transação que o banco não tem
+            indice.removerUsuario(USUARIO);
+            indice.adicionar(USUARIO, Collections.singletonList(transacao(id + 100, "cinema")));
+
+            repositorio.sincronizarIndice(USUARIO);
+
+            assertEquals(Collections.singletonList(id), indice.buscar(USUARIO, "farm"));
+            assertEquals(Collections.emptyList(), indice.buscar(USUARIO, "cinema"));
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    private static Transacao transacao(long id, String descricao) {
+        return new Transacao(id, descricao, Dinheiro.de("1.00"), TipoTransacao.DESPESA, LocalDate.of(2024, 3, 1));
+    }
+}
@@ -0,0 +1,124 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LivroSaldoTest {
+    private static final int USUARIO = 4;
+
+    @Test
+    void primeirosLancamentosConcorrentesEReconciliacaoNaoPerdemValores() throws Exception {
+        FabricaConexoes fabricaConexoes = BancoTeste.criar();
+        try {
+            TransacaoRepository repositorio = new TransacaoRepository(fabricaConexoes, new LivroSaldo());
+            int threads = 8;
+            int porThread = 40;
+            CountDownLatch largada = new CountDownLatch(1);
+            AtomicBoolean gravando = new AtomicBoolean(true);
+            List<Throwable> falhas = new ArrayList<>();
+            List<Thread> sessoes = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                TipoTransacao tipo = t % 2 == 0 ? TipoTransacao.RECEITA : TipoTransacao.DESPESA;
+                sessoes.add(new Thread(() -> {
+                    try {
+                        largada.await();
+                        for (int i = 0; i < porThread; i++) {
+                            inserir(repositorio, new Transacao(0, "lançamento", Dinheiro.de("1.25"), tipo, LocalDate.of(2024, 2, 1)));
+                        }
+                    } catch (Throwable ex) {
+                        registrar(falhas, ex);
+                    }
+                }));
+            }
+            // Login e reconciliação sob demanda no meio das gravações
+            Thread reconciliacoes = new Thread(() -> {
+                try {
+                    largada.await();
+                    while (gravando.get()) {
+                        repositorio.reconciliarSaldo(USUARIO);
+                        repositorio.carregarSaldo(USUARIO);
+                    }
+                } catch (Throwable ex) {
+                    registrar(falhas, ex);
+                }
+            });
+            sessoes.forEach(Thread::start);
+            reconciliacoes.start();
+            largada.countDown();
+            for (Thread sessao : sessoes) {
+                sessao.join();
+            }
+            gravando.set(false);
+            reconciliacoes.join();
+
+            assertTrue(falhas.isEmpty(), () -> "Falhas: " + falhas);
+            Dinheiro esperado = Dinheiro.de("200.00"); // 4 sessões de cada tipo x 40 x 1,25
+            ResumoSaldo saldo = repositorio.carregarSaldo(USUARIO);
+            assertEquals(esperado, saldo.getEntradas());
+            assertEquals(esperado, saldo.getSaidas());
+            assertFalse(repositorio.reconciliarSaldo(USUARIO).possuiDivergencia());
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    @Test
+    void migracaoCriaOLivroDeQuemJaTinhaTransacoes() throws SQLException {
+        FabricaConexoes fabricaConexoes = BancoTeste.criarVazio();
+        try {
+            // Banco anterior ao livro-razão: transações sem linha em saldo_usuario
+            fabricaConexoes.executar(conexao -> {
+                try (Statement statement = conexao.createStatement()) {
+                    statement.execute("CREATE TABLE transacoes (descricao VARCHAR(255) NOT NULL, valor DECIMAL(15,2) NOT NULL, "
+                            + "tipo VARCHAR(10) NOT NULL, data DATE NOT NULL, IdUser INT NOT NULL)");
+                    statement.execute("INSERT INTO transacoes VALUES ('salário', 100.00, 'RECEITA', DATE '2024-01-05', " + USUARIO + "), "
+                            + "('aluguel', 40.00, 'DESPESA', DATE '2024-01-10', " + USUARIO + ")");
+                }
+                return null;
+            });
+            new Migrador(fabricaConexoes).migrar();
+            TransacaoRepository repositorio = new TransacaoRepository(fabricaConexoes, new LivroSaldo());
+
+            // O lançamento seguinte soma ao saldo anterior, em vez de criar a linha só com ele
+            repositorio.inserir(USUARIO, new Transacao(0, "bônus", Dinheiro.de("10.00"), TipoTransacao.RECEITA, LocalDate.of(2024, 1, 20)));
+
+            ResumoSaldo saldo = repositorio.carregarSaldo(USUARIO);
+            assertEquals(Dinheiro.de("110.00"), saldo.getEntradas());
+            assertEquals(Dinheiro.de("40.00"), saldo.getSaidas());
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    // No modo MySQL, o H2 2.2 às vezes gera o mesmo id de AUTO_INCREMENT para inserções concorrentes
+    // (acontece também com INSERTs simples, sem o livro-razão). A transação é desfeita inteira,
+    // livro e resumo incluídos, então repetir a inserção não altera o que o teste confere
+    private static void inserir(TransacaoRepository repositorio, Transacao transacao) throws SQLException {
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                repositorio.inserir(USUARIO, transacao);
+                return;
+            } catch (SQLIntegrityConstraintViolationException ex) {
+                if (tentativa == 5 || !ex.getMessage().contains("transacoes(id)")) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private static void registrar(List<Throwable> falhas, Throwable ex) {
+        synchronized (falhas) {
+            falhas.add(ex);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigradorTest {
+
+    @Test
+    void consultasPrincipaisUsamOsIndicesDasMigracoes() throws SQLException {
+        FabricaConexoes fabricaConexoes = BancoTeste.criar();
+        try {
+            // Listagem da tela, paginada na ordem do índice
+            assertUsaIndice(fabricaConexoes, "idx_transacoes_usuario_data",
+                    "SELECT id, descricao, valor, tipo, data FROM transacoes WHERE IdUser = 1 AND data >= DATE '2024-01-01' "
+                            + "AND data <= DATE '2024-12-31' ORDER BY IdUser, data, id LIMIT 50");
+            // Saldo e resumo recalculados por usuário
+            assertUsaIndice(fabricaConexoes, "idx_transacoes_usuario_data",
+                    "SELECT tipo, SUM(valor) FROM transacoes WHERE IdUser = 1 GROUP BY tipo");
+            // Login
+            assertUsaIndice(fabricaConexoes, "uk_usuario_nome", "SELECT idUser, senha FROM usuario WHERE nome = 'ana'");
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    @Test
+    void migracoesConcorrentesAplicamCadaVersaoUmaVez() throws Exception {
+        FabricaConexoes fabricaConexoes = BancoTeste.criarVazio();
+        try {
+            CountDownLatch largada = new CountDownLatch(1);
+            List<Throwable> falhas = new ArrayList<>();
+            List<Thread> instancias = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread instancia = new Thread(() -> {
+                    try {
+                        largada.await();
+                        new Migrador(fabricaConexoes).migrar();
+                    } catch (Throwable ex) {
+                        synchronized (falhas) {
+                            falhas.add(ex);
+                        }
+                    }
+                });
+                instancias.add(instancia);
+                instancia.start();
+            }
+            largada.countDown();
+            for (Thread instancia : instancias) {
+                instancia.join();
+            }
+
+            assertTrue(falhas.isEmpty(), () -> "Falhas: " + falhas);
+            long versoes = BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM esquema_versao");
+            assertEquals(versoes, BancoTeste.consultarNumero(fabricaConexoes, "SELECT MAX(versao) FROM esquema_versao"));
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    @Test
+    void nomesRepetidosDoCadastroAntigoParamAMigracaoComAListaDeContas() throws SQLException {
+        FabricaConexoes fabricaConexoes = BancoTeste.criarVazio();
+        try {
+            // Esquema de antes das migrações, quando o cadastro não conferia nomes repetidos
+            executar(fabricaConexoes, "CREATE TABLE usuario (idUser INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+                    + "nome VARCHAR(100) NOT NULL, senha VARCHAR(50) NOT NULL)");
+            executar(fabricaConexoes, "CREATE TABLE transacoes (descricao VARCHAR(255) NOT NULL, valor DECIMAL(15,2) NOT NULL, "
+                    + "tipo VARCHAR(10) NOT NULL, data DATE NOT NULL, IdUser INT NOT NULL)");
+            executar(fabricaConexoes, "INSERT INTO usuario (nome, senha) VALUES ('ana', 'a1'), ('bruno', 'b1'), ('ana', 'a2')");
+
+            SQLException falha = assertThrows(SQLException.class, () -> new Migrador(fabricaConexoes).migrar());
+            assertTrue(falha.getMessage().contains("\"ana\" (idUser 1, 3)"), falha.getMessage());
+            assertFalse(falha.getMessage().contains("bruno"), falha.getMessage());
+            assertEquals(2, BancoTeste.consultarNumero(fabricaConexoes, "SELECT MAX(versao) FROM esquema_versao"));
+
+            // Corrigidas as contas, a migração continua de onde parou
+            executar(fabricaConexoes, "UPDATE usuario SET nome = 'ana.silva' WHERE idUser = 3");
+            new Migrador(fabricaConexoes).migrar();
+            long versoes = BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM esquema_versao");
+            assertEquals(versoes, BancoTeste.consultarNumero(fabricaConexoes, "SELECT MAX(versao) FROM esquema_versao"));
+            assertTrue(versoes > 3);
+            assertThrows(SQLException.class, () -> executar(fabricaConexoes, "INSERT INTO usuario (nome, senha) VALUES ('ana', 'x')"));
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    private static void executar(FabricaConexoes fabricaConexoes, String sql) throws SQLException {
+        fabricaConexoes.executar(conexao -> {
+            try (Statement statement = conexao.createStatement()) {
+                return statement.executeUpdate(sql);
+            }
+        });
+    }
+
+    private static void assertUsaIndice(FabricaConexoes fabricaConexoes, String indice, String sql) throws SQLException {
+        String plano = fabricaConexoes.executar(conexao -> {
+            try (Statement statement = conexao.createStatement();
+                 ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        });
+        assertTrue(plano.toLowerCase(Locale.ROOT).contains(indice), () -> "Sem " + indice + " no plano:\n" + plano);
+    }
+}
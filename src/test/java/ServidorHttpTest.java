@@ -0,0 +1,30 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServidorHttpTest {
+
+    @Test
+    void cadastroRepetidoEConflitoEFalhaDeConexaoNao() throws SQLException {
+        FabricaConexoes fabricaConexoes = BancoTeste.criar();
+        try {
+            UsuarioRepository repositorio = new UsuarioRepository(fabricaConexoes, new VerificadorSenhas());
+            repositorio.registrar("ana", "segredo");
+
+            // 409 "Usuário já existe" em vez de 503
+            SQLException repetido = assertThrows(SQLException.class, () -> repositorio.registrar("ana", "outra"));
+            assertTrue(ServidorHttp.violaRestricao(repetido), repetido::toString);
+            assertTrue(ServidorHttp.violaRestricao(new SQLException("lote", "HY000", new SQLException("duplicada", "23000"))));
+
+            // Banco fora do ar continua como 503
+            assertFalse(ServidorHttp.violaRestricao(new SQLTransientConnectionException("sem conexão", "08001")));
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+}
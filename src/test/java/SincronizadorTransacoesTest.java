@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// O banco local e o "servidor" são dois H2 em memória, cada um com seu repositório e sua ReplicaJdbc
+class SincronizadorTransacoesTest {
+    private static final int USUARIO = 9;
+
+    private FabricaConexoes fabricaLocal;
+    private FabricaConexoes fabricaRemota;
+    private TransacaoRepository repositorioLocal;
+    private TransacaoRepository repositorioRemoto;
+    private SincronizadorTransacoes sincronizador;
+
+    @BeforeEach
+    void criarBancos() throws SQLException {
+        fabricaLocal = BancoTeste.criar();
+        fabricaRemota = BancoTeste.criar();
+        repositorioLocal = new TransacaoRepository(fabricaLocal, new LivroSaldo());
+        repositorioRemoto = new TransacaoRepository(fabricaRemota, new LivroSaldo());
+        sincronizador = new SincronizadorTransacoes(new ReplicaJdbc(fabricaLocal, repositorioLocal),
+                new ReplicaJdbc(fabricaRemota, repositorioRemoto), fabricaLocal);
+    }
+
+    @AfterEach
+    void fecharBancos() throws SQLException {
+        BancoTeste.fechar(fabricaLocal);
+        BancoTeste.fechar(fabricaRemota);
+    }
+
+    @Test
+    void alteracaoComMomentoAnteriorAMarcaChegaDentroDaJanela() throws SQLException {
+        String primeira = gravar(repositorioRemoto, "primeira", "10.00");
+        assertEquals(1, sincronizador.sincronizar(USUARIO).getRecebidas());
+        Timestamp marca = momento(fabricaLocal, "SELECT momento FROM sincronizacao WHERE IdUser = " + USUARIO
+                + " AND fluxo = 'recebimento-inseridas'");
+
+        // Commit que terminou depois da leitura, com o momento definido antes dela
+        String atrasada = gravar(repositorioRemoto, "atrasada", "20.00");
+        definirMomento(fabricaRemota, atrasada, new Timestamp(marca.getTime() - 10_000));
+        // Fora da janela de 60 s: não é relida (o limite de atraso que a janela tolera)
+        String antiga = gravar(repositorioRemoto, "antiga", "40.00");
+        definirMomento(fabricaRemota, antiga, new Timestamp(marca.getTime() - 120_000));
+
+        assertEquals(1, sincronizador.sincronizar(USUARIO).getRecebidas(), "A primeira, relida na janela, não conta de novo");
+        assertEquals(1, contar(fabricaLocal, primeira));
+        assertEquals(1, contar(fabricaLocal, atrasada));
+        assertEquals(0, contar(fabricaLocal, antiga));
+        assertEquals(Dinheiro.de("30.00"), repositorioLocal.carregarSaldo(USUARIO).getEntradas());
+    }
+
+    @Test
+    void mesmaChaveDosDoisLadosEUmaSoTransacao() throws SQLException {
+        LancamentoPendente lancamento = new LancamentoPendente(UUID.randomUUID().toString(), USUARIO,
+                new Transacao(0, "mercado", Dinheiro.de("15.00"), TipoTransacao.RECEITA, LocalDate.of(2024, 6, 1)));
+        repositorioLocal.inserirPendentes(USUARIO, Collections.singletonList(lancamento));
+        repositorioRemoto.inserirPendentes(USUARIO, Collections.singletonList(lancamento));
+
+        ResultadoSincronizacao resultado = sincronizador.sincronizar(USUARIO);
+
+        assertEquals(0, resultado.getEnviadas());
+        assertEquals(0, resultado.getRecebidas());
+        assertEquals(1, contar(fabricaLocal, lancamento.getChave()));
+        assertEquals(1, contar(fabricaRemota, lancamento.getChave()));
+        assertEquals(Dinheiro.de("15.00"), repositorioLocal.carregarSaldo(USUARIO).getEntradas());
+        assertEquals(Dinheiro.de("15.00"), repositorioRemoto.carregarSaldo(USUARIO).getEntradas());
+    }
+
+    @Test
+    void exclusaoVenceAInclusaoReenviada() throws SQLException {
+        String chave = gravar(repositorioLocal, "assinatura", "30.00");
+        sincronizador.sincronizar(USUARIO);
+        assertEquals(1, contar(fabricaRemota, chave));
+
+        // Excluída no servidor; a próxima rodada ainda reenvia a inclusão, que está dentro da janela
+        repositorioRemoto.excluirPorChave(USUARIO, Collections.singletonList(chave));
+        sincronizador.sincronizar(USUARIO);
+        sincronizador.sincronizar(USUARIO);
+
+        assertEquals(0, contar(fabricaLocal, chave));
+        assertEquals(0, contar(fabricaRemota, chave));
+        assertEquals(Dinheiro.ZERO, repositorioLocal.carregarSaldo(USUARIO).getEntradas());
+        assertEquals(Dinheiro.ZERO, repositorioRemoto.carregarSaldo(USUARIO).getEntradas());
+
+        // Uma exclusão recebida antes da inclusão também prevalece
+        String adiantada = UUID.randomUUID().toString();
+        repositorioLocal.excluirPorChave(USUARIO, Collections.singletonList(adiantada));
+        repositorioLocal.inserirPendentes(USUARIO, Collections.singletonList(new LancamentoPendente(adiantada, USUARIO,
+                new Transacao(0, "tardia", Dinheiro.de("5.00"), TipoTransacao.RECEITA, LocalDate.of(2024, 6, 2)))));
+        assertEquals(0, contar(fabricaLocal, adiantada));
+    }
+
+    private static String gravar(TransacaoRepository repositorio, String descricao, String valor) throws SQLException {
+        String chave = UUID.randomUUID().toString();
+        repositorio.inserirPendentes(USUARIO, Collections.singletonList(new LancamentoPendente(chave, USUARIO,
+                new Transacao(0, descricao, Dinheiro.de(valor), TipoTransacao.RECEITA, LocalDate.of(2024, 6, 1)))));
+        return chave;
+    }
+
+    private static long contar(FabricaConexoes fabricaConexoes, String chave) throws SQLException {
+        return BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM transacoes WHERE chave_cliente = '" + chave + "'");
+    }
+
+    private static Timestamp momento(FabricaConexoes fabricaConexoes, String sql) throws SQLException {
+        return fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement(sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getTimestamp(1);
+            }
+        });
+    }
+
+    private static void definirMomento(FabricaConexoes fabricaConexoes, String chave, Timestamp momento) throws SQLException {
+        fabricaConexoes.executar(conexao -> {
+            try (PreparedStatement statement = conexao.prepareStatement("UPDATE transacoes SET atualizado_em = ? WHERE chave_cliente = ?")) {
+                statement.setTimestamp(1, momento);
+                statement.setString(2, chave);
+                return statement.executeUpdate();
+            }
+        });
+    }
+}
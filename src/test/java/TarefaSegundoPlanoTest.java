@@ -0,0 +1,62 @@
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TarefaSegundoPlanoTest {
+    private static final int LINHAS = 500_000;
+
+    @Test
+    void somaGrandeChegaAEdtEmPoucasAtualizacoes() throws Exception {
+        AtomicInteger andamentos = new AtomicInteger();
+        AtomicInteger conclusoes = new AtomicInteger();
+        AtomicInteger foraDaEdt = new AtomicInteger();
+        List<Object> resultado = new ArrayList<>();
+        CountDownLatch concluida = new CountDownLatch(1);
+
+        // Uma mensagem de andamento por linha, o pior caso do antigo invokeLater por linha
+        new TarefaSegundoPlano<Dinheiro>(
+                andamento -> {
+                    SomaDinheiro soma = new SomaDinheiro();
+                    for (int i = 1; i <= LINHAS; i++) {
+                        soma.adicionar(Dinheiro.de("0.01"));
+                        andamento.accept(i + " linhas");
+                    }
+                    return soma.total();
+                },
+                mensagem -> {
+                    andamentos.incrementAndGet();
+                    if (!SwingUtilities.isEventDispatchThread()) {
+                        foraDaEdt.incrementAndGet();
+                    }
+                },
+                total -> {
+                    conclusoes.incrementAndGet();
+                    if (!SwingUtilities.isEventDispatchThread()) {
+                        foraDaEdt.incrementAndGet();
+                    }
+                    resultado.add(total);
+                    concluida.countDown();
+                },
+                ex -> {
+                    resultado.add(ex);
+                    concluida.countDown();
+                }).execute();
+
+        assertTrue(concluida.await(60, TimeUnit.SECONDS), "A tarefa não terminou");
+        SwingUtilities.invokeAndWait(() -> { }); // Andamentos ainda na fila da EDT
+
+        assertEquals(Dinheiro.de("5000.00"), resultado.get(0));
+        assertEquals(1, conclusoes.get());
+        assertEquals(0, foraDaEdt.get());
+        // O SwingWorker agrupa as mensagens publicadas entre dois ciclos da EDT
+        assertTrue(andamentos.get() < LINHAS / 100, "Atualizações na EDT: " + andamentos.get() + " para " + LINHAS + " linhas");
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransacaoRepositoryTest {
+
+    @Test
+    void validarRecusaOQueNaoCabeNasColunas() {
+        assertDoesNotThrow(() -> TransacaoRepository.validar(transacao("x".repeat(255), "9999999999999.99")));
+        assertDoesNotThrow(() -> TransacaoRepository.validar(transacao("estorno", "-9999999999999.99")));
+
+        assertThrows(IllegalArgumentException.class, () -> TransacaoRepository.validar(transacao("x".repeat(256), "1.00")));
+        assertThrows(IllegalArgumentException.class, () -> TransacaoRepository.validar(transacao("grande", "10000000000000.00")));
+        assertThrows(IllegalArgumentException.class, () -> TransacaoRepository.validar(transacao("negativo", "-10000000000000.00")));
+        assertThrows(IllegalArgumentException.class, () -> TransacaoRepository.validar(transacao(null, "1.00")));
+    }
+
+    @Test
+    void valorDigitadoNaoAceitaMaisDeDuasCasas() {
+        assertDoesNotThrow(() -> Dinheiro.deExato("12.50"));
+        assertDoesNotThrow(() -> Dinheiro.deExato("12.500"));
+        assertThrows(NumberFormatException.class, () -> Dinheiro.deExato("12.505"));
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void excluirFazUmaIdaAoBancoPorLoteDeIds() throws Exception {
+        FabricaConexoes fabricaConexoes = BancoTeste.criar();
+        try {
+            TransacaoRepository repositorio = new TransacaoRepository(fabricaConexoes, new LivroSaldo());
+            List<Long> ids = gravar(fabricaConexoes, repositorio, 1, 1_200);
+            try (MetricasJdbc.Escopo escopo = MetricasJdbc.operacao("teste-exclusao-lotes")) {
+                repositorio.excluir(1, ids);
+            }
+
+            // 1.200 ids em lotes de 500: três leituras com trava e três DELETE, independente da quantidade de linhas
+            assertEquals(3, execucoes("SELECT id, tipo, data, valor FROM transacoes"));
+            assertEquals(3, execucoes("DELETE FROM transacoes"));
+            assertEquals(0, BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM transacoes"));
+            assertEquals(Dinheiro.ZERO, repositorio.carregarSaldo(1).getSaidas());
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    @Test
+    void excluirNaoAlcancaTransacoesDeOutroUsuario() throws Exception {
+        FabricaConexoes fabricaConexoes = BancoTeste.criar();
+        try {
+            TransacaoRepository repositorio = new TransacaoRepository(fabricaConexoes, new LivroSaldo());
+            List<Long> doPrimeiro = gravar(fabricaConexoes, repositorio, 1, 3);
+            List<Long> doSegundo = gravar(fabricaConexoes, repositorio, 2, 3);
+
+            // Ids de outro usuário não excluem nem abatem nada, mesmo com descrição e valor idênticos
+            repositorio.excluir(1, doSegundo);
+            assertEquals(3, BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM transacoes WHERE IdUser = 2"));
+            assertEquals(Dinheiro.de("3.00"), repositorio.carregarSaldo(1).getSaidas());
+
+            repositorio.excluir(1, doPrimeiro.subList(0, 2));
+            assertEquals(1, BancoTeste.consultarNumero(fabricaConexoes, "SELECT COUNT(*) FROM transacoes WHERE IdUser = 1"));
+            assertEquals(Dinheiro.de("1.00"), repositorio.carregarSaldo(1).getSaidas());
+            assertEquals(Dinheiro.de("3.00"), repositorio.carregarSaldo(2).getSaidas());
+
+            // Excluir de novo os mesmos ids não abate o saldo outra vez
+            repositorio.excluir(1, doPrimeiro);
+            assertEquals(Dinheiro.ZERO, repositorio.carregarSaldo(1).getSaidas());
+            assertEquals(Dinheiro.ZERO, repositorio.carregarSaldo(1).getEntradas());
+        } finally {
+            BancoTeste.fechar(fabricaConexoes);
+        }
+    }
+
+    private static List<Long> gravar(FabricaConexoes fabricaConexoes, TransacaoRepository repositorio, int idUser, int quantidade) throws Exception {
+        List<Transacao> lote = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            lote.add(transacao("compra " + i, "1.00"));
+        }
+        repositorio.inserirLote(idUser, lote);
+        List<Long> ids = new ArrayList<>(quantidade);
+        long maior = BancoTeste.consultarNumero(fabricaConexoes, "SELECT MAX(id) FROM transacoes WHERE IdUser = " + idUser);
+        for (long id = maior - quantidade + 1; id <= maior; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static long execucoes(String inicioSql) {
+        return MetricasJdbc.INSTANCIA.listarComandos().stream()
+                .filter(comando -> "teste-exclusao-lotes".equals(comando.getOperacao()) && comando.getSql().startsWith(inicioSql))
+                .mapToLong(comando -> comando.getExecucao().getQuantidade())
+                .sum();
+    }
+
+    private static Transacao transacao(String descricao, String valor) {
+        return new Transacao(0, descricao, Dinheiro.de(valor), TipoTransacao.DESPESA, LocalDate.of(2024, 1, 31));
+    }
+}